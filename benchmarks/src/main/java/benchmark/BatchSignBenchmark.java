@@ -0,0 +1,91 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import signature.BatchSigner;
+import signature.DocumentUtil;
+import signature.SignResult;
+import signature.SigningExecutors;
+import signature.SigningProfile;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link BatchSigner} scaling with the number of worker threads.
+ * Compare the throughput of the thread counts to check how close to linear signing scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchSignBenchmark {
+
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"purchase", "64KB"})
+    public String payloadSize;
+
+    private ExecutorService executor;
+    private BatchSigner batchSigner;
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() throws Exception {
+        SigningProfile profile = SigningProfile.builder()
+                .keyPair(BenchmarkKeys.generate("RSA_2048"))
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.INCLUSIVE)
+                .build();
+        executor = SigningExecutors.newPlatformThreadPool(threads);
+        batchSigner = new BatchSigner(profile, executor);
+
+        byte[] payload = Payloads.purchaseOrder(payloadSize);
+        documents = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            documents.add(DocumentUtil.parseXmlDocument(new ByteArrayInputStream(payload)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Signs one batch, the score multiplied by the batch size is documents per second.
+     */
+    @Benchmark
+    public List<SignResult> signBatch() throws Exception {
+        List<SignResult> results = batchSigner.signAll(documents);
+        // Drop the enveloped signatures again so every invocation signs the same content
+        for (Document document : documents) {
+            Node root = document.getDocumentElement();
+            root.removeChild(root.getLastChild());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,38 @@
+package benchmark;
+
+import signature.KeyAlgorithm;
+import signature.KryptoUtil;
+
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Key material used by the signature benchmarks.
+ */
+final class BenchmarkKeys {
+
+    private BenchmarkKeys() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Generates a key pair for a benchmark key type.
+     *
+     * @param keyType a {@link KeyAlgorithm} name, e.g. {@code RSA_2048} or {@code EC_P256}
+     * @return the generated key pair
+     * @throws NoSuchAlgorithmException if the key algorithm is not available
+     */
+    static KeyPair generate(String keyType) throws NoSuchAlgorithmException {
+        return new KryptoUtil(KeyAlgorithm.valueOf(keyType)).generateKeyPairs();
+    }
+
+    /**
+     * Returns the XML-DSig signature method URI matching a benchmark key type.
+     *
+     * @param keyType a {@link KeyAlgorithm} name
+     * @return the signature method URI
+     */
+    static String signatureMethod(String keyType) {
+        return KeyAlgorithm.valueOf(keyType).getSignatureMethod();
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import demo.TestDataFactory;
+import demo.XmlJsonDemo;
+import model.Company;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link XmlJsonDemo} object/XML/JSON conversions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private XmlJsonDemo demo;
+    private Company company;
+    private String xml;
+    private String jettisonJson;
+    private byte[] binary;
+    private byte[] xmlBytes;
+
+    @Setup
+    public void setUp() {
+        demo = new XmlJsonDemo();
+        company = TestDataFactory.createCompany();
+        xml = demo.convertToXml(company);
+        jettisonJson = demo.convertToJettisonJson(company);
+        binary = demo.convertToBinary(company);
+        xmlBytes = xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String toXml() {
+        return demo.convertToXml(company);
+    }
+
+    @Benchmark
+    public Company fromXml() {
+        return demo.convertFromXml(xml);
+    }
+
+    @Benchmark
+    public byte[] toCompactXmlBytes() {
+        return demo.convertToXmlBytes(company, false);
+    }
+
+    @Benchmark
+    public Company fromXmlBytes() {
+        return demo.convertFromXml(xmlBytes);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return demo.convertToJson(company);
+    }
+
+    @Benchmark
+    public byte[] toJsonBytes() {
+        return demo.convertToJsonBytes(company);
+    }
+
+    @Benchmark
+    public String toJettisonJson() {
+        return demo.convertToJettisonJson(company);
+    }
+
+    @Benchmark
+    public Company fromJettisonJson() {
+        return demo.convertFromJettisonJson(jettisonJson);
+    }
+
+    @Benchmark
+    public byte[] toBinary() {
+        return demo.convertToBinary(company);
+    }
+
+    @Benchmark
+    public Company fromBinary() {
+        return demo.convertFromBinary(binary);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import demo.CompanySerializer;
+import demo.TestDataFactory;
+import model.Company;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the dedicated Company/Address converters against XStream's reflection converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+
+    @Param({"dedicated", "reflective"})
+    public String converters;
+
+    private CompanySerializer serializer;
+    private Company company;
+    private String xml;
+    private String jettisonJson;
+
+    @Setup
+    public void setUp() {
+        serializer = "reflective".equals(converters) ? CompanySerializer.reflective() : new CompanySerializer();
+        company = TestDataFactory.createCompany();
+        xml = serializer.toXml(company);
+        jettisonJson = serializer.toJettisonJson(company);
+    }
+
+    @Benchmark
+    public String toXml() {
+        return serializer.toXml(company);
+    }
+
+    @Benchmark
+    public Company fromXml() {
+        return serializer.fromXml(xml);
+    }
+
+    @Benchmark
+    public String toJettisonJson() {
+        return serializer.toJettisonJson(company);
+    }
+
+    @Benchmark
+    public Company fromJettisonJson() {
+        return serializer.fromJettisonJson(jettisonJson);
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import signature.DocumentUtil;
+import signature.SigningProfile;
+import signature.ValidationReport;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing and validating parsed documents with reference digests computed by the
+ * built-in canonicalizer versus the XML-DSig provider's transforms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectDigestBenchmark {
+
+    @Param({"purchase", "64KB", "1MB"})
+    public String payloadSize;
+
+    @Param({"true", "false"})
+    public boolean directDigest;
+
+    private KeyPair keyPair;
+    private SigningProfile profile;
+    private Document unsigned;
+    private Document signed;
+
+    @Setup
+    public void setUp() throws Exception {
+        XMLSignatureUtil.setDirectDigest(directDigest);
+        keyPair = BenchmarkKeys.generate("RSA_2048");
+        profile = SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+        byte[] payload = Payloads.purchaseOrder(payloadSize);
+        unsigned = DocumentUtil.parseXmlDocument(payload);
+        signed = DocumentUtil.parseXmlDocument(XMLSignatureUtil.sign(payload, profile));
+    }
+
+    @TearDown
+    public void tearDown() {
+        XMLSignatureUtil.setDirectDigest(true);
+    }
+
+    @Benchmark
+    public Document sign() throws Exception {
+        Document doc = XMLSignatureUtil.sign(unsigned, profile);
+        // The signature is the last child of the root, removed for the next invocation
+        Element root = doc.getDocumentElement();
+        root.removeChild(root.getLastChild());
+        return doc;
+    }
+
+    @Benchmark
+    public ValidationReport validate() {
+        return XMLSignatureUtil.validateDetailed(signed, keyPair.getPublic());
+    }
+}
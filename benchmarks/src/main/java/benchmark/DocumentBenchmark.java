@@ -0,0 +1,83 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import signature.DocumentUtil;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link DocumentUtil} parsing and serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentBenchmark {
+
+    @Param({"purchase", "64KB", "1MB", "4MB"})
+    public String payloadSize;
+
+    private byte[] payload;
+    private Document document;
+    private Path file;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = Payloads.purchaseOrder(payloadSize);
+        document = DocumentUtil.parseXmlDocument(new ByteArrayInputStream(payload));
+        file = Files.createTempFile("document-benchmark", ".xml");
+        Files.write(file, payload);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Document parse() throws Exception {
+        return DocumentUtil.parseXmlDocument(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public Document parseFile() throws Exception {
+        return DocumentUtil.getXmlDocument(file);
+    }
+
+    @Benchmark
+    public Document parseMappedFile() throws Exception {
+        return DocumentUtil.getMappedXmlDocument(file);
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return DocumentUtil.asString(document);
+    }
+
+    @Benchmark
+    public byte[] serializeBytes() throws Exception {
+        return DocumentUtil.asBytes(document, true);
+    }
+
+    @Benchmark
+    public byte[] serializeCompactBytes() throws Exception {
+        return DocumentUtil.asBytes(document, false);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import signature.SigningProfile;
+import signature.StreamingSigner;
+import signature.StreamingVerifier;
+import signature.ValidationReport;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing and verifying the same payloads with every key type.
+ * Uses the streaming signer and verifier, the only path that supports Ed25519 on JDK 17.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyAlgorithmBenchmark {
+
+    @Param({"purchase", "64KB"})
+    public String payloadSize;
+
+    @Param({"RSA_2048", "RSA_3072", "EC_P256", "EC_P384", "ED25519"})
+    public String keyType;
+
+    private byte[] payload;
+    private byte[] signedPayload;
+    private StreamingSigner signer;
+    private StreamingVerifier verifier;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = Payloads.purchaseOrder(payloadSize);
+        SigningProfile profile = SigningProfile.builder()
+                .keyPair(BenchmarkKeys.generate(keyType))
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod(keyType))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+        signer = new StreamingSigner(profile);
+        verifier = new StreamingVerifier(profile.getKeyPair().getPublic());
+
+        ByteArrayOutputStream signed = new ByteArrayOutputStream();
+        signer.sign(new ByteArrayInputStream(payload), signed);
+        signedPayload = signed.toByteArray();
+    }
+
+    @Benchmark
+    public void sign() throws Exception {
+        signer.sign(new ByteArrayInputStream(payload), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public ValidationReport verify() throws Exception {
+        return verifier.verify(new ByteArrayInputStream(signedPayload));
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import signature.MerkleBatchSigner;
+import signature.SignedBatch;
+import signature.SigningProfile;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing a file drop of purchase orders one by one versus under one Merkle root,
+ * with and without writing the per-document proofs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MerkleBatchSignBenchmark {
+
+    @Param({"100", "1000"})
+    public int documents;
+
+    private SigningProfile profile;
+    private MerkleBatchSigner batchSigner;
+    private List<byte[]> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        profile = SigningProfile.builder()
+                .keyPair(BenchmarkKeys.generate("RSA_2048"))
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+        batchSigner = new MerkleBatchSigner(profile);
+        batch = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            batch.add(Payloads.purchaseOrder("purchase"));
+        }
+    }
+
+    @Benchmark
+    public void signEach(Blackhole blackhole) throws Exception {
+        for (byte[] document : batch) {
+            blackhole.consume(XMLSignatureUtil.sign(document, profile));
+        }
+    }
+
+    @Benchmark
+    public SignedBatch signBatch() throws Exception {
+        return batchSigner.sign(batch);
+    }
+
+    @Benchmark
+    public void signBatchWithProofs(Blackhole blackhole) throws Exception {
+        SignedBatch signed = batchSigner.sign(batch);
+        for (int i = 0; i < signed.size(); i++) {
+            ByteArrayOutputStream proof = new ByteArrayOutputStream(4096);
+            signed.writeProof(i, proof);
+            blackhole.consume(proof);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import signature.DocumentUtil;
+import signature.ReferenceUriStrategy;
+import signature.SigningProfile;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing every line item of an order, with one signature per item versus
+ * {@link XMLSignatureUtil#signElements} sharing signatures between items. Both include building
+ * the order document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiReferenceSignBenchmark {
+
+    @Param({"30", "500"})
+    public int items;
+
+    private SigningProfile profile;
+
+    @Setup
+    public void setUp() throws Exception {
+        profile = SigningProfile.builder()
+                .keyPair(BenchmarkKeys.generate("RSA_2048"))
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+    }
+
+    @Benchmark
+    public Document signEachItem() throws Exception {
+        Document order = createOrder();
+        NodeList nodes = order.getElementsByTagName("Item");
+        for (int i = 0, count = nodes.getLength(); i < count; i++) {
+            XMLSignatureUtil.signInPlace((Element) nodes.item(i), profile);
+        }
+        return order;
+    }
+
+    @Benchmark
+    public Document signElements() throws Exception {
+        return XMLSignatureUtil.signElements(createOrder(), "/Order/Item", profile);
+    }
+
+    private Document createOrder() throws Exception {
+        Document doc = DocumentUtil.createDocument();
+        Element order = doc.createElement("Order");
+        doc.appendChild(order);
+        for (int i = 0; i < items; i++) {
+            Element item = doc.createElement("Item");
+            item.setAttribute("Id", "item-" + i);
+            item.setTextContent("Line item " + i);
+            order.appendChild(item);
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates purchase order payloads of a requested size for benchmarks.
+ * The smallest payload has the same shape and size as the {@code purchase.xml} test resource,
+ * larger payloads repeat its {@code Item} element until the target size is reached.
+ */
+final class Payloads {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<PurchaseOrder>\n";
+
+    private static final String ITEM =
+            "    <Item number=\"130046593231\">\n" +
+            "        <Description>Video Game</Description>\n" +
+            "        <Price>10.29</Price>\n" +
+            "    </Item>\n";
+
+    private static final String FOOTER =
+            "    <Buyer id=\"8492340\">\n" +
+            "        <Name>My Name</Name>\n" +
+            "        <Address>\n" +
+            "            <Street>One Network Drive</Street>\n" +
+            "            <Town>Burlington</Town>\n" +
+            "            <State>MA</State>\n" +
+            "            <Country>United States</Country>\n" +
+            "            <PostalCode>01803</PostalCode>\n" +
+            "        </Address>\n" +
+            "    </Buyer>\n" +
+            "</PurchaseOrder>";
+
+    private Payloads() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Creates a purchase order payload.
+     *
+     * @param size payload size name: {@code purchase} for the test resource size,
+     *             or a number with a {@code KB}/{@code MB} suffix
+     * @return the UTF-8 encoded payload
+     */
+    static byte[] purchaseOrder(String size) {
+        int targetBytes = parseSize(size);
+        StringBuilder sb = new StringBuilder(targetBytes + ITEM.length() + FOOTER.length());
+        sb.append(HEADER);
+        do {
+            sb.append(ITEM);
+        } while (sb.length() + FOOTER.length() < targetBytes);
+        sb.append(FOOTER);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int parseSize(String size) {
+        if ("purchase".equals(size)) {
+            return 0;
+        }
+        String upper = size.toUpperCase();
+        if (upper.endsWith("KB")) {
+            return Integer.parseInt(upper.substring(0, upper.length() - 2)) * 1024;
+        }
+        if (upper.endsWith("MB")) {
+            return Integer.parseInt(upper.substring(0, upper.length() - 2)) * 1024 * 1024;
+        }
+        return Integer.parseInt(upper);
+    }
+}
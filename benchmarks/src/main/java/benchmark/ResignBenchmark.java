@@ -0,0 +1,95 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import signature.DocumentUtil;
+import signature.ReferenceUriStrategy;
+import signature.SigningProfile;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks amending one line item of an order signed by {@link XMLSignatureUtil#signElements}:
+ * {@link XMLSignatureUtil#resign} with and without the changed element versus signing the amended
+ * order afresh. Every invocation amends the item again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResignBenchmark {
+
+    @Param({"30", "500"})
+    public int items;
+
+    private SigningProfile profile;
+    private Document signedOrder;
+    private Element amendedItem;
+    private int amendments;
+
+    @Setup
+    public void setUp() throws Exception {
+        profile = SigningProfile.builder()
+                .keyPair(BenchmarkKeys.generate("RSA_2048"))
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+        signedOrder = XMLSignatureUtil.signElements(createOrder(), "/Order/Item", profile);
+        amendedItem = (Element) signedOrder.getElementsByTagName("Item").item(items / 2);
+    }
+
+    @Benchmark
+    public List<String> resignChangedNodes() throws Exception {
+        amend();
+        return XMLSignatureUtil.resign(signedOrder, profile, List.of(amendedItem));
+    }
+
+    @Benchmark
+    public List<String> resignScan() throws Exception {
+        amend();
+        return XMLSignatureUtil.resign(signedOrder, profile);
+    }
+
+    @Benchmark
+    public Document signAfresh() throws Exception {
+        Document order = createOrder();
+        order.getElementsByTagName("Item").item(items / 2).setTextContent("Amendment " + amendments++);
+        return XMLSignatureUtil.signElements(order, "/Order/Item", profile);
+    }
+
+    private void amend() {
+        amendedItem.setTextContent("Amendment " + amendments++);
+    }
+
+    private Document createOrder() throws Exception {
+        Document doc = DocumentUtil.createDocument();
+        Element order = doc.createElement("Order");
+        doc.appendChild(order);
+        for (int i = 0; i < items; i++) {
+            Element item = doc.createElement("Item");
+            item.setAttribute("Id", "item-" + i);
+            item.setTextContent("Line item " + i);
+            order.appendChild(item);
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,95 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import signature.DocumentUtil;
+import signature.SigningProfile;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link XMLSignatureUtil} signing and validation of whole documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+
+    @Param({"purchase", "64KB", "1MB", "4MB"})
+    public String payloadSize;
+
+    @Param({"RSA_2048", "RSA_3072", "EC_P256", "EC_P384"})
+    public String keyType;
+
+    @Param({"SHA256", "SHA512"})
+    public String digest;
+
+    private KeyPair keyPair;
+    private String digestMethod;
+    private String signatureMethod;
+    private Document unsignedDocument;
+    private Document signedDocument;
+    private SigningProfile profile;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] payload = Payloads.purchaseOrder(payloadSize);
+        keyPair = BenchmarkKeys.generate(keyType);
+        digestMethod = "SHA512".equals(digest) ? DigestMethod.SHA512 : DigestMethod.SHA256;
+        signatureMethod = BenchmarkKeys.signatureMethod(keyType);
+
+        profile = SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(digestMethod)
+                .signatureMethod(signatureMethod)
+                .canonicalizationMethod(CanonicalizationMethod.INCLUSIVE)
+                .build();
+
+        unsignedDocument = DocumentUtil.parseXmlDocument(new ByteArrayInputStream(payload));
+        signedDocument = DocumentUtil.parseXmlDocument(new ByteArrayInputStream(payload));
+        XMLSignatureUtil.sign(signedDocument, null, keyPair, digestMethod, signatureMethod, "",
+                CanonicalizationMethod.INCLUSIVE);
+    }
+
+    @Benchmark
+    public Document sign() throws Exception {
+        Document signed = XMLSignatureUtil.sign(unsignedDocument, null, keyPair, digestMethod,
+                signatureMethod, "", CanonicalizationMethod.INCLUSIVE);
+        // Drop the enveloped signature again so every invocation signs the same content
+        Node root = signed.getDocumentElement();
+        root.removeChild(root.getLastChild());
+        return signed;
+    }
+
+    @Benchmark
+    public Document signWithProfile() throws Exception {
+        Document signed = XMLSignatureUtil.sign(unsignedDocument, profile);
+        Node root = signed.getDocumentElement();
+        root.removeChild(root.getLastChild());
+        return signed;
+    }
+
+    @Benchmark
+    public boolean validate() throws Exception {
+        return XMLSignatureUtil.validate(signedDocument, keyPair.getPublic());
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import signature.DocumentUtil;
+import signature.SigningProfile;
+import signature.StreamingSigner;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing a whole purchase order through DOM versus the streaming signer.
+ * Run with {@code -prof gc} to compare the allocation per signed document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingSignBenchmark {
+
+    @Param({"64KB", "1MB", "10MB"})
+    public String payloadSize;
+
+    private byte[] payload;
+    private SigningProfile profile;
+    private StreamingSigner streamingSigner;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = Payloads.purchaseOrder(payloadSize);
+        profile = SigningProfile.builder()
+                .keyPair(BenchmarkKeys.generate("RSA_2048"))
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+        streamingSigner = new StreamingSigner(profile);
+    }
+
+    @Benchmark
+    public String signDom() throws Exception {
+        return DocumentUtil.asString(XMLSignatureUtil.sign(
+                DocumentUtil.parseXmlDocument(new ByteArrayInputStream(payload)), profile));
+    }
+
+    @Benchmark
+    public void signStreaming() throws Exception {
+        streamingSigner.sign(new ByteArrayInputStream(payload), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import signature.DocumentUtil;
+import signature.SigningProfile;
+import signature.StreamingSigner;
+import signature.StreamingVerifier;
+import signature.ValidationReport;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks verifying a signed purchase order through DOM versus the streaming verifier.
+ * Run with {@code -prof gc} to compare the allocation per verified document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingVerifyBenchmark {
+
+    @Param({"64KB", "1MB", "10MB"})
+    public String payloadSize;
+
+    private KeyPair keyPair;
+    private byte[] signedPayload;
+    private StreamingVerifier streamingVerifier;
+
+    @Setup
+    public void setUp() throws Exception {
+        keyPair = BenchmarkKeys.generate("RSA_2048");
+        SigningProfile profile = SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+        ByteArrayOutputStream signed = new ByteArrayOutputStream();
+        new StreamingSigner(profile).sign(new ByteArrayInputStream(Payloads.purchaseOrder(payloadSize)), signed);
+        signedPayload = signed.toByteArray();
+        streamingVerifier = new StreamingVerifier(keyPair.getPublic());
+    }
+
+    @Benchmark
+    public boolean validateDom() throws Exception {
+        return XMLSignatureUtil.validate(
+                DocumentUtil.parseXmlDocument(new ByteArrayInputStream(signedPayload)), keyPair.getPublic());
+    }
+
+    @Benchmark
+    public ValidationReport validateStreaming() throws Exception {
+        return streamingVerifier.verify(new ByteArrayInputStream(signedPayload));
+    }
+}
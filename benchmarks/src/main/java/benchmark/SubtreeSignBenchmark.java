@@ -0,0 +1,88 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import signature.DocumentUtil;
+import signature.ReferenceUriStrategy;
+import signature.SigningProfile;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing the first {@code Item} of a purchase order, by copying it into a
+ * temporary document versus signing it in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubtreeSignBenchmark {
+
+    private static final String ITEM_ID = "130046593231";
+
+    @Param({"purchase", "1MB"})
+    public String payloadSize;
+
+    private KeyPair keyPair;
+    private String signatureMethod;
+    private SigningProfile profile;
+    private Document document;
+
+    @Setup
+    public void setUp() throws Exception {
+        keyPair = BenchmarkKeys.generate("RSA_2048");
+        signatureMethod = BenchmarkKeys.signatureMethod("RSA_2048");
+        profile = SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(signatureMethod)
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("number"))
+                .build();
+        document = DocumentUtil.parseXmlDocument(new ByteArrayInputStream(Payloads.purchaseOrder(payloadSize)));
+    }
+
+    @Benchmark
+    public Document signByCopy() throws Exception {
+        Element item = firstItem();
+        item.setIdAttribute("number", true);
+        XMLSignatureUtil.sign(document, item, null, keyPair, DigestMethod.SHA256, signatureMethod,
+                "#" + ITEM_ID, null, CanonicalizationMethod.EXCLUSIVE);
+        removeSignature();
+        return document;
+    }
+
+    @Benchmark
+    public Document signInPlace() throws Exception {
+        XMLSignatureUtil.signInPlace(firstItem(), profile);
+        removeSignature();
+        return document;
+    }
+
+    private Element firstItem() {
+        return (Element) document.getElementsByTagName("Item").item(0);
+    }
+
+    private void removeSignature() {
+        Element item = firstItem();
+        item.removeChild(item.getLastChild());
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import com.alibaba.fastjson2.JSON;
+import demo.CompanySerializer;
+import demo.TestDataFactory;
+import demo.XmlJsonTranscoder;
+import model.Company;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks XML to JSON through a Company object against the streaming transcoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranscodeBenchmark {
+
+    /** Number of websites in the company. */
+    @Param({"3", "10000"})
+    public int websites;
+
+    private CompanySerializer serializer;
+    private XmlJsonTranscoder transcoder;
+    private String xml;
+    private byte[] xmlBytes;
+
+    @Setup
+    public void setUp() {
+        serializer = CompanySerializer.shared();
+        transcoder = new XmlJsonTranscoder();
+        Company company = TestDataFactory.createCompany();
+        String[] sites = new String[websites];
+        for (int i = 0; i < websites; i++) {
+            sites[i] = "http://site" + i + ".example";
+        }
+        company.setWebsites(sites);
+        xml = serializer.toXml(company);
+        xmlBytes = xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String objectToJettison() {
+        return serializer.toJettisonJson(serializer.fromXml(xml));
+    }
+
+    @Benchmark
+    public String objectToFastjson() {
+        return JSON.toJSONString(serializer.fromXml(xml));
+    }
+
+    @Benchmark
+    public String transcode() throws Exception {
+        return transcoder.transcode(xml);
+    }
+
+    @Benchmark
+    public void transcodeStream() throws Exception {
+        transcoder.transcode(new ByteArrayInputStream(xmlBytes), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import signature.DocumentUtil;
+import signature.SigningProfile;
+import signature.ValidationReport;
+import signature.VerificationCache;
+import signature.XMLSignatureUtil;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks validating a resent document with and without a {@link VerificationCache} hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerificationCacheBenchmark {
+
+    @Param({"purchase", "64KB", "1MB"})
+    public String payloadSize;
+
+    private KeyPair keyPair;
+    private byte[] signed;
+    private VerificationCache cache;
+
+    @Setup
+    public void setUp() throws Exception {
+        keyPair = BenchmarkKeys.generate("RSA_2048");
+        SigningProfile profile = SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(BenchmarkKeys.signatureMethod("RSA_2048"))
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+        signed = XMLSignatureUtil.sign(Payloads.purchaseOrder(payloadSize), profile);
+        cache = VerificationCache.builder().build();
+        cache.validate(signed, keyPair.getPublic());
+    }
+
+    @Benchmark
+    public ValidationReport validate() throws Exception {
+        return XMLSignatureUtil.validateDetailed(DocumentUtil.parseXmlDocument(signed), keyPair.getPublic());
+    }
+
+    @Benchmark
+    public ValidationReport validateCached() {
+        return cache.validate(signed, keyPair.getPublic());
+    }
+}
@@ -0,0 +1,42 @@
+package demo;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import model.Address;
+
+/**
+ * Reflection-free converter for {@link Address}, writing the same
+ * {@code <address city="...">street</address>} shape as the annotated
+ * {@code ToAttributedValueConverter}.
+ */
+final class AddressConverter implements Converter {
+
+    private static final String CITY = "city";
+
+    @Override
+    public boolean canConvert(@SuppressWarnings("rawtypes") Class type) {
+        return type == Address.class;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        Address address = (Address) source;
+        if (address.getCity() != null) {
+            writer.addAttribute(CITY, address.getCity());
+        }
+        if (address.getStreet() != null) {
+            writer.setValue(address.getStreet());
+        }
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        Address address = new Address();
+        address.setCity(reader.getAttribute(CITY));
+        address.setStreet(reader.getValue());
+        return address;
+    }
+}
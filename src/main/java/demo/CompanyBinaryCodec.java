@@ -0,0 +1,276 @@
+package demo;
+
+import model.Address;
+import model.Company;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding of {@link Company} and {@link Address}, for caching and shipping
+ * objects between services where the XML form is too large and too slow to parse.
+ * <p>
+ * Layout, all integers as unsigned LEB128 varints:
+ * <pre>
+ * document := 'C' 'B' version(1 byte) object
+ * object   := tag(1 byte) bodyLength body
+ * company  := id(zigzag) string(name) websites (0 | 1 + object(address))
+ * address  := string(street) string(city)
+ * websites := 0 for null | count + 1, then count strings
+ * string   := 0 for null | length + 1, then UTF-8 bytes
+ * </pre>
+ * The version changes only for incompatible layouts. Fields are only ever appended to a body, and
+ * readers skip what is left of a body after the fields they know, so older readers accept newer
+ * data. As with the XStream whitelist, only the two model types can be decoded: any other tag is
+ * rejected, and no class is looked up from the input. Lengths and counts are checked against the
+ * remaining input before anything is allocated. Instances are stateless and thread-safe.
+ */
+public final class CompanyBinaryCodec {
+
+    /** Current layout version. */
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'C';
+    private static final byte MAGIC_1 = 'B';
+    private static final int TAG_COMPANY = 1;
+    private static final int TAG_ADDRESS = 2;
+    /** A varint of an int never takes more than five bytes. */
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * Encodes a company.
+     */
+    public byte[] encode(Company company) {
+        if (company == null) {
+            throw new IllegalArgumentException("company must not be null");
+        }
+        Output out = new Output();
+        out.writeByte(MAGIC_0);
+        out.writeByte(MAGIC_1);
+        out.writeByte(VERSION);
+        writeCompany(out, company);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a company written by {@link #encode(Company)}.
+     *
+     * @throws IllegalArgumentException if the input is not a company of a supported version,
+     *                                  or is truncated or malformed
+     */
+    public Company decode(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("bytes must not be null");
+        }
+        Input in = new Input(bytes, 0, bytes.length);
+        if (in.readByte() != MAGIC_0 || in.readByte() != MAGIC_1) {
+            throw new IllegalArgumentException("Not a binary company document");
+        }
+        int version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported binary company version: " + version);
+        }
+        Company company = readCompany(in.object(TAG_COMPANY));
+        if (in.remaining() > 0) {
+            throw new IllegalArgumentException("Trailing bytes after company: " + in.remaining());
+        }
+        return company;
+    }
+
+    private static void writeCompany(Output out, Company company) {
+        int body = out.startObject(TAG_COMPANY);
+        out.writeVarint((company.getId() << 1) ^ (company.getId() >> 31));
+        out.writeString(company.getName());
+        String[] websites = company.getWebsites();
+        if (websites == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(websites.length + 1);
+            for (String website : websites) {
+                out.writeString(website);
+            }
+        }
+        Address address = company.getAddress();
+        if (address == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(1);
+            writeAddress(out, address);
+        }
+        out.endObject(body);
+    }
+
+    private static void writeAddress(Output out, Address address) {
+        int body = out.startObject(TAG_ADDRESS);
+        out.writeString(address.getStreet());
+        out.writeString(address.getCity());
+        out.endObject(body);
+    }
+
+    private static Company readCompany(Input in) {
+        Company company = new Company();
+        int id = in.readVarint();
+        company.setId((id >>> 1) ^ -(id & 1));
+        company.setName(in.readString());
+        int websites = in.readVarint();
+        if (websites != 0) {
+            // Every website takes at least one byte, which bounds the array before it is allocated
+            in.require(websites - 1);
+            String[] values = new String[websites - 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readString();
+            }
+            company.setWebsites(values);
+        }
+        if (in.readVarint() != 0) {
+            company.setAddress(readAddress(in.object(TAG_ADDRESS)));
+        }
+        return company;
+    }
+
+    private static Address readAddress(Input in) {
+        Address address = new Address();
+        address.setStreet(in.readString());
+        address.setCity(in.readString());
+        return address;
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    private static final class Output {
+
+        private byte[] buffer = new byte[128];
+        private int position;
+
+        private void ensure(int count) {
+            if (position + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + count));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarint(int value) {
+            ensure(MAX_VARINT_BYTES);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        /**
+         * Writes the tag and leaves room for the longest body length.
+         *
+         * @return the position of the body
+         */
+        private int startObject(int tag) {
+            writeByte(tag);
+            ensure(MAX_VARINT_BYTES);
+            position += MAX_VARINT_BYTES;
+            return position;
+        }
+
+        /**
+         * Writes the body length in front of the body and moves the body up to close the gap.
+         */
+        private void endObject(int body) {
+            int length = position - body;
+            int lengthStart = body - MAX_VARINT_BYTES;
+            position = lengthStart;
+            writeVarint(length);
+            System.arraycopy(buffer, body, buffer, position, length);
+            position += length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    /**
+     * Bounds checked reader over a slice of the input.
+     */
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+        private final int limit;
+
+        private Input(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        private int remaining() {
+            return limit - position;
+        }
+
+        private void require(int count) {
+            if (count < 0 || count > remaining()) {
+                throw new IllegalArgumentException("Truncated binary company data");
+            }
+        }
+
+        private int readByte() {
+            require(1);
+            return buffer[position++] & 0xFF;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary company data");
+        }
+
+        private String readString() {
+            int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            require(length - 1);
+            String value = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+
+        /**
+         * Reads an object header and returns a reader over its body; the body, including fields
+         * this version does not know, is consumed from this reader.
+         */
+        private Input object(int expectedTag) {
+            int tag = readByte();
+            if (tag != expectedTag) {
+                throw new IllegalArgumentException("Type tag not allowed here: " + tag);
+            }
+            int length = readVarint();
+            require(length);
+            Input body = new Input(buffer, position, position + length);
+            position += length;
+            return body;
+        }
+    }
+}
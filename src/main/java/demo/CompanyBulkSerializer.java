@@ -0,0 +1,315 @@
+package demo;
+
+import com.thoughtworks.xstream.XStream;
+import model.Company;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Writes and reads large collections of {@link Company} objects as one document, one company at a
+ * time, so memory stays flat regardless of the number of companies.
+ * <p>
+ * XML goes through XStream's object streams: a {@code <companies>} root holding one
+ * {@code <company>} per object, read back lazily by a pull parser. JSON is an array of Jettison
+ * documents, {@code [{"company":{...}},...]}; reading splits the array one element at a time
+ * before handing each element to Jettison. The writers close the output stream once the document
+ * is complete; the streams returned by the readers close the input stream when they are closed,
+ * so use them in try-with-resources. Instances are thread-safe.
+ */
+public final class CompanyBulkSerializer {
+
+    private static final String ROOT = "companies";
+
+    private final XStream xmlXStream;
+    private final XStream jettisonXStream;
+
+    /**
+     * Creates a bulk serializer using the shared XStream configuration.
+     */
+    public CompanyBulkSerializer() {
+        this(CompanySerializer.shared());
+    }
+
+    public CompanyBulkSerializer(CompanySerializer serializer) {
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer must not be null");
+        }
+        this.xmlXStream = serializer.xmlXStream();
+        this.jettisonXStream = serializer.jettisonXStream();
+    }
+
+    /**
+     * Writes companies as one XML document and closes the output stream.
+     *
+     * @return the number of companies written
+     */
+    public long writeXml(Stream<Company> companies, OutputStream out) throws IOException {
+        return writeXml(companies.iterator(), out);
+    }
+
+    /**
+     * Writes companies as one XML document and closes the output stream. If a company cannot be
+     * obtained or written, the output is closed without ending the root element, so that readers
+     * fail on it instead of taking it for a complete export.
+     *
+     * @return the number of companies written
+     */
+    public long writeXml(Iterator<Company> companies, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+        ObjectOutputStream objects = xmlXStream.createObjectOutputStream(writer, ROOT);
+        try {
+            while (companies.hasNext()) {
+                objects.writeObject(companies.next());
+                count++;
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // Closing the object stream would end the root element and make a failed export look complete
+            try {
+                // Flushing passes on what XStream buffered without ending any element
+                objects.flush();
+                writer.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        objects.close();
+        return count;
+    }
+
+    /**
+     * Reads the companies of an XML document written by {@link #writeXml(Iterator, OutputStream)},
+     * parsing each one when the stream asks for it.
+     *
+     * @return a lazy stream that closes the input stream when closed
+     */
+    public Stream<Company> readXml(InputStream in) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        ObjectInputStream objects = xmlXStream.createObjectInputStream(reader);
+        Iterator<Company> iterator = new Iterator<>() {
+
+            private Company next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        next = (Company) objects.readObject();
+                    } catch (EOFException e) {
+                        done = true;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (ClassNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Company next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Company company = next;
+                next = null;
+                return company;
+            }
+        };
+        return lazyStream(iterator, objects);
+    }
+
+    /**
+     * Writes companies as a JSON array of Jettison documents and closes the output stream.
+     *
+     * @return the number of companies written
+     */
+    public long writeJettisonJson(Stream<Company> companies, OutputStream out) throws IOException {
+        return writeJettisonJson(companies.iterator(), out);
+    }
+
+    /**
+     * Writes companies as a JSON array of Jettison documents and closes the output stream.
+     *
+     * @return the number of companies written
+     */
+    public long writeJettisonJson(Iterator<Company> companies, OutputStream out) throws IOException {
+        long count = 0;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write('[');
+            while (companies.hasNext()) {
+                if (count++ > 0) {
+                    writer.write(',');
+                }
+                jettisonXStream.toXML(companies.next(), writer);
+            }
+            writer.write(']');
+        }
+        return count;
+    }
+
+    /**
+     * Reads the companies of a JSON array written by
+     * {@link #writeJettisonJson(Iterator, OutputStream)}, one array element at a time.
+     *
+     * @return a lazy stream that closes the input stream when closed
+     * @throws IllegalArgumentException from the stream if the input is not a JSON array of objects
+     */
+    public Stream<Company> readJettisonJson(InputStream in) {
+        JsonArrayElements elements = new JsonArrayElements(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        Iterator<Company> iterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return elements.hasNext();
+            }
+
+            @Override
+            public Company next() {
+                return (Company) jettisonXStream.fromXML(elements.next());
+            }
+        };
+        return lazyStream(iterator, elements.reader);
+    }
+
+    private static Stream<Company> lazyStream(Iterator<Company> iterator, Closeable source) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        source.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Splits a JSON array into the text of its object elements, keeping only the current element
+     * in memory. Only tracks nesting and strings; each element is parsed by Jettison afterwards.
+     */
+    private static final class JsonArrayElements implements Iterator<String> {
+
+        private final Reader reader;
+        private final StringBuilder element = new StringBuilder();
+        private boolean started;
+        private boolean finished;
+        private String next;
+
+        private JsonArrayElements(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = readElement();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            return result;
+        }
+
+        private String readElement() throws IOException {
+            int c = skipWhitespace();
+            if (!started) {
+                if (c != '[') {
+                    throw malformed("expected '['");
+                }
+                started = true;
+                c = skipWhitespace();
+                if (c == ']') {
+                    finished = true;
+                    return null;
+                }
+            } else if (c == ']') {
+                finished = true;
+                return null;
+            } else if (c != ',') {
+                throw malformed("expected ',' or ']'");
+            } else {
+                c = skipWhitespace();
+            }
+            if (c != '{') {
+                throw malformed("expected an object");
+            }
+
+            element.setLength(0);
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            do {
+                if (c < 0) {
+                    throw malformed("unexpected end of input");
+                }
+                element.append((char) c);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                if (depth > 0) {
+                    c = reader.read();
+                }
+            } while (depth > 0);
+            return element.toString();
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c;
+            do {
+                c = reader.read();
+            } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+            return c;
+        }
+
+        private IllegalArgumentException malformed(String reason) {
+            finished = true;
+            return new IllegalArgumentException("Malformed JSON array of companies: " + reason);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package demo;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.converters.reflection.AbstractReflectionConverter.UnknownFieldException;
+import com.thoughtworks.xstream.io.ExtendedHierarchicalStreamWriterHelper;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.mapper.Mapper;
+import model.Address;
+import model.Company;
+
+import java.util.Arrays;
+
+/**
+ * Reflection-free converter for {@link Company}.
+ * <p>
+ * Reads and writes the fields through their accessors and produces the same XML (and Jettison
+ * JSON) as the annotation driven reflection converter: {@code id} as attribute, null fields
+ * omitted, {@code websites} as a {@code String[]} of {@code <string>}/{@code <null/>} items.
+ * Element names are resolved through the mapper once, when the converter is registered.
+ */
+final class CompanyConverter implements Converter {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String WEBSITES = "websites";
+    private static final String ADDRESS = "address";
+
+    private final Mapper mapper;
+    private final String stringItem;
+    private final String nullItem;
+    private final String classAttribute;
+
+    CompanyConverter(Mapper mapper) {
+        this.mapper = mapper;
+        this.stringItem = mapper.serializedClass(String.class);
+        this.nullItem = mapper.serializedClass(null);
+        this.classAttribute = mapper.aliasForSystemAttribute("class");
+    }
+
+    @Override
+    public boolean canConvert(@SuppressWarnings("rawtypes") Class type) {
+        return type == Company.class;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        Company company = (Company) source;
+        writer.addAttribute(ID, Integer.toString(company.getId()));
+
+        if (company.getName() != null) {
+            writer.startNode(NAME);
+            writer.setValue(company.getName());
+            writer.endNode();
+        }
+
+        String[] websites = company.getWebsites();
+        if (websites != null) {
+            startArrayNode(writer, WEBSITES, String[].class);
+            for (String website : websites) {
+                if (website == null) {
+                    writer.startNode(nullItem);
+                } else {
+                    writer.startNode(stringItem);
+                    writer.setValue(website);
+                }
+                writer.endNode();
+            }
+            writer.endNode();
+        }
+
+        Address address = company.getAddress();
+        if (address != null) {
+            writer.startNode(ADDRESS);
+            if (address.getClass() != Address.class && classAttribute != null) {
+                writer.addAttribute(classAttribute, mapper.serializedClass(address.getClass()));
+            }
+            context.convertAnother(address);
+            writer.endNode();
+        }
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        Company company = new Company();
+        String id = reader.getAttribute(ID);
+        if (id != null) {
+            company.setId(Integer.parseInt(id));
+        }
+
+        while (reader.hasMoreChildren()) {
+            reader.moveDown();
+            String field = reader.getNodeName();
+            switch (field) {
+                case NAME -> company.setName(reader.getValue());
+                case WEBSITES -> company.setWebsites(readWebsites(reader, context, company));
+                case ADDRESS -> company.setAddress(readAddress(reader, context, company));
+                default -> throw new UnknownFieldException(Company.class.getName(), field);
+            }
+            reader.moveUp();
+        }
+        return company;
+    }
+
+    /**
+     * Only the array node keeps its class hint: Jettison needs it to render {@code websites} as a
+     * JSON array, and XStream 1.4 offers no non-deprecated way to pass one.
+     */
+    @SuppressWarnings("deprecation")
+    private static void startArrayNode(HierarchicalStreamWriter writer, String name, Class<?> arrayType) {
+        ExtendedHierarchicalStreamWriterHelper.startNode(writer, name, arrayType);
+    }
+
+    private String[] readWebsites(HierarchicalStreamReader reader, UnmarshallingContext context, Company company) {
+        String[] websites = new String[4];
+        int count = 0;
+        while (reader.hasMoreChildren()) {
+            reader.moveDown();
+            String item = reader.getNodeName();
+            String website;
+            if (item.equals(stringItem)) {
+                website = reader.getValue();
+            } else if (item.equals(nullItem)) {
+                website = null;
+            } else {
+                // Anything else goes through the mapper, so the type permissions still apply
+                website = (String) context.convertAnother(company, mapper.realClass(item));
+            }
+            reader.moveUp();
+            if (count == websites.length) {
+                websites = Arrays.copyOf(websites, count * 2);
+            }
+            websites[count++] = website;
+        }
+        return count == websites.length ? websites : Arrays.copyOf(websites, count);
+    }
+
+    private Address readAddress(HierarchicalStreamReader reader, UnmarshallingContext context, Company company) {
+        String type = classAttribute == null ? null : reader.getAttribute(classAttribute);
+        Class<?> addressType = type == null ? Address.class : mapper.realClass(type);
+        return (Address) context.convertAnother(company, addressType);
+    }
+}
@@ -0,0 +1,331 @@
+package demo;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.json.JettisonMappedXmlDriver;
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+import com.thoughtworks.xstream.security.ForbiddenClassException;
+import com.thoughtworks.xstream.security.NoTypePermission;
+import metrics.Metrics;
+import model.Address;
+import model.Company;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Thread-safe XML and Jettison JSON conversions of {@link Company} objects.
+ * <p>
+ * Creating and configuring an XStream (annotation processing, type permissions) costs far more
+ * than a conversion of a small object, so both flavours are built once. XStream instances are
+ * thread-safe once configured; a serializer is meant to be shared, e.g. through {@link #shared()}.
+ * <p>
+ * By default the model is converted by the dedicated {@link CompanyConverter} and
+ * {@link AddressConverter} instead of XStream's reflection converters; the output is identical.
+ * {@link #reflective()} keeps the annotation driven reflection path for comparison.
+ * <p>
+ * Besides the {@code String} methods every conversion has a UTF-8 {@code byte[]},
+ * {@link ByteBuffer} or stream variant. XStream's readers and writers work on chars, so the
+ * in-memory variants go through a {@code String} of the whole message, encoded or decoded once;
+ * only the stream variants convert as they read or write. Streams passed in are not closed.
+ * <p>
+ * Every conversion is recorded as a {@link Metrics#CONVERT} operation named after the method.
+ */
+public final class CompanySerializer {
+
+    private static final CompanySerializer SHARED = new CompanySerializer();
+
+    private static final String TO_XML = "toXml";
+    private static final String FROM_XML = "fromXml";
+    private static final String TO_JETTISON_JSON = "toJettisonJson";
+    private static final String FROM_JETTISON_JSON = "fromJettisonJson";
+    private static final String TO_BINARY = "toBinary";
+    private static final String FROM_BINARY = "fromBinary";
+
+    private final XStream xmlXStream;
+    private final XStream jettisonXStream;
+    private final CompanyBinaryCodec binaryCodec = new CompanyBinaryCodec();
+
+    /**
+     * Creates a serializer with its own XStream instances.
+     */
+    public CompanySerializer() {
+        this(true);
+    }
+
+    private CompanySerializer(boolean dedicatedConverters) {
+        this.xmlXStream = configure(new XStream(), dedicatedConverters);
+        this.jettisonXStream = configure(new XStream(new JettisonMappedXmlDriver()), dedicatedConverters);
+    }
+
+    /**
+     * @return the serializer shared by all callers of the default configuration
+     */
+    public static CompanySerializer shared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates a serializer that converts the model with XStream's reflection converters.
+     *
+     * @return a serializer producing the same output as the default one, only slower
+     */
+    public static CompanySerializer reflective() {
+        return new CompanySerializer(false);
+    }
+
+    /**
+     * Converts a Company object to XML.
+     */
+    public String toXml(Company company) {
+        long start = Metrics.start();
+        String xml = xmlXStream.toXML(company);
+        Metrics.success(Metrics.CONVERT, TO_XML, start, 0);
+        return xml;
+    }
+
+    /**
+     * Converts XML to a Company object.
+     */
+    public Company fromXml(String xml) {
+        return fromXml(xml, 0);
+    }
+
+    /**
+     * Writes a Company object as UTF-8 XML.
+     *
+     * @param indent whether to indent the output as {@link #toXml(Company)} does; compact output
+     *               is smaller and faster to write
+     */
+    public void toXml(Company company, OutputStream out, boolean indent) {
+        long start = Metrics.start();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        if (indent) {
+            xmlXStream.toXML(company, writer);
+        } else {
+            HierarchicalStreamWriter compact = new CompactWriter(writer);
+            xmlXStream.marshal(company, compact);
+            compact.flush();
+        }
+        Metrics.success(Metrics.CONVERT, TO_XML, start, 0);
+    }
+
+    /**
+     * Converts a Company object to UTF-8 XML.
+     *
+     * @see #toXml(Company, OutputStream, boolean)
+     */
+    public byte[] toXmlBytes(Company company, boolean indent) {
+        long start = Metrics.start();
+        // XStream writes chars; for a message this small an OutputStreamWriter's 8 KB encoder
+        // buffer costs more than encoding the finished text once
+        StringWriter writer = new StringWriter(512);
+        if (indent) {
+            xmlXStream.toXML(company, writer);
+        } else {
+            xmlXStream.marshal(company, new CompactWriter(writer));
+        }
+        byte[] xml = writer.toString().getBytes(StandardCharsets.UTF_8);
+        Metrics.success(Metrics.CONVERT, TO_XML, start, xml.length);
+        return xml;
+    }
+
+    /**
+     * Reads a Company object from XML; the encoding is taken from the XML declaration and
+     * defaults to UTF-8.
+     */
+    public Company fromXml(InputStream xml) {
+        long start = Metrics.start();
+        try {
+            Company company = (Company) xmlXStream.fromXML(xml);
+            Metrics.success(Metrics.CONVERT, FROM_XML, start, 0);
+            return company;
+        } catch (RuntimeException ex) {
+            Metrics.failure(Metrics.CONVERT, FROM_XML, start, failureReason(ex));
+            throw ex;
+        }
+    }
+
+    /**
+     * Converts UTF-8 XML bytes to a Company object.
+     */
+    public Company fromXml(byte[] xml) {
+        // XStream parses chars; decoding once is cheaper than an InputStreamReader's 8 KB buffer
+        return fromXml(new String(xml, StandardCharsets.UTF_8), xml.length);
+    }
+
+    /**
+     * Converts the remaining UTF-8 XML bytes of a buffer to a Company object. The position of
+     * the buffer is not changed.
+     */
+    public Company fromXml(ByteBuffer xml) {
+        return fromXml(decode(xml), xml.remaining());
+    }
+
+    /**
+     * Converts a Company object to JSON in the Jettison mapped convention.
+     */
+    public String toJettisonJson(Company company) {
+        long start = Metrics.start();
+        String json = jettisonXStream.toXML(company);
+        Metrics.success(Metrics.CONVERT, TO_JETTISON_JSON, start, 0);
+        return json;
+    }
+
+    /**
+     * Converts Jettison JSON to a Company object.
+     */
+    public Company fromJettisonJson(String json) {
+        return fromJettisonJson(json, 0);
+    }
+
+    /**
+     * Writes a Company object as UTF-8 JSON in the Jettison mapped convention.
+     */
+    public void toJettisonJson(Company company, OutputStream out) {
+        long start = Metrics.start();
+        jettisonXStream.toXML(company, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Metrics.success(Metrics.CONVERT, TO_JETTISON_JSON, start, 0);
+    }
+
+    /**
+     * Converts a Company object to UTF-8 JSON in the Jettison mapped convention.
+     */
+    public byte[] toJettisonJsonBytes(Company company) {
+        long start = Metrics.start();
+        byte[] json = jettisonXStream.toXML(company).getBytes(StandardCharsets.UTF_8);
+        Metrics.success(Metrics.CONVERT, TO_JETTISON_JSON, start, json.length);
+        return json;
+    }
+
+    /**
+     * Reads a Company object from UTF-8 Jettison JSON.
+     */
+    public Company fromJettisonJson(InputStream json) {
+        long start = Metrics.start();
+        try {
+            Company company = (Company) jettisonXStream.fromXML(new InputStreamReader(json, StandardCharsets.UTF_8));
+            Metrics.success(Metrics.CONVERT, FROM_JETTISON_JSON, start, 0);
+            return company;
+        } catch (RuntimeException ex) {
+            Metrics.failure(Metrics.CONVERT, FROM_JETTISON_JSON, start, failureReason(ex));
+            throw ex;
+        }
+    }
+
+    /**
+     * Converts UTF-8 Jettison JSON bytes to a Company object.
+     */
+    public Company fromJettisonJson(byte[] json) {
+        return fromJettisonJson(new String(json, StandardCharsets.UTF_8), json.length);
+    }
+
+    /**
+     * Converts the remaining UTF-8 Jettison JSON bytes of a buffer to a Company object. The
+     * position of the buffer is not changed.
+     */
+    public Company fromJettisonJson(ByteBuffer json) {
+        return fromJettisonJson(decode(json), json.remaining());
+    }
+
+    /**
+     * Converts a Company object to the compact binary form of {@link CompanyBinaryCodec}.
+     */
+    public byte[] toBinary(Company company) {
+        long start = Metrics.start();
+        byte[] bytes = binaryCodec.encode(company);
+        Metrics.success(Metrics.CONVERT, TO_BINARY, start, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * Converts the binary form to a Company object.
+     *
+     * @throws IllegalArgumentException if the bytes are not a supported binary company
+     */
+    public Company fromBinary(byte[] bytes) {
+        long start = Metrics.start();
+        try {
+            Company company = binaryCodec.decode(bytes);
+            Metrics.success(Metrics.CONVERT, FROM_BINARY, start, bytes.length);
+            return company;
+        } catch (RuntimeException ex) {
+            Metrics.failure(Metrics.CONVERT, FROM_BINARY, start, failureReason(ex));
+            throw ex;
+        }
+    }
+
+    XStream xmlXStream() {
+        return xmlXStream;
+    }
+
+    XStream jettisonXStream() {
+        return jettisonXStream;
+    }
+
+    private Company fromXml(String xml, long bytes) {
+        long start = Metrics.start();
+        try {
+            Company company = (Company) xmlXStream.fromXML(xml);
+            Metrics.success(Metrics.CONVERT, FROM_XML, start, bytes);
+            return company;
+        } catch (RuntimeException ex) {
+            Metrics.failure(Metrics.CONVERT, FROM_XML, start, failureReason(ex));
+            throw ex;
+        }
+    }
+
+    private Company fromJettisonJson(String json, long bytes) {
+        long start = Metrics.start();
+        try {
+            Company company = (Company) jettisonXStream.fromXML(json);
+            Metrics.success(Metrics.CONVERT, FROM_JETTISON_JSON, start, bytes);
+            return company;
+        } catch (RuntimeException ex) {
+            Metrics.failure(Metrics.CONVERT, FROM_JETTISON_JSON, start, failureReason(ex));
+            throw ex;
+        }
+    }
+
+    private static String failureReason(RuntimeException ex) {
+        if (ex instanceof ForbiddenClassException) {
+            return "forbidden-type";
+        }
+        if (ex instanceof XStreamException) {
+            return "malformed";
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return "invalid-binary";
+        }
+        return "other";
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(),
+                    StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+    }
+
+    private static XStream configure(XStream xstream, boolean dedicatedConverters) {
+        xstream.processAnnotations(Company.class);
+        xstream.processAnnotations(Address.class);
+        // Security: Use explicit type whitelist to prevent RCE attacks
+        xstream.addPermission(NoTypePermission.NONE);
+        xstream.allowTypes(new Class<?>[] { Company.class, Address.class });
+        xstream.allowTypesByWildcard(new String[] { "java.lang.*", "java.util.*" });
+        if (dedicatedConverters) {
+            xstream.registerConverter(new CompanyConverter(xstream.getMapper()), XStream.PRIORITY_VERY_HIGH);
+            xstream.registerConverter(new AddressConverter(), XStream.PRIORITY_VERY_HIGH);
+        }
+        return xstream;
+    }
+}
@@ -1,22 +1,43 @@
 package demo;
 
 import com.alibaba.fastjson2.JSON;
-import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.json.JettisonMappedXmlDriver;
-import com.thoughtworks.xstream.security.NoTypePermission;
-import model.Address;
+import metrics.Metrics;
 import model.Company;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
 /**
  * Demonstrates XML and JSON serialization/deserialization using XStream.
  * Shows bidirectional conversion: Java Object <-> XML <-> JSON
+ * <p>
+ * The byte and stream overloads read and write UTF-8. The stream overloads never hold the whole
+ * message as text, the byte overloads decode or encode it once, as {@link CompanySerializer}
+ * explains. Conversions are recorded in {@link Metrics} when metrics are enabled.
  */
 public class XmlJsonDemo {
 
     private static final Logger logger = LoggerFactory.getLogger(XmlJsonDemo.class);
 
+    private final CompanySerializer serializer;
+    private final XmlJsonTranscoder transcoder = new XmlJsonTranscoder();
+
+    /**
+     * Creates a demo using the shared, preconfigured XStream instances.
+     */
+    public XmlJsonDemo() {
+        this(CompanySerializer.shared());
+    }
+
+    public XmlJsonDemo(CompanySerializer serializer) {
+        this.serializer = serializer;
+    }
+
     public static void main(String[] args) {
         XmlJsonDemo demo = new XmlJsonDemo();
         demo.runDemo();
@@ -48,61 +69,135 @@ public class XmlJsonDemo {
         // JSON -> Java Object (using XStream + Jettison)
         Company fromJson = convertFromJettisonJson(jettison);
         logger.info("JSON -> Java:\n{}", fromJson);
+
+        // Java Object -> binary -> Java Object
+        byte[] binary = convertToBinary(company);
+        logger.info("Java -> binary: {} bytes (XML: {} chars)", binary.length, xml.length());
+        logger.info("binary -> Java:\n{}\n", convertFromBinary(binary));
+
+        // XML -> JSON, streamed without an object in between
+        try {
+            logger.info("XML -> JSON (streaming):\n{}", convertXmlToJson(xml));
+        } catch (XMLStreamException e) {
+            logger.error("Streaming XML -> JSON failed", e);
+        }
     }
 
     /**
      * Converts a Company object to XML using XStream.
      */
     public String convertToXml(Company company) {
-        XStream xstream = createXStream();
-        return xstream.toXML(company);
+        return serializer.toXml(company);
     }
 
     /**
      * Converts XML string to Company object using XStream.
      */
     public Company convertFromXml(String xml) {
-        XStream xstream = createXStream();
-        return (Company) xstream.fromXML(xml);
+        return serializer.fromXml(xml);
+    }
+
+    /**
+     * Writes a Company object as UTF-8 XML, optionally without indentation.
+     */
+    public void convertToXml(Company company, OutputStream out, boolean indent) {
+        serializer.toXml(company, out, indent);
+    }
+
+    /**
+     * Converts a Company object to UTF-8 XML, optionally without indentation.
+     */
+    public byte[] convertToXmlBytes(Company company, boolean indent) {
+        return serializer.toXmlBytes(company, indent);
+    }
+
+    /**
+     * Converts UTF-8 XML bytes to a Company object.
+     */
+    public Company convertFromXml(byte[] xml) {
+        return serializer.fromXml(xml);
+    }
+
+    /**
+     * Converts the remaining UTF-8 XML bytes of a buffer to a Company object.
+     */
+    public Company convertFromXml(ByteBuffer xml) {
+        return serializer.fromXml(xml);
     }
 
     /**
      * Converts a Company object to JSON using FastJSON.
      */
     public String convertToJson(Company company) {
-        return JSON.toJSONString(company);
+        long start = Metrics.start();
+        String json = JSON.toJSONString(company);
+        Metrics.success(Metrics.CONVERT, "toJson", start, 0);
+        return json;
+    }
+
+    /**
+     * Converts a Company object to UTF-8 JSON using FastJSON.
+     */
+    public byte[] convertToJsonBytes(Company company) {
+        long start = Metrics.start();
+        byte[] json = JSON.toJSONBytes(company);
+        Metrics.success(Metrics.CONVERT, "toJson", start, json.length);
+        return json;
     }
 
     /**
      * Converts a Company object to JSON using XStream with Jettison driver.
      */
     public String convertToJettisonJson(Company company) {
-        XStream xstream = new XStream(new JettisonMappedXmlDriver());
-        configureXStream(xstream);
-        return xstream.toXML(company);
+        return serializer.toJettisonJson(company);
     }
 
     /**
      * Converts Jettison JSON string to Company object.
      */
     public Company convertFromJettisonJson(String json) {
-        XStream xstream = new XStream(new JettisonMappedXmlDriver());
-        configureXStream(xstream);
-        return (Company) xstream.fromXML(json);
+        return serializer.fromJettisonJson(json);
+    }
+
+    /**
+     * Writes a Company object as UTF-8 JSON using XStream with Jettison driver.
+     */
+    public void convertToJettisonJson(Company company, OutputStream out) {
+        serializer.toJettisonJson(company, out);
+    }
+
+    /**
+     * Converts UTF-8 Jettison JSON bytes to a Company object.
+     */
+    public Company convertFromJettisonJson(byte[] json) {
+        return serializer.fromJettisonJson(json);
     }
 
-    private XStream createXStream() {
-        XStream xstream = new XStream();
-        configureXStream(xstream);
-        return xstream;
+    /**
+     * Converts a Company object to its compact binary form.
+     */
+    public byte[] convertToBinary(Company company) {
+        return serializer.toBinary(company);
+    }
+
+    /**
+     * Converts the binary form back to a Company object.
+     */
+    public Company convertFromBinary(byte[] bytes) {
+        return serializer.fromBinary(bytes);
     }
 
-    private void configureXStream(XStream xstream) {
-        xstream.processAnnotations(Company.class);
-        xstream.processAnnotations(Address.class);
-        // Security: Use explicit type whitelist to prevent RCE attacks
-        xstream.addPermission(NoTypePermission.NONE);
-        xstream.allowTypes(new Class<?>[] { Company.class, Address.class });
-        xstream.allowTypesByWildcard(new String[] { "java.lang.*", "java.util.*" });
+    /**
+     * Converts XML straight to Jettison style JSON, without creating a Company in between.
+     */
+    public String convertXmlToJson(String xml) throws XMLStreamException {
+        return transcoder.transcode(xml);
+    }
+
+    /**
+     * Converts an XML stream straight to a UTF-8 Jettison style JSON stream. Neither stream is closed.
+     */
+    public void convertXmlToJson(InputStream xml, OutputStream json) throws XMLStreamException, IOException {
+        transcoder.transcode(xml, json);
     }
 }
@@ -0,0 +1,344 @@
+package demo;
+
+import com.alibaba.fastjson2.JSONWriter;
+import metrics.Metrics;
+import signature.DocumentUtil;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams XML into JSON in the Jettison mapped convention without building objects in between.
+ * <p>
+ * StAX events are written straight to a fastjson2 {@link JSONWriter} that is flushed to the output
+ * as it fills, so memory stays bounded by the nesting depth and the longest text node rather than
+ * the message size. The mapping follows what {@link CompanySerializer#toJettisonJson} produces:
+ * <ul>
+ *   <li>the root element becomes the single key of the outer object;</li>
+ *   <li>attributes become {@code "@name"} keys, text next to attributes or children becomes {@code "$"};</li>
+ *   <li>elements with text only become values, empty elements become {@code ""};</li>
+ *   <li>values that read as numbers or booleans are written typed, e.g. {@code "@id":111};</li>
+ *   <li>array elements ({@code websites} by default) become {@code [{"item":[...]}]}.</li>
+ * </ul>
+ * Jettison groups repeated siblings into an array after seeing them all. A stream cannot look
+ * ahead, so repetition is only expected inside array elements, and their items are always written
+ * as arrays, also a single one ({@code ["a"]} where Jettison writes {@code "a"}). Jettison reads
+ * both forms back the same way. Items of one name must be consecutive, and repeated siblings
+ * anywhere else are rejected, since duplicate JSON keys would lose all but one of them in most
+ * readers. Instances are stateless and thread-safe.
+ */
+public final class XmlJsonTranscoder {
+
+    private static final Set<String> DEFAULT_ARRAY_ELEMENTS = Set.of("websites");
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+
+    private final Set<String> arrayElements;
+
+    /**
+     * Creates a transcoder for the {@link model.Company} mapping, {@code websites} being the only array.
+     */
+    public XmlJsonTranscoder() {
+        this(DEFAULT_ARRAY_ELEMENTS);
+    }
+
+    /**
+     * @param arrayElements local names of the elements whose children form arrays
+     */
+    public XmlJsonTranscoder(Set<String> arrayElements) {
+        if (arrayElements == null) {
+            throw new IllegalArgumentException("arrayElements must not be null");
+        }
+        this.arrayElements = Set.copyOf(arrayElements);
+    }
+
+    /**
+     * Transcodes an XML string to a JSON string. The characters are parsed as they are, an
+     * encoding declaration in the XML is ignored.
+     */
+    public String transcode(String xml) throws XMLStreamException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(xml.length());
+        try {
+            transcode(DocumentUtil.createXMLStreamReader(new StringReader(xml)), json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Transcodes an XML document to UTF-8 JSON. Neither stream is closed.
+     *
+     * @throws XMLStreamException if the input is not well-formed, declares a DOCTYPE, repeats an
+     *                             element name outside the array elements or interleaves array items
+     */
+    public void transcode(InputStream xml, OutputStream json) throws XMLStreamException, IOException {
+        transcode(DocumentUtil.createXMLStreamReader(xml), json);
+    }
+
+    private void transcode(XMLStreamReader reader, OutputStream json) throws XMLStreamException, IOException {
+        long start = Metrics.start();
+        long written = 0;
+        try (JSONWriter writer = JSONWriter.ofUTF8()) {
+            Pass pass = new Pass(writer);
+            writer.startObject();
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> pass.startElement(reader);
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                            pass.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    case XMLStreamConstants.END_ELEMENT -> pass.endElement();
+                    default -> {
+                        // Comments, processing instructions and the document events carry no data
+                    }
+                }
+                if (writer.size() >= FLUSH_THRESHOLD) {
+                    written += writer.flushTo(json);
+                }
+            }
+            writer.endObject();
+            written += writer.flushTo(json);
+            Metrics.success(Metrics.CONVERT, "xmlToJson", start, written);
+        } catch (XMLStreamException ex) {
+            Metrics.failure(Metrics.CONVERT, "xmlToJson", start, "malformed");
+            throw ex;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Writes numbers and booleans typed, as Jettison's default type converter does: only when the
+     * typed value prints back as the same text, so {@code "007"} or {@code "1.50"} stay strings.
+     */
+    private static void writeValue(JSONWriter writer, String text) {
+        if (!text.isEmpty() && isTypeCandidate(text.charAt(0))) {
+            if (isNumberStart(text.charAt(0))) {
+                try {
+                    long number = Long.parseLong(text);
+                    if (Long.toString(number).equals(text)) {
+                        writer.writeInt64(number);
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    try {
+                        double number = Double.parseDouble(text);
+                        if (!Double.isInfinite(number) && !Double.isNaN(number)
+                                && Double.toString(number).equals(text)) {
+                            writer.writeDouble(number);
+                            return;
+                        }
+                    } catch (NumberFormatException ignored) {
+                        // Not a number, written as string below
+                    }
+                }
+            } else if (text.equals("true") || text.equals("false")) {
+                writer.writeBool(text.equals("true"));
+                return;
+            }
+        }
+        writer.writeString(text);
+    }
+
+    private static boolean isTypeCandidate(char first) {
+        return isNumberStart(first) || first == 't' || first == 'f';
+    }
+
+    private static boolean isNumberStart(char first) {
+        return (first >= '0' && first <= '9') || first == '-';
+    }
+
+    /**
+     * The state of one transcoding: the writer and the open elements. Frames are kept per depth
+     * and reused, so a long run of siblings allocates no per-element state.
+     */
+    private final class Pass {
+
+        private final JSONWriter writer;
+        private final List<Frame> frames = new ArrayList<>();
+        private int depth;
+
+        private Pass(JSONWriter writer) {
+            this.writer = writer;
+        }
+
+        private void startElement(XMLStreamReader reader) throws XMLStreamException {
+            String name = reader.getLocalName();
+            if (depth == 0) {
+                writer.writeName(name);
+                writer.writeColon();
+            } else {
+                Frame parent = frames.get(depth - 1);
+                boolean nextItem = parent.array && name.equals(parent.itemName);
+                if (!nextItem && !parent.addChildName(name)) {
+                    throw new XMLStreamException(parent.array
+                            ? "Items named '" + name + "' are not consecutive, which would reopen their JSON key"
+                            : "Element '" + name + "' repeats a sibling, which cannot be written as a JSON key; "
+                                    + "declare its parent as an array element", reader.getLocation());
+                }
+                open(parent);
+                if (!parent.array) {
+                    writer.writeName(name);
+                    writer.writeColon();
+                } else if (nextItem) {
+                    writer.writeComma();
+                } else {
+                    if (parent.itemName != null) {
+                        writer.endArray();
+                    }
+                    writer.writeName(name);
+                    writer.writeColon();
+                    writer.startArray();
+                    parent.itemName = name;
+                }
+            }
+
+            if (depth == frames.size()) {
+                frames.add(new Frame());
+            }
+            Frame frame = frames.get(depth++);
+            frame.reset(arrayElements.contains(name));
+            int attributes = reader.getAttributeCount();
+            if (attributes > 0) {
+                open(frame);
+                for (int i = 0; i < attributes; i++) {
+                    writer.writeName("@" + reader.getAttributeLocalName(i));
+                    writer.writeColon();
+                    writeValue(writer, reader.getAttributeValue(i));
+                }
+            }
+        }
+
+        private void characters(char[] text, int start, int length) {
+            if (depth > 0) {
+                frames.get(depth - 1).append(text, start, length);
+            }
+        }
+
+        private void endElement() {
+            Frame frame = frames.get(--depth);
+            if (!frame.open) {
+                if (frame.array) {
+                    // An empty array element, written as [""] like Jettison does
+                    writer.startArray();
+                    if (frame.isBlank()) {
+                        writer.writeString("");
+                    } else {
+                        writeText(frame);
+                    }
+                    writer.endArray();
+                } else {
+                    writeText(frame);
+                }
+                return;
+            }
+            writeMixedText(frame);
+            if (frame.array) {
+                if (frame.itemName != null) {
+                    writer.endArray();
+                }
+                writer.endObject();
+                writer.endArray();
+            } else {
+                writer.endObject();
+            }
+        }
+
+        /**
+         * Commits an element to the object form once it turns out to have attributes or children.
+         */
+        private void open(Frame frame) {
+            if (!frame.open) {
+                frame.open = true;
+                if (frame.array) {
+                    writer.startArray();
+                }
+                writer.startObject();
+            }
+            writeMixedText(frame);
+        }
+
+        private void writeMixedText(Frame frame) {
+            if (frame.length > 0) {
+                if (!frame.isBlank()) {
+                    writer.writeName("$");
+                    writer.writeColon();
+                    writeText(frame);
+                }
+                frame.length = 0;
+            }
+        }
+
+        private void writeText(Frame frame) {
+            if (frame.length > 0 && isTypeCandidate(frame.text[0])) {
+                writeValue(writer, new String(frame.text, 0, frame.length));
+            } else {
+                writer.writeString(frame.text, 0, frame.length);
+            }
+        }
+    }
+
+    /**
+     * An element being transcoded. It stays closed, buffering its text, until attributes or a
+     * child element make it an object.
+     */
+    private static final class Frame {
+
+        private boolean array;
+        private boolean open;
+        private String itemName;
+        private final List<String> childNames = new ArrayList<>();
+        private char[] text = new char[64];
+        private int length;
+
+        private void reset(boolean array) {
+            this.array = array;
+            this.open = false;
+            this.itemName = null;
+            this.length = 0;
+            childNames.clear();
+        }
+
+        /**
+         * @return false if a sibling of that name was written already. Objects have a handful of
+         * distinct names, a repeat is usually the previous sibling, so the list is scanned from the end.
+         */
+        private boolean addChildName(String name) {
+            for (int i = childNames.size() - 1; i >= 0; i--) {
+                if (childNames.get(i).equals(name)) {
+                    return false;
+                }
+            }
+            childNames.add(name);
+            return true;
+        }
+
+        private void append(char[] chars, int start, int count) {
+            if (length + count > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, length + count));
+            }
+            System.arraycopy(chars, start, text, length, count);
+            length += count;
+        }
+
+        private boolean isBlank() {
+            for (int i = 0; i < length; i++) {
+                if (!Character.isWhitespace(text[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide metrics of the signing, validation, parsing and conversion hot paths.
+ * <p>
+ * Metrics are off by default, or on when the system property {@value #ENABLED_PROPERTY} is
+ * {@code true}. While off, {@link #start()} returns 0 and the record methods return after one
+ * volatile read, so instrumented code pays next to nothing. While on, a call costs two
+ * {@link System#nanoTime()} calls, two hash lookups and a few uncontended adds, and does not
+ * allocate.
+ * <p>
+ * Instrumented code follows one pattern:
+ * <pre>{@code
+ * long start = Metrics.start();
+ * ... // the operation
+ * Metrics.success(Metrics.SIGN, signatureMethod, start, 0);
+ * }</pre>
+ * Poll locally with {@link #snapshot()}, or call {@link #registerMBeans()} to export every
+ * operation as an MXBean named {@code xstream-poc:type=Operation,operation=...,algorithm=...}.
+ */
+public final class Metrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    public static final String ENABLED_PROPERTY = "xstream-poc.metrics";
+    public static final String JMX_DOMAIN = "xstream-poc";
+
+    public static final String SIGN = "sign";
+    public static final String VALIDATE = "validate";
+    public static final String STREAM_SIGN = "stream-sign";
+    public static final String STREAM_VERIFY = "stream-verify";
+    public static final String PARSE = "parse";
+    public static final String SERIALIZE = "serialize";
+    public static final String CONVERT = "convert";
+
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, OperationMetrics>> operations =
+            new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static volatile boolean jmxExport;
+
+    private Metrics() {
+        // Utility class - prevent instantiation
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches recording on or off. Recorded values are kept while off.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * @return the start time of an operation, or 0 if metrics are off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records a successful operation started with {@link #start()}.
+     *
+     * @param operation the operation, one of the constants of this class
+     * @param algorithm the algorithm or variant, e.g. a signature method URI
+     * @param start the value returned by {@link #start()}
+     * @param bytes the bytes read or written, 0 if unknown
+     */
+    public static void success(String operation, String algorithm, long start, long bytes) {
+        if (start != 0L && enabled) {
+            operation(operation, algorithm).recordSuccess(System.nanoTime() - start, bytes);
+        }
+    }
+
+    /**
+     * Records a failed operation started with {@link #start()}.
+     *
+     * @param reason a short constant describing the failure, never an exception message
+     */
+    public static void failure(String operation, String algorithm, long start, String reason) {
+        if (start != 0L && enabled) {
+            operation(operation, algorithm).recordFailure(System.nanoTime() - start, reason);
+        }
+    }
+
+    /**
+     * Returns the metrics of an operation and algorithm, creating them on first use.
+     *
+     * @param algorithm the algorithm, null is recorded as an empty string
+     */
+    public static OperationMetrics operation(String operation, String algorithm) {
+        String key = algorithm != null ? algorithm : "";
+        ConcurrentHashMap<String, OperationMetrics> byAlgorithm = operations.get(operation);
+        if (byAlgorithm == null) {
+            byAlgorithm = operations.computeIfAbsent(operation, name -> new ConcurrentHashMap<>());
+        }
+        OperationMetrics metrics = byAlgorithm.get(key);
+        if (metrics == null) {
+            metrics = byAlgorithm.computeIfAbsent(key, name -> newOperationMetrics(operation, name));
+        }
+        return metrics;
+    }
+
+    /**
+     * @return all operations recorded so far, sorted by operation and algorithm
+     */
+    public static List<OperationMetrics> snapshot() {
+        List<OperationMetrics> all = new ArrayList<>();
+        operations.values().forEach(byAlgorithm -> all.addAll(byAlgorithm.values()));
+        all.sort(Comparator.comparing(OperationMetrics::getOperation).thenComparing(OperationMetrics::getAlgorithm));
+        return all;
+    }
+
+    /**
+     * Clears the values of all operations.
+     */
+    public static void reset() {
+        snapshot().forEach(OperationMetrics::reset);
+    }
+
+    /**
+     * Registers every operation, current and future, with the platform MBean server.
+     */
+    public static synchronized void registerMBeans() {
+        jmxExport = true;
+        snapshot().forEach(Metrics::register);
+    }
+
+    /**
+     * Removes the MBeans registered by {@link #registerMBeans()}.
+     */
+    public static synchronized void unregisterMBeans() {
+        jmxExport = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics metrics : snapshot()) {
+            try {
+                server.unregisterMBean(objectName(metrics));
+            } catch (InstanceNotFoundException ex) {
+                // Not registered
+            } catch (JMException ex) {
+                logger.warn("Could not unregister metrics MBean of {}/{}", metrics.getOperation(),
+                        metrics.getAlgorithm(), ex);
+            }
+        }
+    }
+
+    /**
+     * @return the JMX name of the metrics of an operation and algorithm
+     */
+    public static ObjectName objectName(OperationMetrics metrics) throws MalformedObjectNameException {
+        return new ObjectName(JMX_DOMAIN + ":type=Operation,operation=" + ObjectName.quote(metrics.getOperation())
+                + ",algorithm=" + ObjectName.quote(metrics.getAlgorithm()));
+    }
+
+    private static OperationMetrics newOperationMetrics(String operation, String algorithm) {
+        OperationMetrics metrics = new OperationMetrics(operation, algorithm);
+        if (jmxExport) {
+            register(metrics);
+        }
+        return metrics;
+    }
+
+    private static void register(OperationMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName(metrics));
+        } catch (InstanceAlreadyExistsException ex) {
+            // Already exported
+        } catch (JMException ex) {
+            logger.warn("Could not register metrics MBean of {}/{}", metrics.getOperation(),
+                    metrics.getAlgorithm(), ex);
+        }
+    }
+}
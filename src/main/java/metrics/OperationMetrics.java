@@ -0,0 +1,144 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latencies of one operation (e.g. {@code sign}) with one algorithm
+ * (e.g. the signature method URI). Obtained from {@link Metrics#operation(String, String)}.
+ * <p>
+ * Recording never allocates once a failure reason has been seen; the counters are
+ * {@link LongAdder}s, so concurrent recording does not contend. Failure reasons must come from a
+ * small fixed set, never from exception messages.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String operation;
+    private final String algorithm;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LongAdder> failureReasons = new ConcurrentHashMap<>();
+
+    OperationMetrics(String operation, String algorithm) {
+        this.operation = operation;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param nanos the duration of the call
+     * @param processedBytes the bytes read or written, 0 if unknown
+     */
+    public void recordSuccess(long nanos, long processedBytes) {
+        count.increment();
+        totalNanos.add(nanos);
+        latencies.record(nanos);
+        if (processedBytes > 0) {
+            bytes.add(processedBytes);
+        }
+    }
+
+    /**
+     * Records a failed call. Failures count as calls and their latency is recorded too.
+     *
+     * @param nanos the duration of the call
+     * @param reason a short constant describing the failure
+     */
+    public void recordFailure(long nanos, String reason) {
+        count.increment();
+        failures.increment();
+        totalNanos.add(nanos);
+        latencies.record(nanos);
+        failureReasons.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return the latency histogram of all calls
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / 1000.0 / calls;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.percentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latencies.percentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.percentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.getMax() / 1000.0;
+    }
+
+    @Override
+    public Map<String, Long> getFailureReasons() {
+        Map<String, Long> reasons = new TreeMap<>();
+        failureReasons.forEach((reason, counter) -> reasons.put(reason, counter.sum()));
+        return reasons;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        failures.reset();
+        bytes.reset();
+        totalNanos.reset();
+        latencies.reset();
+        failureReasons.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics{" + operation + '/' + algorithm + ", count=" + getCount()
+                + ", failures=" + getFailureCount() + ", bytes=" + getBytes()
+                + ", meanMicros=" + String.format("%.1f", getMeanMicros())
+                + ", p99Micros=" + getP99Micros()
+                + (failures.sum() > 0 ? ", failureReasons=" + getFailureReasons() : "") + '}';
+    }
+}
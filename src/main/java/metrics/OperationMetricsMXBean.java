@@ -0,0 +1,36 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of one operation and algorithm.
+ */
+public interface OperationMetricsMXBean {
+
+    String getOperation();
+
+    String getAlgorithm();
+
+    long getCount();
+
+    long getFailureCount();
+
+    long getBytes();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    /**
+     * @return the number of failures per reason
+     */
+    Map<String, Long> getFailureReasons();
+
+    void reset();
+}
@@ -0,0 +1,245 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.KeySelector;
+import java.io.InputStream;
+import java.security.Key;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over {@link XMLSignatureUtil} and {@link DocumentUtil} for request handlers
+ * that must not tie up a platform thread per call.
+ * <p>
+ * Reading input streams, which may block, runs on virtual threads (a cached pool of platform
+ * threads before Java 21). Parsing, signing and validation are CPU bound: they run on a bounded
+ * pool of platform threads, one per processor by default, so a burst waits for the CPU instead of
+ * oversubscribing it, and the per-thread parsers and digests of these classes are reused.
+ * <p>
+ * At most {@code maxPending} operations are in flight at a time, each holding its document in
+ * memory. Beyond that, calls return a future failed with {@link RejectedExecutionException} at
+ * once, so the caller can shed load or retry later. Operations spanning several steps, e.g.
+ * parsing and validating, count once.
+ * <p>
+ * Futures complete with the exception the blocking method would have thrown. Instances are
+ * thread-safe; {@link #close()} shuts down the executors they own.
+ */
+public final class AsyncSignatureService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSignatureService.class);
+
+    private final ExecutorService cpuExecutor;
+    private final ExecutorService ioExecutor;
+    private final Semaphore permits;
+    private final int maxPending;
+
+    private AsyncSignatureService(Builder builder) {
+        if (builder.maxPending < 1) {
+            throw new IllegalArgumentException("Maximum pending operations must be positive");
+        }
+        this.cpuExecutor = SigningExecutors.newPlatformThreadPool(builder.cpuThreads);
+        this.ioExecutor = SigningExecutors.newVirtualThreadExecutor();
+        this.maxPending = builder.maxPending;
+        this.permits = new Semaphore(builder.maxPending);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Parses a document held in memory.
+     *
+     * @param xml the XML document
+     * @return the parsed document
+     */
+    public CompletableFuture<Document> parseAsync(byte[] xml) {
+        return admit(() -> supply(() -> DocumentUtil.parseXmlDocument(xml), cpuExecutor));
+    }
+
+    /**
+     * Reads a document from a stream on a virtual thread and parses it. The stream is read to the
+     * end but not closed, the caller keeps it open until the future completes.
+     *
+     * @param xml the XML document
+     * @return the parsed document
+     */
+    public CompletableFuture<Document> parseAsync(InputStream xml) {
+        return admit(() -> supply(xml::readAllBytes, ioExecutor)
+                .thenCompose(bytes -> supply(() -> DocumentUtil.parseXmlDocument(bytes), cpuExecutor)));
+    }
+
+    /**
+     * Signs the root element of a document, see {@link XMLSignatureUtil#sign(Document, SigningProfile)}.
+     *
+     * @param doc the document to sign, signed in place
+     * @param profile the signing profile
+     * @return the signed document
+     */
+    public CompletableFuture<Document> signAsync(Document doc, SigningProfile profile) {
+        return admit(() -> supply(() -> XMLSignatureUtil.sign(doc, profile), cpuExecutor));
+    }
+
+    /**
+     * Signs the root element of a document held in memory, see
+     * {@link XMLSignatureUtil#sign(byte[], SigningProfile)}.
+     *
+     * @param xml the UTF-8 document to sign
+     * @param profile the signing profile
+     * @return the signed document, not indented
+     */
+    public CompletableFuture<byte[]> signAsync(byte[] xml, SigningProfile profile) {
+        return admit(() -> supply(() -> XMLSignatureUtil.sign(xml, profile), cpuExecutor));
+    }
+
+    /**
+     * Validates all signatures of a document, see {@link XMLSignatureUtil#validateDetailed(Document, Key)}.
+     *
+     * @param doc the signed document
+     * @param publicKey the public key for validation
+     * @return the per-signature validation report
+     */
+    public CompletableFuture<ValidationReport> validateAsync(Document doc, Key publicKey) {
+        return admit(() -> supply(() -> XMLSignatureUtil.validateDetailed(doc, publicKey), cpuExecutor));
+    }
+
+    /**
+     * Validates all signatures of a document with the keys chosen by a key selector, see
+     * {@link XMLSignatureUtil#validateDetailed(Document, KeySelector)}.
+     *
+     * @param doc the signed document
+     * @param keySelector the selector of the validation key of each signature
+     * @return the per-signature validation report
+     */
+    public CompletableFuture<ValidationReport> validateAsync(Document doc, KeySelector keySelector) {
+        return admit(() -> supply(() -> XMLSignatureUtil.validateDetailed(doc, keySelector), cpuExecutor));
+    }
+
+    /**
+     * Parses and validates a signed document held in memory.
+     *
+     * @param signedXml the signed document as received
+     * @param publicKey the public key for validation
+     * @return the per-signature validation report; a failure report if the document cannot be parsed
+     */
+    public CompletableFuture<ValidationReport> validateAsync(byte[] signedXml, Key publicKey) {
+        return admit(() -> supply(() -> {
+            Document doc;
+            try {
+                doc = DocumentUtil.parseXmlDocument(signedXml);
+            } catch (Exception ex) {
+                logger.debug("Parsing signed document failed: {}", ex.getMessage());
+                return ValidationReport.failure(ex);
+            }
+            return XMLSignatureUtil.validateDetailed(doc, publicKey);
+        }, cpuExecutor));
+    }
+
+    /**
+     * @return the number of operations admitted and not completed yet
+     */
+    public int getPendingCount() {
+        return maxPending - permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting operations; those in flight still complete.
+     */
+    @Override
+    public void close() {
+        ioExecutor.shutdown();
+        cpuExecutor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncSignatureService{pending=" + getPendingCount() + ", maxPending=" + maxPending + '}';
+    }
+
+    /**
+     * Starts an operation if a permit is available and releases the permit once it completes.
+     */
+    private <T> CompletableFuture<T> admit(Supplier<CompletableFuture<T>> operation) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Too many pending operations: " + maxPending));
+        }
+        CompletableFuture<T> future;
+        try {
+            future = operation.get();
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+        // Callers observe completion only after the permit is back
+        return future.whenComplete((result, failure) -> permits.release());
+    }
+
+    /**
+     * Runs a task on an executor. Unlike {@link CompletableFuture#supplyAsync}, checked exceptions
+     * complete the future as they are, and a rejected task fails the future instead of throwing.
+     */
+    private static <T> CompletableFuture<T> supply(Callable<T> task, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Builder for {@link AsyncSignatureService}.
+     */
+    public static final class Builder {
+        private int cpuThreads = Runtime.getRuntime().availableProcessors();
+        private int maxPending = 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * @param cpuThreads the number of platform threads parsing, signing and validating,
+         *                   defaults to the number of available processors
+         * @return this builder
+         */
+        public Builder cpuThreads(int cpuThreads) {
+            this.cpuThreads = cpuThreads;
+            return this;
+        }
+
+        /**
+         * @param maxPending the maximum number of operations in flight, defaults to 1024
+         * @return this builder
+         */
+        public Builder maxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * Builds the service and starts its executors.
+         *
+         * @return a new AsyncSignatureService
+         * @throws IllegalArgumentException if the thread count or maximum pending operations is not positive
+         */
+        public AsyncSignatureService build() {
+            return new AsyncSignatureService(this);
+        }
+    }
+}
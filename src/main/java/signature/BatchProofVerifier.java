@@ -0,0 +1,190 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.crypto.KeySelector;
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Verifies a single document against its proof from a {@link SignedBatch}, without any other
+ * document of the batch.
+ * <p>
+ * The signature over the {@code BatchRoot} of the proof is validated first; it must be the only
+ * signature of the proof and reference the {@code BatchRoot} itself. The document's leaf is then
+ * hashed up the audit path, with the side of every sibling derived from the index and the signed
+ * document count, and compared with the signed root digest. The outcome is reported like any
+ * other signature validation; a document that is not part of the batch is reported as an invalid
+ * signature with the reason. Instances are thread-safe.
+ */
+public class BatchProofVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchProofVerifier.class);
+
+    private final KeySelector keySelector;
+
+    /**
+     * Creates a verifier for batches signed with a known key.
+     *
+     * @param publicKey the public key for validation
+     */
+    public BatchProofVerifier(Key publicKey) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key cannot be null");
+        }
+        this.keySelector = KeySelector.singletonKeySelector(publicKey);
+    }
+
+    /**
+     * Creates a verifier that takes the key of each batch signature from a key selector.
+     *
+     * @param keySelector the selector, e.g. a {@link TrustStoreKeySelector}
+     */
+    public BatchProofVerifier(KeySelector keySelector) {
+        if (keySelector == null) {
+            throw new IllegalArgumentException("Key selector cannot be null");
+        }
+        this.keySelector = keySelector;
+    }
+
+    /**
+     * Verifies a document against a proof given as bytes.
+     *
+     * @param document the document as shipped
+     * @param proof the serialized proof
+     * @return the validation report, a failure report if the proof is malformed
+     */
+    public ValidationReport verify(byte[] document, byte[] proof) {
+        Document proofDocument;
+        try {
+            proofDocument = DocumentUtil.parseXmlDocument(proof);
+        } catch (Exception ex) {
+            logger.debug("Parsing batch proof failed: {}", ex.getMessage());
+            return ValidationReport.failure(ex);
+        }
+        return verify(ByteBuffer.wrap(document), proofDocument);
+    }
+
+    /**
+     * Verifies a document against a proof.
+     *
+     * @param document the document as shipped
+     * @param proof the proof document; the ID attribute of its {@code BatchRoot} gets registered
+     * @return the validation report, a failure report if the proof is malformed
+     */
+    public ValidationReport verify(byte[] document, Document proof) {
+        return verify(ByteBuffer.wrap(document), proof);
+    }
+
+    /**
+     * Verifies the remaining bytes of a buffer, e.g. a mapped file, against a proof. The position
+     * of the buffer is not changed.
+     *
+     * @param document the document as shipped
+     * @param proof the proof document; the ID attribute of its {@code BatchRoot} gets registered
+     * @return the validation report, a failure report if the proof is malformed
+     */
+    public ValidationReport verify(ByteBuffer document, Document proof) {
+        try {
+            return verifyProof(document, proof);
+        } catch (RuntimeException ex) {
+            logger.debug("Verifying batch proof failed: {}", ex.getMessage());
+            return ValidationReport.failure(ex);
+        }
+    }
+
+    private ValidationReport verifyProof(ByteBuffer document, Document proof) {
+        Element batchProof = proof.getDocumentElement();
+        if (!isBatchElement(batchProof, "BatchProof")) {
+            throw new IllegalArgumentException("Not a batch proof: " + batchProof.getTagName());
+        }
+        Element auditPath = childElement(batchProof, "AuditPath");
+        Element batchRoot = childElement(batchProof, "BatchRoot");
+        String rootId = batchRoot.getAttributeNS(null, "Id");
+        batchRoot.setIdAttributeNS(null, "Id", true);
+
+        ValidationReport report = XMLSignatureUtil.validateDetailed(proof, keySelector);
+        if (report.getSignatures().size() != 1) {
+            throw new IllegalArgumentException("Batch proof must carry exactly one signature");
+        }
+        SignatureValidationResult signature = report.getSignatures().get(0);
+        List<SignatureValidationResult.ReferenceStatus> references = signature.getReferences();
+        if (!signature.isValid()) {
+            return report;
+        }
+        if (references.size() != 1 || !("#" + rootId).equals(references.get(0).getURI())) {
+            throw new IllegalArgumentException("Batch signature does not reference the BatchRoot");
+        }
+
+        String failureReason = checkPath(document, proof, auditPath, batchRoot);
+        if (failureReason == null) {
+            return report;
+        }
+        return new ValidationReport(Collections.singletonList(new SignatureValidationResult(0,
+                SignatureValidationResult.Status.INVALID, Boolean.TRUE, references, failureReason)));
+    }
+
+    /**
+     * @return null if the document leads to the signed root, the failure reason otherwise
+     */
+    private static String checkPath(ByteBuffer document, Document proof, Element auditPath, Element batchRoot) {
+        int index = Integer.parseInt(proof.getDocumentElement().getAttributeNS(null, "Index"));
+        int count = Integer.parseInt(batchRoot.getAttributeNS(null, "Count"));
+        if (index < 0 || index >= count) {
+            return "Index " + index + " outside batch of " + count;
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        List<byte[]> siblings = new ArrayList<>();
+        for (Node node = auditPath.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (isBatchElement(node, "Sibling")) {
+                siblings.add(decoder.decode(node.getTextContent()));
+            }
+        }
+
+        MessageDigest digest = MerkleBatchSigner.newDigest(batchRoot.getAttributeNS(null, "DigestMethod"));
+        byte[] hash = MerkleBatchSigner.leaf(digest, document);
+        int next = 0;
+        for (int position = index, size = count; size > 1; position >>= 1, size = (size + 1) / 2) {
+            int sibling = position ^ 1;
+            if (sibling >= size) {
+                continue;
+            }
+            if (next == siblings.size()) {
+                return "Audit path is too short";
+            }
+            byte[] siblingHash = siblings.get(next++);
+            hash = (position & 1) == 0
+                    ? MerkleBatchSigner.node(digest, hash, siblingHash)
+                    : MerkleBatchSigner.node(digest, siblingHash, hash);
+        }
+        if (next != siblings.size()) {
+            return "Audit path is too long";
+        }
+
+        byte[] root = decoder.decode(childElement(batchRoot, "RootDigest").getTextContent());
+        return MessageDigest.isEqual(root, hash) ? null : "Document is not part of the signed batch";
+    }
+
+    private static Element childElement(Element parent, String localName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (isBatchElement(node, localName)) {
+                return (Element) node;
+            }
+        }
+        throw new IllegalArgumentException("Batch proof lacks " + localName);
+    }
+
+    private static boolean isBatchElement(Node node, String localName) {
+        return node instanceof Element && MerkleBatchSigner.NAMESPACE.equals(node.getNamespaceURI())
+                && localName.equals(node.getLocalName());
+    }
+}
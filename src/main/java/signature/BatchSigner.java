@@ -0,0 +1,75 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Signs many independent documents in parallel with one {@link SigningProfile}.
+ * Each document is signed on its own task of the given executor, results are returned
+ * in submission order and a failure only affects the document that caused it.
+ * <p>
+ * The executor is owned by the caller; use {@link SigningExecutors} to create one.
+ */
+public class BatchSigner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchSigner.class);
+
+    private final SigningProfile profile;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a batch signer.
+     *
+     * @param profile the signing profile applied to every document
+     * @param executor the executor running the signing tasks
+     */
+    public BatchSigner(SigningProfile profile, ExecutorService executor) {
+        this.profile = Objects.requireNonNull(profile, "Signing profile cannot be null");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    }
+
+    /**
+     * Signs all documents of a collection.
+     *
+     * @param documents the documents to sign, each is signed in place
+     * @return one result per document, in iteration order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<SignResult> signAll(Collection<Document> documents) throws InterruptedException {
+        return signAll(documents.iterator(), documents.size());
+    }
+
+    /**
+     * Signs all documents of a stream. The stream is consumed on the calling thread.
+     *
+     * @param documents the documents to sign, each is signed in place
+     * @return one result per document, in encounter order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<SignResult> signAll(Stream<Document> documents) throws InterruptedException {
+        return signAll(documents.sequential().iterator(), BatchTasks.UNKNOWN_BATCH_SIZE);
+    }
+
+    private List<SignResult> signAll(Iterator<Document> documents, int expectedSize) throws InterruptedException {
+        List<SignResult> results = BatchTasks.runAll(executor, documents, expectedSize, this::signOne);
+        logger.debug("Signed batch of {} documents", results.size());
+        return results;
+    }
+
+    private SignResult signOne(int index, Document document) {
+        try {
+            return SignResult.success(index, XMLSignatureUtil.sign(document, profile));
+        } catch (Exception ex) {
+            logger.debug("Signing document {} of batch failed: {}", index, ex.getMessage());
+            return SignResult.failure(index, ex);
+        }
+    }
+}
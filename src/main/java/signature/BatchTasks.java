@@ -0,0 +1,97 @@
+package signature;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Runs one task per item of a batch on an executor and collects the results in submission order.
+ * Shared by {@link BatchSigner} and {@link BatchValidator}.
+ */
+final class BatchTasks {
+
+    /**
+     * Initial capacity for batches whose size is not known up front, such as streams.
+     */
+    static final int UNKNOWN_BATCH_SIZE = 16;
+
+    /**
+     * Pools with more threads than this, such as cached pools, count as unbounded.
+     */
+    private static final int MAX_POOL_WORKERS = 1024;
+
+    private BatchTasks() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Work done for one item. It must report failures in its result rather than throw.
+     */
+    @FunctionalInterface
+    interface Task<T, R> {
+        R run(int index, T item);
+    }
+
+    /**
+     * Runs a task per item, consuming the items on the calling thread, and waits for all results.
+     * At most {@link #inFlightLimit} tasks are pending at a time: the next item is only read once
+     * the oldest pending task has finished, so a lazy source such as a stream is not held in memory
+     * as a whole, only the results are.
+     *
+     * @param executor the executor running the tasks
+     * @param items the items of the batch
+     * @param expectedSize the expected number of items, {@link #UNKNOWN_BATCH_SIZE} if not known
+     * @param task the work done for each item, with its position in the batch
+     * @return one result per item, in iteration order
+     * @throws InterruptedException if interrupted while waiting, the pending tasks are cancelled
+     */
+    static <T, R> List<R> runAll(ExecutorService executor, Iterator<T> items, int expectedSize, Task<T, R> task)
+            throws InterruptedException {
+        int limit = inFlightLimit(executor);
+        Deque<Future<R>> pending = new ArrayDeque<>(Math.min(limit, expectedSize));
+        List<R> results = new ArrayList<>(expectedSize);
+        try {
+            int index = 0;
+            while (items.hasNext()) {
+                if (pending.size() == limit) {
+                    results.add(pending.removeFirst().get());
+                }
+                T item = items.next();
+                int position = index++;
+                pending.addLast(executor.submit(() -> task.run(position, item)));
+            }
+            while (!pending.isEmpty()) {
+                results.add(pending.removeFirst().get());
+            }
+        } catch (InterruptedException ex) {
+            pending.forEach(future -> future.cancel(true));
+            throw ex;
+        } catch (ExecutionException ex) {
+            // Tasks never throw, anything else is a bug
+            throw new IllegalStateException("Unexpected batch task failure", ex.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Two tasks per worker keep every worker busy while the oldest result is collected. Pools of
+     * unknown or unbounded size, such as virtual threads, are sized to the processors, since the
+     * tasks are CPU-bound.
+     */
+    static int inFlightLimit(ExecutorService executor) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        if (executor instanceof ThreadPoolExecutor) {
+            int poolSize = ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+            if (poolSize < MAX_POOL_WORKERS) {
+                workers = poolSize;
+            }
+        }
+        return 2 * workers;
+    }
+}
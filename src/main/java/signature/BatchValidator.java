@@ -0,0 +1,131 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.KeySelector;
+
+import java.security.Key;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Validates many signed documents in parallel.
+ * Each document is validated on its own task of the given executor and reported with a
+ * per-signature {@link ValidationReport}; results are returned in submission order.
+ * <p>
+ * The executor is owned by the caller; use {@link SigningExecutors} to create one.
+ */
+public class BatchValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchValidator.class);
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a batch validator.
+     *
+     * @param executor the executor running the validation tasks
+     */
+    public BatchValidator(ExecutorService executor) {
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    }
+
+    /**
+     * Validates all documents of a collection.
+     *
+     * @param documents the signed documents
+     * @param publicKey the public key for validation
+     * @return one report per document, in iteration order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<ValidationReport> validateAll(Collection<Document> documents, Key publicKey)
+            throws InterruptedException {
+        requirePublicKey(publicKey);
+        return validateAll(documents.iterator(), documents.size(),
+                document -> XMLSignatureUtil.validateDetailed(document, publicKey));
+    }
+
+    /**
+     * Validates all documents of a stream. The stream is consumed on the calling thread.
+     *
+     * @param documents the signed documents
+     * @param publicKey the public key for validation
+     * @return one report per document, in encounter order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<ValidationReport> validateAll(Stream<Document> documents, Key publicKey)
+            throws InterruptedException {
+        requirePublicKey(publicKey);
+        return validateAll(documents.sequential().iterator(), BatchTasks.UNKNOWN_BATCH_SIZE,
+                document -> XMLSignatureUtil.validateDetailed(document, publicKey));
+    }
+
+    /**
+     * Validates all documents of a collection, each with the keys its signatures' KeyInfo resolve
+     * to, so one batch can hold documents of many partners.
+     *
+     * @param documents the signed documents
+     * @param keySelector the shared, thread-safe key selector, e.g. a {@link TrustStoreKeySelector}
+     * @return one report per document, in iteration order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<ValidationReport> validateAll(Collection<Document> documents, KeySelector keySelector)
+            throws InterruptedException {
+        requireKeySelector(keySelector);
+        return validateAll(documents.iterator(), documents.size(),
+                document -> XMLSignatureUtil.validateDetailed(document, keySelector));
+    }
+
+    /**
+     * Validates all documents of a stream with the keys chosen by a key selector. The stream is
+     * consumed on the calling thread.
+     *
+     * @param documents the signed documents
+     * @param keySelector the shared, thread-safe key selector, e.g. a {@link TrustStoreKeySelector}
+     * @return one report per document, in encounter order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<ValidationReport> validateAll(Stream<Document> documents, KeySelector keySelector)
+            throws InterruptedException {
+        requireKeySelector(keySelector);
+        return validateAll(documents.sequential().iterator(), BatchTasks.UNKNOWN_BATCH_SIZE,
+                document -> XMLSignatureUtil.validateDetailed(document, keySelector));
+    }
+
+    private List<ValidationReport> validateAll(Iterator<Document> documents, int expectedSize,
+                                               Function<Document, ValidationReport> validation)
+            throws InterruptedException {
+        List<ValidationReport> reports = BatchTasks.runAll(executor, documents, expectedSize,
+                (index, document) -> validateOne(document, validation));
+        logger.debug("Validated batch of {} documents", reports.size());
+        return reports;
+    }
+
+    private static void requirePublicKey(Key publicKey) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key cannot be null");
+        }
+    }
+
+    private static void requireKeySelector(KeySelector keySelector) {
+        if (keySelector == null) {
+            throw new IllegalArgumentException("Key selector cannot be null");
+        }
+    }
+
+    private static ValidationReport validateOne(Document document, Function<Document, ValidationReport> validation) {
+        try {
+            return validation.apply(document);
+        } catch (Exception ex) {
+            logger.debug("Validating document of batch failed: {}", ex.getMessage());
+            return ValidationReport.failure(ex);
+        }
+    }
+}
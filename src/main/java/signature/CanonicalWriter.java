@@ -0,0 +1,211 @@
+package signature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+
+/**
+ * Buffered UTF-8 writer for canonical XML.
+ * Encodes characters straight into a reused byte buffer that is flushed either into a
+ * {@link MessageDigest} or an {@link OutputStream}, and implements the escaping rules of
+ * Canonical XML for text nodes and attribute values. Not thread-safe.
+ */
+final class CanonicalWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final MessageDigest digest;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private char pendingHighSurrogate;
+
+    private CanonicalWriter(MessageDigest digest, OutputStream out) {
+        this.digest = digest;
+        this.out = out;
+    }
+
+    /**
+     * Creates a writer that feeds all bytes into a message digest.
+     */
+    static CanonicalWriter to(MessageDigest digest) {
+        return new CanonicalWriter(digest, null);
+    }
+
+    /**
+     * Creates a writer that writes all bytes to an output stream.
+     */
+    static CanonicalWriter to(OutputStream out) {
+        return new CanonicalWriter(null, out);
+    }
+
+    /**
+     * Writes markup or other characters that need no escaping.
+     */
+    void write(String s) {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    void write(char c) {
+        writeChar(c);
+    }
+
+    /**
+     * Writes text node content, escaping {@code & < >} and carriage returns.
+     */
+    void writeText(char[] chars, int start, int length) {
+        for (int i = start, end = start + length; i < end; i++) {
+            writeTextChar(chars[i]);
+        }
+    }
+
+    void writeText(String text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            writeTextChar(text.charAt(i));
+        }
+    }
+
+    private void writeTextChar(char c) {
+        switch (c) {
+            case '&':
+                writeAscii("&amp;");
+                break;
+            case '<':
+                writeAscii("&lt;");
+                break;
+            case '>':
+                writeAscii("&gt;");
+                break;
+            case '\r':
+                writeAscii("&#xD;");
+                break;
+            default:
+                writeChar(c);
+        }
+    }
+
+    /**
+     * Writes an attribute value, escaping {@code & < "} and whitespace that attribute value
+     * normalization would otherwise replace.
+     */
+    void writeAttributeValue(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    writeAscii("&amp;");
+                    break;
+                case '<':
+                    writeAscii("&lt;");
+                    break;
+                case '"':
+                    writeAscii("&quot;");
+                    break;
+                case '\t':
+                    writeAscii("&#x9;");
+                    break;
+                case '\n':
+                    writeAscii("&#xA;");
+                    break;
+                case '\r':
+                    writeAscii("&#xD;");
+                    break;
+                default:
+                    writeChar(c);
+            }
+        }
+    }
+
+    /**
+     * Writes a processing instruction or comment body, only carriage returns are escaped.
+     */
+    void writeUnescaped(String s) {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\r') {
+                writeAscii("&#xD;");
+            } else {
+                writeChar(c);
+            }
+        }
+    }
+
+    /**
+     * Passes all buffered bytes to the digest or output stream.
+     */
+    void flush() {
+        if (position == 0) {
+            return;
+        }
+        if (digest != null) {
+            digest.update(buffer, 0, position);
+        } else {
+            try {
+                out.write(buffer, 0, position);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        position = 0;
+    }
+
+    /**
+     * Drops the buffered bytes, e.g. those left behind by a failed canonicalization.
+     */
+    void reset() {
+        position = 0;
+        pendingHighSurrogate = 0;
+    }
+
+    private void writeAscii(String s) {
+        if (position + s.length() > BUFFER_SIZE) {
+            flush();
+        }
+        for (int i = 0, length = s.length(); i < length; i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeChar(char c) {
+        // Plain ASCII is the common case
+        if (c < 0x80 && pendingHighSurrogate == 0) {
+            if (position == BUFFER_SIZE) {
+                flush();
+            }
+            buffer[position++] = (byte) c;
+            return;
+        }
+        if (position + 4 > BUFFER_SIZE) {
+            flush();
+        }
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[position++] = '?';
+        }
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (c >> 6));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            // Surrogate pairs may be split across text chunks
+            pendingHighSurrogate = c;
+        } else {
+            buffer[position++] = (byte) (0xE0 | (c >> 12));
+            buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package signature;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed X509 certificates keyed by the SHA-256 fingerprint of their DER encoding.
+ * <p>
+ * Documents of one partner carry the same certificate over and over; parsing it once and looking
+ * it up by fingerprint afterwards replaces an ASN.1 decode per document by a digest over a few
+ * hundred bytes. Certificates are immutable and shared between threads.
+ */
+final class CertificateCache {
+
+    // Partners are counted in tens, a cache this size is only full when fed arbitrary certificates
+    private static final int MAXIMUM_SIZE = 1024;
+
+    private static final Map<ByteBuffer, X509Certificate> certificates = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    });
+
+    private static final ThreadLocal<CertificateFactory> certificateFactory = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (CertificateException ex) {
+            throw new IllegalStateException("X.509 certificates are not supported", ex);
+        }
+    });
+
+    private CertificateCache() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Returns the certificate of a DER encoding, parsing it only the first time it is seen.
+     *
+     * @param der the DER encoded certificate
+     * @return the parsed certificate
+     * @throws CertificateException if the bytes are not an X509 certificate
+     */
+    static X509Certificate certificate(byte[] der) throws CertificateException {
+        ByteBuffer fingerprint = fingerprint(der);
+        X509Certificate certificate = certificates.get(fingerprint);
+        if (certificate == null) {
+            certificate = (X509Certificate) certificateFactory.get()
+                    .generateCertificate(new ByteArrayInputStream(der));
+            if (certificates.size() >= MAXIMUM_SIZE) {
+                certificates.clear();
+            }
+            certificates.put(fingerprint, certificate);
+        }
+        return certificate;
+    }
+
+    /**
+     * @param certificate the certificate
+     * @return the SHA-256 fingerprint of its DER encoding; ByteBuffer compares and hashes its content
+     * @throws CertificateEncodingException if the certificate cannot be encoded
+     */
+    static ByteBuffer fingerprint(X509Certificate certificate) throws CertificateEncodingException {
+        return fingerprint(certificate.getEncoded());
+    }
+
+    static ByteBuffer fingerprint(byte[] der) {
+        return ByteBuffer.wrap(sha256.get().digest(der));
+    }
+
+    static int size() {
+        return certificates.size();
+    }
+}
@@ -0,0 +1,177 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.crypto.KeySelector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verifies the signatures of many files in parallel, e.g. to re-verify an archive.
+ * Each file is verified on its own task of the given executor and reported with a
+ * {@link FileValidationReport}; a file that cannot be read or parsed is reported as a failure
+ * instead of aborting the scan.
+ * <p>
+ * Files of at least {@value #MAP_THRESHOLD} bytes are read through a read-only memory mapping and
+ * parsed straight from the mapped pages; smaller files are read in one call, since mapping them
+ * costs more than copying them. Documents are either validated through DOM, which supports every
+ * signature {@link XMLSignatureUtil} can create, or through a {@link StreamingVerifier}, which
+ * keeps memory bounded for large files.
+ * <p>
+ * The executor is owned by the caller; use {@link SigningExecutors} to create one.
+ */
+public class DirectoryVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryVerifier.class);
+
+    /**
+     * Files of this size or larger are memory-mapped.
+     */
+    public static final int MAP_THRESHOLD = 64 * 1024;
+
+    private final BufferVerifier verifier;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a directory verifier that validates every file through DOM.
+     *
+     * @param publicKey the public key for validation
+     * @param executor the executor running the verification tasks
+     */
+    public DirectoryVerifier(Key publicKey, ExecutorService executor) {
+        this(domVerifier(publicKey), executor);
+    }
+
+    /**
+     * Creates a directory verifier that validates every file through DOM with the keys its
+     * signatures' KeyInfo resolve to, for archives of many partners.
+     *
+     * @param keySelector the shared, thread-safe key selector, e.g. a {@link TrustStoreKeySelector}
+     * @param executor the executor running the verification tasks
+     */
+    public DirectoryVerifier(KeySelector keySelector, ExecutorService executor) {
+        this(domVerifier(keySelector), executor);
+    }
+
+    /**
+     * Creates a directory verifier that validates every file with a streaming verifier.
+     *
+     * @param verifier the streaming verifier, it is thread-safe and shared by all tasks
+     * @param executor the executor running the verification tasks
+     */
+    public DirectoryVerifier(StreamingVerifier verifier, ExecutorService executor) {
+        this(Objects.requireNonNull(verifier, "Verifier cannot be null")::verify, executor);
+    }
+
+    private DirectoryVerifier(BufferVerifier verifier, ExecutorService executor) {
+        this.verifier = verifier;
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+    }
+
+    /**
+     * Verifies all regular files below a directory whose name matches a glob pattern.
+     *
+     * @param directory the directory, scanned recursively
+     * @param fileNameGlob glob for the file names, e.g. {@code *.xml}
+     * @return one report per file, sorted by path
+     * @throws IOException if the directory cannot be scanned
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<FileValidationReport> verifyAll(Path directory, String fileNameGlob)
+            throws IOException, InterruptedException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + fileNameGlob);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(path.getFileName()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        logger.debug("Found {} files matching {} in {}", files.size(), fileNameGlob, directory);
+        return verifyAll(files);
+    }
+
+    /**
+     * Verifies the given files.
+     *
+     * @param files the signed files
+     * @return one report per file, in iteration order
+     * @throws InterruptedException if interrupted while waiting for the results
+     */
+    public List<FileValidationReport> verifyAll(Collection<Path> files) throws InterruptedException {
+        List<Future<FileValidationReport>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(executor.submit(() -> verifyOne(file)));
+        }
+
+        List<FileValidationReport> reports = new ArrayList<>(futures.size());
+        try {
+            for (Future<FileValidationReport> future : futures) {
+                reports.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            futures.forEach(future -> future.cancel(true));
+            throw ex;
+        } catch (ExecutionException ex) {
+            // verifyOne never throws, anything else is a bug
+            throw new IllegalStateException("Unexpected verification task failure", ex.getCause());
+        }
+
+        logger.debug("Verified {} files", reports.size());
+        return reports;
+    }
+
+    private FileValidationReport verifyOne(Path file) {
+        try {
+            return new FileValidationReport(file, verifier.verify(read(file)));
+        } catch (Exception ex) {
+            logger.debug("Verifying {} failed: {}", file, ex.getMessage());
+            return new FileValidationReport(file, ValidationReport.failure(ex));
+        }
+    }
+
+    private static ByteBuffer read(Path file) throws IOException {
+        if (Files.size(file) < MAP_THRESHOLD) {
+            return ByteBuffer.wrap(Files.readAllBytes(file));
+        }
+        return DocumentUtil.mapFile(file);
+    }
+
+    private static BufferVerifier domVerifier(Key publicKey) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key cannot be null");
+        }
+        return buffer -> XMLSignatureUtil.validateDetailed(DocumentUtil.parseXmlDocument(buffer), publicKey);
+    }
+
+    private static BufferVerifier domVerifier(KeySelector keySelector) {
+        if (keySelector == null) {
+            throw new IllegalArgumentException("Key selector cannot be null");
+        }
+        return buffer -> XMLSignatureUtil.validateDetailed(DocumentUtil.parseXmlDocument(buffer), keySelector);
+    }
+
+    /**
+     * Validates one document held in a buffer.
+     */
+    @FunctionalInterface
+    private interface BufferVerifier {
+        ValidationReport verify(ByteBuffer document) throws Exception;
+    }
+}
@@ -1,35 +1,69 @@
 package signature;
 
+import metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Utility class for XML Document operations.
  * Provides methods for creating, parsing, and converting XML documents.
  * All methods are protected against XXE (XML External Entity) attacks.
+ * <p>
+ * The hardened factories are created once per class load. JAXP factories and the
+ * builders/transformers they produce are not thread-safe, so each thread keeps its own
+ * {@link DocumentBuilder}, {@link Transformer} and {@link XMLInputFactory}; builders and
+ * transformers are {@code reset()} after every use.
  */
 public class DocumentUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(DocumentUtil.class);
 
+    private static final DocumentBuilderFactory namespaceAwareFactory = newSecureDocumentBuilderFactory(true);
+    private static final DocumentBuilderFactory plainFactory = newSecureDocumentBuilderFactory(false);
+    private static final TransformerFactory transformerFactory = newSecureTransformerFactory();
+
+    private static final ThreadLocal<DocumentBuilder> namespaceAwareBuilder =
+            ThreadLocal.withInitial(() -> newDocumentBuilder(namespaceAwareFactory));
+    private static final ThreadLocal<DocumentBuilder> plainBuilder =
+            ThreadLocal.withInitial(() -> newDocumentBuilder(plainFactory));
+    private static final ThreadLocal<Transformer> transformer =
+            ThreadLocal.withInitial(DocumentUtil::newTransformer);
+    private static final ThreadLocal<XMLInputFactory> inputFactory =
+            ThreadLocal.withInitial(DocumentUtil::newSecureInputFactory);
+
     private DocumentUtil() {
         // Utility class - prevent instantiation
     }
@@ -42,19 +76,133 @@ public class DocumentUtil {
      * @throws TransformerException if transformation fails
      */
     public static String asString(Document doc) throws TransformerException {
-        TransformerFactory factory = TransformerFactory.newInstance();
-        // Protect against XXE attacks
-        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+        long start = Metrics.start();
+        Transformer serializer = transformer.get();
+        try {
+            applyOutputProperties(serializer);
+            StringWriter writer = new StringWriter();
+            serializer.transform(new DOMSource(doc), new StreamResult(writer));
+            Metrics.success(Metrics.SERIALIZE, "string", start, 0);
+            return writer.toString();
+        } catch (TransformerException ex) {
+            Metrics.failure(Metrics.SERIALIZE, "string", start, "transform");
+            throw ex;
+        } finally {
+            serializer.reset();
+        }
+    }
+
+    /**
+     * Converts an XML Document to UTF-8 bytes, without decoding it to a string first.
+     *
+     * @param doc the XML document to convert
+     * @param indent whether to indent the output; indentation only helps human readers
+     * @return the XML as UTF-8 bytes
+     * @throws TransformerException if transformation fails
+     */
+    public static byte[] asBytes(Document doc, boolean indent) throws TransformerException {
+        long start = Metrics.start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        transform(doc, out, indent, start);
+        Metrics.success(Metrics.SERIALIZE, serializeVariant(indent), start, out.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes an XML Document to an output stream as UTF-8. The stream is not closed.
+     * <p>
+     * Signed documents must be written without indentation: indenting adds whitespace text
+     * nodes, which invalidates a signature over the document.
+     *
+     * @param doc the XML document to write
+     * @param out the output stream
+     * @param indent whether to indent the output
+     * @throws TransformerException if transformation fails
+     */
+    public static void writeTo(Document doc, OutputStream out, boolean indent) throws TransformerException {
+        long start = Metrics.start();
+        transform(doc, out, indent, start);
+        Metrics.success(Metrics.SERIALIZE, serializeVariant(indent), start, 0);
+    }
+
+    private static void transform(Document doc, OutputStream out, boolean indent, long start)
+            throws TransformerException {
+        Transformer serializer = transformer.get();
+        try {
+            serializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            if (indent) {
+                applyOutputProperties(serializer);
+            } else {
+                serializer.setOutputProperty(OutputKeys.INDENT, "no");
+            }
+            serializer.transform(new DOMSource(doc), new StreamResult(out));
+        } catch (TransformerException ex) {
+            Metrics.failure(Metrics.SERIALIZE, serializeVariant(indent), start, "transform");
+            throw ex;
+        } finally {
+            serializer.reset();
+        }
+    }
+
+    private static String serializeVariant(boolean indent) {
+        return indent ? "indent" : "compact";
+    }
 
-        Transformer transformer = factory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    /**
+     * Serializes a node without XML declaration and indentation.
+     *
+     * @param node the node to serialize
+     * @return the XML of the node
+     * @throws TransformerException if transformation fails
+     */
+    static String serializeFragment(Node node) throws TransformerException {
+        Transformer serializer = transformer.get();
+        try {
+            serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            serializer.setOutputProperty(OutputKeys.INDENT, "no");
+            StringWriter writer = new StringWriter();
+            serializer.transform(new DOMSource(node), new StreamResult(writer));
+            return writer.toString();
+        } finally {
+            serializer.reset();
+        }
+    }
 
-        StringWriter writer = new StringWriter();
-        transformer.transform(new DOMSource(doc), new StreamResult(writer));
-        return writer.toString();
+    /**
+     * Creates a namespace aware StAX reader with the same XXE protection as the DOM parsers:
+     * DTD support and external entities are disabled and a DOCTYPE declaration is rejected.
+     *
+     * @param inputStream the input stream containing XML data
+     * @return a new XMLStreamReader
+     * @throws XMLStreamException if the reader cannot be created
+     */
+    public static XMLStreamReader createXMLStreamReader(InputStream inputStream) throws XMLStreamException {
+        return rejectingDoctype(inputFactory.get().createXMLStreamReader(inputStream));
+    }
+
+    /**
+     * Creates a reader like {@link #createXMLStreamReader(InputStream)} over characters that are
+     * already decoded, so an encoding declaration in the XML is ignored.
+     *
+     * @param reader the reader containing XML data
+     * @return a new XMLStreamReader
+     * @throws XMLStreamException if the reader cannot be created
+     */
+    public static XMLStreamReader createXMLStreamReader(Reader reader) throws XMLStreamException {
+        return rejectingDoctype(inputFactory.get().createXMLStreamReader(reader));
+    }
+
+    private static XMLStreamReader rejectingDoctype(XMLStreamReader reader) {
+        return new StreamReaderDelegate(reader) {
+            @Override
+            public int next() throws XMLStreamException {
+                int event = super.next();
+                if (event == XMLStreamConstants.DTD) {
+                    throw new XMLStreamException("DOCTYPE is disallowed", getLocation());
+                }
+                return event;
+            }
+        };
     }
 
     /**
@@ -64,8 +212,7 @@ public class DocumentUtil {
      * @throws ParserConfigurationException if document builder cannot be created
      */
     public static Document createDocument() throws ParserConfigurationException {
-        DocumentBuilderFactory factory = createSecureDocumentBuilderFactory();
-        DocumentBuilder builder = factory.newDocumentBuilder();
+        DocumentBuilder builder = plainBuilder.get();
         logger.debug("Created new XML document");
         return builder.newDocument();
     }
@@ -99,6 +246,41 @@ public class DocumentUtil {
         }
     }
 
+    /**
+     * Parses an XML file into a Document, reading it through a read-only memory mapping instead of
+     * heap buffers. Pays off for large files on local disk; for small files the mapping costs
+     * more than {@link #getXmlDocument(Path)} saves.
+     *
+     * @param xmlFilePath path to the XML file
+     * @return the parsed Document
+     * @throws ParserConfigurationException if document builder cannot be created
+     * @throws SAXException if XML parsing fails
+     * @throws IOException if file cannot be mapped
+     */
+    public static Document getMappedXmlDocument(Path xmlFilePath)
+            throws ParserConfigurationException, SAXException, IOException {
+        logger.debug("Parsing mapped XML document from {}", xmlFilePath);
+        return parseXmlDocument(mapFile(xmlFilePath));
+    }
+
+    /**
+     * Maps a file read-only into memory. The channel is closed right away; the mapping stays
+     * valid until the buffer is garbage collected.
+     *
+     * @param file the file to map
+     * @return the mapped content
+     * @throws IOException if the file cannot be opened, or is larger than 2 GB
+     */
+    public static MappedByteBuffer mapFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file + " (" + size + " bytes)");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
     /**
      * Parses an XML InputStream into a Document.
      *
@@ -109,19 +291,62 @@ public class DocumentUtil {
      * @throws IOException if stream cannot be read
      */
     public static Document parseXmlDocument(InputStream inputStream) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilderFactory factory = createSecureDocumentBuilderFactory();
-        factory.setNamespaceAware(true);
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        return builder.parse(inputStream);
+        return parse(inputStream, 0);
+    }
+
+    /**
+     * Parses UTF-8 (or self-describing) XML bytes into a Document.
+     *
+     * @param xml the XML bytes
+     * @return the parsed Document
+     * @throws ParserConfigurationException if document builder cannot be created
+     * @throws SAXException if XML parsing fails
+     * @throws IOException if the bytes cannot be read
+     */
+    public static Document parseXmlDocument(byte[] xml) throws ParserConfigurationException, SAXException, IOException {
+        return parse(new ByteArrayInputStream(xml), xml.length);
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer into a Document. The position of the buffer is not changed.
+     *
+     * @param xml the XML bytes, heap or direct
+     * @return the parsed Document
+     * @throws ParserConfigurationException if document builder cannot be created
+     * @throws SAXException if XML parsing fails
+     * @throws IOException if the bytes cannot be read
+     */
+    public static Document parseXmlDocument(ByteBuffer xml) throws ParserConfigurationException, SAXException, IOException {
+        return parse(new ByteBufferInputStream(xml), xml.remaining());
+    }
+
+    private static Document parse(InputStream inputStream, long bytes) throws SAXException, IOException {
+        long start = Metrics.start();
+        DocumentBuilder builder = namespaceAwareBuilder.get();
+        try {
+            Document doc = builder.parse(inputStream);
+            Metrics.success(Metrics.PARSE, "dom", start, bytes);
+            return doc;
+        } catch (SAXException ex) {
+            Metrics.failure(Metrics.PARSE, "dom", start, "malformed");
+            throw ex;
+        } catch (IOException ex) {
+            Metrics.failure(Metrics.PARSE, "dom", start, "io");
+            throw ex;
+        } finally {
+            builder.reset();
+        }
     }
 
     /**
      * Creates a DocumentBuilderFactory with XXE protection enabled.
      *
+     * @param namespaceAware whether builders created by the factory are namespace aware
      * @return a secure DocumentBuilderFactory
      * @throws ParserConfigurationException if security features cannot be set
      */
-    private static DocumentBuilderFactory createSecureDocumentBuilderFactory() throws ParserConfigurationException {
+    private static DocumentBuilderFactory createSecureDocumentBuilderFactory(boolean namespaceAware)
+            throws ParserConfigurationException {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 
         // Protect against XXE attacks (OWASP recommendations)
@@ -131,7 +356,62 @@ public class DocumentUtil {
         factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
         factory.setXIncludeAware(false);
         factory.setExpandEntityReferences(false);
+        factory.setNamespaceAware(namespaceAware);
+
+        return factory;
+    }
+
+    private static DocumentBuilderFactory newSecureDocumentBuilderFactory(boolean namespaceAware) {
+        try {
+            return createSecureDocumentBuilderFactory(namespaceAware);
+        } catch (ParserConfigurationException ex) {
+            throw new IllegalStateException("Could not create secure DocumentBuilderFactory", ex);
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder(DocumentBuilderFactory factory) {
+        // DocumentBuilderFactory is not guaranteed to be thread-safe
+        synchronized (factory) {
+            try {
+                return factory.newDocumentBuilder();
+            } catch (ParserConfigurationException ex) {
+                throw new IllegalStateException("Could not create DocumentBuilder", ex);
+            }
+        }
+    }
+
+    private static TransformerFactory newSecureTransformerFactory() {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        // Protect against XXE attacks
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+        return factory;
+    }
 
+    private static Transformer newTransformer() {
+        // TransformerFactory is not guaranteed to be thread-safe
+        synchronized (transformerFactory) {
+            try {
+                return transformerFactory.newTransformer();
+            } catch (TransformerConfigurationException ex) {
+                throw new IllegalStateException("Could not create Transformer", ex);
+            }
+        }
+    }
+
+    private static XMLInputFactory newSecureInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Protect against XXE attacks
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
         return factory;
     }
+
+    private static void applyOutputProperties(Transformer serializer) {
+        serializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        serializer.setOutputProperty(OutputKeys.INDENT, "yes");
+        serializer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    }
 }
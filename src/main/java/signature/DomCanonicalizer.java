@@ -0,0 +1,406 @@
+package signature;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exclusive XML Canonicalization 1.0 (without comments) of a DOM document or subtree, written
+ * straight to a {@link CanonicalWriter}.
+ * <p>
+ * The output is the one of the JDK canonicalizer behind the enveloped signature and exclusive
+ * c14n reference transforms, including its namespace handling: inside the canonicalized subtree
+ * namespaces are only declared by {@code xmlns} attributes, so an element created without one
+ * renders no declaration, while the ancestors of a subtree apex also declare their own element
+ * namespace. Unlike the JDK canonicalizer, which collects the canonical form in a buffer and
+ * keeps sorted sets and a namespace table per element, the namespace and attribute bookkeeping
+ * lives in arrays reused for every element and every call.
+ * <p>
+ * Entity references, found in documents parsed without expanding them, are rendered as their
+ * expansion as C14N requires; the JDK canonicalizer leaves their content out, so that content
+ * would not be covered by the signature.
+ * <p>
+ * The element passed as excluded is left out with its subtree, as by the enveloped signature
+ * transform. Not thread-safe; {@link #digest} keeps one instance per thread and digest method.
+ */
+final class DomCanonicalizer {
+
+    private static final String XML_PREFIX = "xml";
+    private static final String XMLNS_PREFIX = "xmlns";
+    private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+    private static final String XMLNS_NAMESPACE = "http://www.w3.org/2000/xmlns/";
+
+    private static final ThreadLocal<Map<String, DomCanonicalizer>> digesters =
+            ThreadLocal.withInitial(HashMap::new);
+
+    private final CanonicalWriter writer;
+    private final MessageDigest digest;
+
+    // Namespaces declared in scope and namespaces rendered by the open elements, a frame per depth
+    private String[] declaredPrefixes = new String[16];
+    private String[] declaredUris = new String[16];
+    private int declaredCount;
+    private String[] renderedPrefixes = new String[16];
+    private String[] renderedUris = new String[16];
+    private int renderedCount;
+    private int[] declaredFrames = new int[16];
+    private int[] renderedFrames = new int[16];
+    private int depth;
+    private boolean apexSeen;
+
+    // Scratch space reused for every element, sorted by insertion sort
+    private String[] nsPrefixes = new String[8];
+    private String[] nsUris = new String[8];
+    private Attr[] attributes = new Attr[8];
+
+    DomCanonicalizer(CanonicalWriter writer) {
+        this(writer, null);
+    }
+
+    private DomCanonicalizer(CanonicalWriter writer, MessageDigest digest) {
+        this.writer = writer;
+        this.digest = digest;
+    }
+
+    /**
+     * Digests the canonical form of a document or element.
+     *
+     * @param node the document or apex element
+     * @param excluded an element left out with its subtree, or null
+     * @param digestMethod the XML-DSig digest method URI
+     * @return the digest
+     * @throws IllegalArgumentException if the digest method is not supported
+     */
+    static byte[] digest(Node node, Element excluded, String digestMethod) {
+        DomCanonicalizer canonicalizer = digesters.get().computeIfAbsent(digestMethod, DomCanonicalizer::forDigest);
+        // A failed run may have left bytes behind
+        canonicalizer.writer.reset();
+        canonicalizer.digest.reset();
+        canonicalizer.canonicalize(node, excluded);
+        return canonicalizer.digest.digest();
+    }
+
+    private static DomCanonicalizer forDigest(String digestMethod) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(SignatureAlgorithms.jcaDigestAlgorithm(digestMethod));
+            return new DomCanonicalizer(CanonicalWriter.to(digest), digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException("Digest method is not available: " + digestMethod, ex);
+        }
+    }
+
+    /**
+     * Writes the canonical form of a document or element and flushes the writer.
+     *
+     * @param node the document or apex element
+     * @param excluded an element left out with its subtree, or null
+     */
+    void canonicalize(Node node, Element excluded) {
+        declaredCount = 0;
+        renderedCount = 0;
+        depth = 0;
+        apexSeen = false;
+
+        Node current;
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+            inheritNamespaces(node.getParentNode());
+            current = node;
+        } else {
+            current = node.getFirstChild();
+        }
+        while (current != null) {
+            Node firstChild = null;
+            switch (current.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    if (current != excluded) {
+                        startElement((Element) current);
+                        firstChild = current.getFirstChild();
+                        if (firstChild == null) {
+                            endElement((Element) current);
+                        }
+                    }
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    if (depth > 0) {
+                        writer.writeText(((CharacterData) current).getData());
+                    }
+                    break;
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                    processingInstruction((ProcessingInstruction) current);
+                    break;
+                case Node.ENTITY_REFERENCE_NODE:
+                    // Rendered as its expansion, in documents parsed without expanding entity references
+                    firstChild = current.getFirstChild();
+                    break;
+                default:
+                    // Comments and document types are not rendered
+                    break;
+            }
+            current = firstChild != null ? firstChild : next(current, node);
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the node following a node without children in document order, closing the elements
+     *         left on the way up; null at the end of the canonicalized node
+     */
+    private Node next(Node current, Node node) {
+        while (current != node) {
+            Node sibling = current.getNextSibling();
+            if (sibling != null) {
+                return sibling;
+            }
+            current = current.getParentNode();
+            if (current.getNodeType() == Node.ELEMENT_NODE) {
+                endElement((Element) current);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Declares the namespaces in scope at the apex parent, outermost ancestor first.
+     */
+    private void inheritNamespaces(Node ancestor) {
+        if (ancestor == null || ancestor.getNodeType() != Node.ELEMENT_NODE) {
+            return;
+        }
+        inheritNamespaces(ancestor.getParentNode());
+        NamedNodeMap attributeMap = ancestor.getAttributes();
+        for (int i = 0, count = attributeMap.getLength(); i < count; i++) {
+            Attr attribute = (Attr) attributeMap.item(i);
+            if (XMLNS_NAMESPACE.equals(attribute.getNamespaceURI())) {
+                declare(attribute);
+            }
+        }
+        String namespace = ancestor.getNamespaceURI();
+        if (namespace != null) {
+            addDeclared(nullToEmpty(ancestor.getPrefix()), namespace);
+        }
+    }
+
+    private void startElement(Element element) {
+        apexSeen = true;
+        pushFrame();
+
+        // Namespace declarations go into scope, other attributes are rendered and utilize their prefix
+        NamedNodeMap attributeMap = element.getAttributes();
+        int attributeCount = 0;
+        int utilizedCount = 0;
+        for (int i = 0, count = attributeMap.getLength(); i < count; i++) {
+            Attr attribute = (Attr) attributeMap.item(i);
+            if (XMLNS_NAMESPACE.equals(attribute.getNamespaceURI())) {
+                declare(attribute);
+                continue;
+            }
+            if (attributeCount == attributes.length) {
+                attributes = Arrays.copyOf(attributes, attributeCount * 2);
+            }
+            attributes[attributeCount++] = attribute;
+            String prefix = attribute.getPrefix();
+            if (prefix != null && !XML_PREFIX.equals(prefix) && !XMLNS_PREFIX.equals(prefix)) {
+                utilizedCount = addUtilized(utilizedCount, prefix);
+            }
+        }
+        String prefix = element.getNamespaceURI() != null ? nullToEmpty(element.getPrefix()) : "";
+        utilizedCount = addUtilized(utilizedCount, prefix);
+
+        // Of the utilized namespaces, those declared and not rendered by an output ancestor
+        int nsCount = 0;
+        for (int i = 0; i < utilizedCount; i++) {
+            String utilized = nsPrefixes[i];
+            String uri = findDeclared(utilized);
+            if (uri != null && !uri.equals(findRendered(utilized))) {
+                nsPrefixes[nsCount] = utilized;
+                nsUris[nsCount++] = uri;
+            }
+        }
+
+        writer.write('<');
+        writer.write(element.getTagName());
+        // Declarations are sorted by prefix, the default namespace has the empty prefix and comes first
+        sortNamespaces(nsCount);
+        for (int i = 0; i < nsCount; i++) {
+            addRendered(nsPrefixes[i], nsUris[i]);
+            if (nsPrefixes[i].isEmpty()) {
+                writer.write(" xmlns=\"");
+            } else {
+                writer.write(" xmlns:");
+                writer.write(nsPrefixes[i]);
+                writer.write("=\"");
+            }
+            writer.writeAttributeValue(nsUris[i]);
+            writer.write('"');
+        }
+        sortAttributes(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            writer.write(' ');
+            writer.write(attributes[i].getName());
+            writer.write("=\"");
+            writer.writeAttributeValue(attributes[i].getValue());
+            writer.write('"');
+        }
+        writer.write('>');
+
+        // Attributes are not held on to beyond the element
+        Arrays.fill(attributes, 0, attributeCount, null);
+    }
+
+    private void endElement(Element element) {
+        writer.write("</");
+        writer.write(element.getTagName());
+        writer.write('>');
+        depth--;
+        declaredCount = declaredFrames[depth];
+        renderedCount = renderedFrames[depth];
+    }
+
+    private void processingInstruction(ProcessingInstruction pi) {
+        boolean documentLevel = depth == 0;
+        if (documentLevel && apexSeen) {
+            writer.write('\n');
+        }
+        writer.write("<?");
+        writer.write(pi.getTarget());
+        String data = pi.getData();
+        if (data != null && !data.isEmpty()) {
+            writer.write(' ');
+            writer.writeUnescaped(data);
+        }
+        writer.write("?>");
+        if (documentLevel && !apexSeen) {
+            writer.write('\n');
+        }
+    }
+
+    private void declare(Attr declaration) {
+        String localName = declaration.getLocalName();
+        String uri = declaration.getValue();
+        if (XML_PREFIX.equals(localName) && XML_NAMESPACE.equals(uri)) {
+            // The xml prefix is bound implicitly and never rendered
+            return;
+        }
+        addDeclared(XMLNS_PREFIX.equals(localName) ? "" : localName, uri);
+    }
+
+    private int addUtilized(int count, String prefix) {
+        for (int i = 0; i < count; i++) {
+            if (nsPrefixes[i].equals(prefix)) {
+                return count;
+            }
+        }
+        if (count == nsPrefixes.length) {
+            nsPrefixes = Arrays.copyOf(nsPrefixes, count * 2);
+            nsUris = Arrays.copyOf(nsUris, count * 2);
+        }
+        nsPrefixes[count] = prefix;
+        return count + 1;
+    }
+
+    private String findDeclared(String prefix) {
+        for (int i = declaredCount - 1; i >= 0; i--) {
+            if (declaredPrefixes[i].equals(prefix)) {
+                return declaredUris[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the URI last rendered for a prefix; the default namespace starts out rendered as empty
+     */
+    private String findRendered(String prefix) {
+        for (int i = renderedCount - 1; i >= 0; i--) {
+            if (renderedPrefixes[i].equals(prefix)) {
+                return renderedUris[i];
+            }
+        }
+        return prefix.isEmpty() ? "" : null;
+    }
+
+    private void addDeclared(String prefix, String uri) {
+        if (declaredCount == declaredPrefixes.length) {
+            declaredPrefixes = Arrays.copyOf(declaredPrefixes, declaredCount * 2);
+            declaredUris = Arrays.copyOf(declaredUris, declaredCount * 2);
+        }
+        declaredPrefixes[declaredCount] = prefix;
+        declaredUris[declaredCount++] = uri;
+    }
+
+    private void addRendered(String prefix, String uri) {
+        if (renderedCount == renderedPrefixes.length) {
+            renderedPrefixes = Arrays.copyOf(renderedPrefixes, renderedCount * 2);
+            renderedUris = Arrays.copyOf(renderedUris, renderedCount * 2);
+        }
+        renderedPrefixes[renderedCount] = prefix;
+        renderedUris[renderedCount++] = uri;
+    }
+
+    private void pushFrame() {
+        if (depth == declaredFrames.length) {
+            declaredFrames = Arrays.copyOf(declaredFrames, depth * 2);
+            renderedFrames = Arrays.copyOf(renderedFrames, depth * 2);
+        }
+        declaredFrames[depth] = declaredCount;
+        renderedFrames[depth++] = renderedCount;
+    }
+
+    private void sortNamespaces(int count) {
+        for (int i = 1; i < count; i++) {
+            String prefix = nsPrefixes[i];
+            String uri = nsUris[i];
+            int j = i - 1;
+            while (j >= 0 && nsPrefixes[j].compareTo(prefix) > 0) {
+                nsPrefixes[j + 1] = nsPrefixes[j];
+                nsUris[j + 1] = nsUris[j];
+                j--;
+            }
+            nsPrefixes[j + 1] = prefix;
+            nsUris[j + 1] = uri;
+        }
+    }
+
+    private void sortAttributes(int count) {
+        for (int i = 1; i < count; i++) {
+            Attr attribute = attributes[i];
+            int j = i - 1;
+            while (j >= 0 && compareAttributes(attributes[j], attribute) > 0) {
+                attributes[j + 1] = attributes[j];
+                j--;
+            }
+            attributes[j + 1] = attribute;
+        }
+    }
+
+    /**
+     * Attributes without a namespace come first, by qualified name, then by namespace URI and
+     * local name.
+     */
+    private static int compareAttributes(Attr a, Attr b) {
+        String namespaceA = a.getNamespaceURI();
+        String namespaceB = b.getNamespaceURI();
+        if (namespaceA == null) {
+            return namespaceB == null ? a.getName().compareTo(b.getName()) : -1;
+        }
+        if (namespaceB == null) {
+            return 1;
+        }
+        int byNamespace = namespaceA.compareTo(namespaceB);
+        return byNamespace != 0 ? byNamespace : a.getLocalName().compareTo(b.getLocalName());
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
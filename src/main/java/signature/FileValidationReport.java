@@ -0,0 +1,43 @@
+package signature;
+
+import java.nio.file.Path;
+
+/**
+ * Validation outcome of one file of a {@link DirectoryVerifier} scan.
+ */
+public final class FileValidationReport {
+
+    private final Path path;
+    private final ValidationReport report;
+
+    FileValidationReport(Path path, ValidationReport report) {
+        this.path = path;
+        this.report = report;
+    }
+
+    /**
+     * @return the validated file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the per-signature report; holds the failure if the file could not be read or parsed
+     */
+    public ValidationReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return true if the file has signatures and all of them are valid
+     */
+    public boolean isValid() {
+        return report.isValid();
+    }
+
+    @Override
+    public String toString() {
+        return "FileValidationReport{path=" + path + ", report=" + report + '}';
+    }
+}
@@ -0,0 +1,74 @@
+package signature;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * Key types supported for signing, with their matching XML-DSig signature method.
+ * <p>
+ * ECDSA and Ed25519 sign far faster than RSA at a comparable security level. The JDK XML-DSig
+ * implementation handles RSA and ECDSA; Ed25519 signatures are only produced and verified by
+ * {@link StreamingSigner} and {@link StreamingVerifier}.
+ */
+public enum KeyAlgorithm {
+
+    RSA_2048("RSA", 2048, null, SignatureAlgorithms.RSA_SHA256),
+    RSA_3072("RSA", 3072, null, SignatureAlgorithms.RSA_SHA256),
+    EC_P256("EC", 0, "secp256r1", SignatureAlgorithms.ECDSA_SHA256),
+    EC_P384("EC", 0, "secp384r1", SignatureAlgorithms.ECDSA_SHA384),
+    ED25519("Ed25519", 0, null, SignatureAlgorithms.EDDSA_ED25519);
+
+    private final String jcaName;
+    private final int keySize;
+    private final String curve;
+    private final String signatureMethod;
+
+    KeyAlgorithm(String jcaName, int keySize, String curve, String signatureMethod) {
+        this.jcaName = jcaName;
+        this.keySize = keySize;
+        this.curve = curve;
+        this.signatureMethod = signatureMethod;
+    }
+
+    /**
+     * @return the JCA key algorithm name, used for KeyPairGenerator and KeyFactory
+     */
+    public String getJcaName() {
+        return jcaName;
+    }
+
+    /**
+     * @return the XML-DSig signature method URI to sign with keys of this type
+     */
+    public String getSignatureMethod() {
+        return signatureMethod;
+    }
+
+    /**
+     * @return whether JSR-105, and thus the DOM based {@link XMLSignatureUtil}, supports the signature method
+     */
+    public boolean isSupportedByXmlDsig() {
+        return this != ED25519;
+    }
+
+    KeyPairGenerator newKeyPairGenerator() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(jcaName);
+        try {
+            if (curve != null) {
+                generator.initialize(new ECGenParameterSpec(curve));
+            } else if (keySize > 0) {
+                generator.initialize(keySize);
+            }
+        } catch (InvalidAlgorithmParameterException ex) {
+            throw new NoSuchAlgorithmException("Curve " + curve + " is not available", ex);
+        }
+        return generator;
+    }
+
+    @Override
+    public String toString() {
+        return curve != null ? jcaName + " " + curve : keySize > 0 ? jcaName + " " + keySize : jcaName;
+    }
+}
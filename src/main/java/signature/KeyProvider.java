@@ -0,0 +1,477 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Loads key material once and serves it from memory, keyed by alias.
+ * <p>
+ * Keys come from PKCS8/X509 key files, X509 certificate files and JKS/PKCS12 keystores. All
+ * sources are read when the provider is built; lookups afterwards are lock-free map reads without
+ * disk I/O. Optionally the files are watched and a source is reloaded when one of its files is
+ * written or replaced. A reload that fails, e.g. on a half-written file, keeps the previous keys.
+ * <p>
+ * Signing profiles hold on to their key pair, so rebuild them from a reload listener to pick up
+ * rotated keys. Instances are thread-safe.
+ */
+public final class KeyProvider implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyProvider.class);
+
+    // Files are often written in several chunks, events within this delay are handled together
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final KryptoUtil kryptoUtil = new KryptoUtil();
+    private final List<KeySource> sources;
+    private final Map<KeySource, Map<String, KeyEntry>> loaded = new LinkedHashMap<>();
+    private final List<Consumer<Set<String>>> reloadListeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private volatile Map<String, KeyEntry> entries;
+
+    private KeyProvider(Builder builder) throws IOException, GeneralSecurityException {
+        this.sources = List.copyOf(builder.sources);
+        for (KeySource source : sources) {
+            loaded.put(source, source.load(kryptoUtil));
+        }
+        this.entries = merge();
+        logger.debug("Loaded {} key aliases from {} sources", entries.size(), sources.size());
+
+        if (builder.watchForChanges) {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            startWatching();
+        } else {
+            this.watchService = null;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the aliases of all loaded keys and certificates
+     */
+    public Set<String> getAliases() {
+        return entries.keySet();
+    }
+
+    /**
+     * @param alias the key alias
+     * @return the private key, or null if the alias has only a public key or certificate
+     * @throws IllegalArgumentException if the alias is unknown
+     */
+    public PrivateKey getPrivateKey(String alias) {
+        return entry(alias).privateKey;
+    }
+
+    /**
+     * @param alias the key alias
+     * @return the public key, taken from the certificate if there is no public key file
+     * @throws IllegalArgumentException if the alias is unknown
+     */
+    public PublicKey getPublicKey(String alias) {
+        return entry(alias).publicKey;
+    }
+
+    /**
+     * @param alias the key alias
+     * @return the certificate, or null if the alias has none
+     * @throws IllegalArgumentException if the alias is unknown
+     */
+    public X509Certificate getCertificate(String alias) {
+        return entry(alias).certificate;
+    }
+
+    /**
+     * @param alias the key alias
+     * @return the key pair, the same instance until the alias is reloaded
+     * @throws IllegalArgumentException if the alias is unknown or lacks the private or public key
+     */
+    public KeyPair getKeyPair(String alias) {
+        KeyPair keyPair = entry(alias).keyPair;
+        if (keyPair == null) {
+            throw new IllegalArgumentException("Alias has no complete key pair: " + alias);
+        }
+        return keyPair;
+    }
+
+    /**
+     * Starts a signing profile with the key pair and certificate of an alias.
+     *
+     * @param alias the key alias
+     * @return a profile builder, algorithms still have to be set
+     * @throws IllegalArgumentException if the alias is unknown or lacks the private or public key
+     */
+    public SigningProfile.Builder profileBuilder(String alias) {
+        return SigningProfile.builder()
+                .keyPair(getKeyPair(alias))
+                .x509Certificate(getCertificate(alias));
+    }
+
+    /**
+     * Registers a listener called with the aliases of every source that has been reloaded.
+     *
+     * @param listener the listener, called on the watcher thread or the thread calling {@link #reload()}
+     */
+    public void addReloadListener(Consumer<Set<String>> listener) {
+        reloadListeners.add(Objects.requireNonNull(listener, "Listener cannot be null"));
+    }
+
+    /**
+     * Reloads all sources now.
+     *
+     * @throws IOException if a file cannot be read, the previous keys are kept
+     * @throws GeneralSecurityException if key material cannot be decoded, the previous keys are kept
+     */
+    public void reload() throws IOException, GeneralSecurityException {
+        reload(sources);
+    }
+
+    /**
+     * Stops watching the files. Loaded keys remain available.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private KeyEntry entry(String alias) {
+        KeyEntry entry = entries.get(alias);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown key alias: " + alias);
+        }
+        return entry;
+    }
+
+    private void reload(List<KeySource> changed) throws IOException, GeneralSecurityException {
+        Set<String> aliases = new HashSet<>();
+        synchronized (loaded) {
+            // Load everything first so that a failing source leaves all keys unchanged
+            Map<KeySource, Map<String, KeyEntry>> reloaded = new LinkedHashMap<>();
+            for (KeySource source : changed) {
+                reloaded.put(source, source.load(kryptoUtil));
+            }
+            reloaded.forEach((source, sourceEntries) -> {
+                aliases.addAll(loaded.get(source).keySet());
+                aliases.addAll(sourceEntries.keySet());
+            });
+            loaded.putAll(reloaded);
+            entries = merge();
+        }
+        logger.info("Reloaded key aliases {}", aliases);
+        Set<String> unmodifiable = Collections.unmodifiableSet(aliases);
+        for (Consumer<Set<String>> listener : reloadListeners) {
+            listener.accept(unmodifiable);
+        }
+    }
+
+    /**
+     * Combines the entries of all sources, later sources fill in or replace parts of an alias.
+     */
+    private Map<String, KeyEntry> merge() {
+        Map<String, KeyEntry> merged = new LinkedHashMap<>();
+        for (Map<String, KeyEntry> sourceEntries : loaded.values()) {
+            sourceEntries.forEach((alias, entry) -> merged.merge(alias, entry, KeyEntry::overriddenBy));
+        }
+        return Collections.unmodifiableMap(merged);
+    }
+
+    private void startWatching() throws IOException {
+        Set<Path> directories = new HashSet<>();
+        for (KeySource source : sources) {
+            for (Path file : source.files()) {
+                directories.add(file.getParent());
+            }
+        }
+        for (Path directory : directories) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+
+        Thread watcher = new Thread(this::watch, "key-provider-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Set<Path> changedFiles = new HashSet<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path) {
+                            changedFiles.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                reloadChanged(changedFiles);
+            }
+        } catch (ClosedWatchServiceException ex) {
+            logger.debug("Stopped watching key files");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reloadChanged(Set<Path> changedFiles) {
+        List<KeySource> changed = new ArrayList<>();
+        for (KeySource source : sources) {
+            if (!Collections.disjoint(source.files(), changedFiles)) {
+                changed.add(source);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            reload(changed);
+        } catch (IOException | GeneralSecurityException | RuntimeException ex) {
+            logger.warn("Cannot reload key files {}, keeping the previous keys: {}", changedFiles, ex.getMessage());
+        }
+    }
+
+    /**
+     * Keys and certificate known under one alias.
+     */
+    private static final class KeyEntry {
+        final PrivateKey privateKey;
+        final PublicKey publicKey;
+        final X509Certificate certificate;
+        final KeyPair keyPair;
+
+        KeyEntry(PrivateKey privateKey, PublicKey publicKey, X509Certificate certificate) {
+            this.privateKey = privateKey;
+            this.publicKey = publicKey != null || certificate == null ? publicKey : certificate.getPublicKey();
+            this.certificate = certificate;
+            this.keyPair = privateKey != null && this.publicKey != null ? new KeyPair(this.publicKey, privateKey) : null;
+        }
+
+        KeyEntry overriddenBy(KeyEntry other) {
+            return new KeyEntry(
+                    other.privateKey != null ? other.privateKey : privateKey,
+                    other.publicKey != null ? other.publicKey : publicKey,
+                    other.certificate != null ? other.certificate : certificate);
+        }
+    }
+
+    /**
+     * A set of files that are loaded and reloaded together.
+     */
+    private interface KeySource {
+        Set<Path> files();
+
+        Map<String, KeyEntry> load(KryptoUtil kryptoUtil) throws IOException, GeneralSecurityException;
+    }
+
+    private static final class KeyFileSource implements KeySource {
+        private final String alias;
+        private final Path privateKeyFile;
+        private final Path publicKeyFile;
+        private final Path certificateFile;
+
+        KeyFileSource(String alias, Path privateKeyFile, Path publicKeyFile, Path certificateFile) {
+            this.alias = alias;
+            this.privateKeyFile = privateKeyFile;
+            this.publicKeyFile = publicKeyFile;
+            this.certificateFile = certificateFile;
+        }
+
+        @Override
+        public Set<Path> files() {
+            Set<Path> files = new HashSet<>();
+            for (Path file : new Path[]{privateKeyFile, publicKeyFile, certificateFile}) {
+                if (file != null) {
+                    files.add(file);
+                }
+            }
+            return files;
+        }
+
+        @Override
+        public Map<String, KeyEntry> load(KryptoUtil kryptoUtil) throws IOException, GeneralSecurityException {
+            PrivateKey privateKey = privateKeyFile == null ? null
+                    : KryptoUtil.decodePrivateKey(Files.readAllBytes(privateKeyFile));
+            PublicKey publicKey = publicKeyFile == null ? null
+                    : KryptoUtil.decodePublicKey(Files.readAllBytes(publicKeyFile));
+            X509Certificate certificate = certificateFile == null ? null
+                    : kryptoUtil.loadCertificate(certificateFile);
+            return Map.of(alias, new KeyEntry(privateKey, publicKey, certificate));
+        }
+    }
+
+    private static final class KeyStoreSource implements KeySource {
+        private final Path file;
+        private final char[] storePassword;
+        private final char[] keyPassword;
+
+        KeyStoreSource(Path file, char[] storePassword, char[] keyPassword) {
+            this.file = file;
+            this.storePassword = storePassword;
+            this.keyPassword = keyPassword;
+        }
+
+        @Override
+        public Set<Path> files() {
+            return Set.of(file);
+        }
+
+        @Override
+        public Map<String, KeyEntry> load(KryptoUtil kryptoUtil) throws IOException, GeneralSecurityException {
+            KeyStore keyStore = kryptoUtil.loadKeyStore(file, storePassword);
+            Map<String, KeyEntry> storeEntries = new LinkedHashMap<>();
+            for (Enumeration<String> aliases = keyStore.aliases(); aliases.hasMoreElements(); ) {
+                String alias = aliases.nextElement();
+                Certificate certificate = keyStore.getCertificate(alias);
+                X509Certificate x509Certificate = certificate instanceof X509Certificate
+                        ? (X509Certificate) certificate
+                        : null;
+                PrivateKey privateKey = null;
+                if (keyStore.isKeyEntry(alias)) {
+                    Key key = keyStore.getKey(alias, keyPassword);
+                    if (!(key instanceof PrivateKey)) {
+                        // Secret keys are of no use for XML signatures
+                        continue;
+                    }
+                    privateKey = (PrivateKey) key;
+                }
+                storeEntries.put(alias, new KeyEntry(privateKey, null, x509Certificate));
+            }
+            return storeEntries;
+        }
+    }
+
+    /**
+     * Builder for {@link KeyProvider}. Sources are loaded in the order they are added.
+     */
+    public static final class Builder {
+        private final List<KeySource> sources = new ArrayList<>();
+        private boolean watchForChanges;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a key pair stored as PKCS8 private key and X509 public key files, as written by
+         * {@link KryptoUtil#storeKeyPairs(String)}.
+         *
+         * @param alias the alias to serve the keys under
+         * @param privateKeyFile the PKCS8 private key file
+         * @param publicKeyFile the X509 public key file, may be null
+         * @return this builder
+         */
+        public Builder keyFiles(String alias, Path privateKeyFile, Path publicKeyFile) {
+            sources.add(new KeyFileSource(requireAlias(alias), absolute(privateKeyFile),
+                    publicKeyFile == null ? null : absolute(publicKeyFile), null));
+            return this;
+        }
+
+        /**
+         * Adds an X509 certificate file, DER or PEM encoded. Combined with {@link #keyFiles} under
+         * the same alias it completes the key pair with its certificate.
+         *
+         * @param alias the alias to serve the certificate under
+         * @param certificateFile the certificate file
+         * @return this builder
+         */
+        public Builder certificateFile(String alias, Path certificateFile) {
+            sources.add(new KeyFileSource(requireAlias(alias), null, null, absolute(certificateFile)));
+            return this;
+        }
+
+        /**
+         * Adds all private key and certificate entries of a JKS or PKCS12 keystore under their aliases.
+         *
+         * @param keyStoreFile the keystore file
+         * @param storePassword the keystore password, also used for the keys
+         * @return this builder
+         */
+        public Builder keyStore(Path keyStoreFile, char[] storePassword) {
+            return keyStore(keyStoreFile, storePassword, storePassword);
+        }
+
+        /**
+         * Adds all private key and certificate entries of a JKS or PKCS12 keystore under their aliases.
+         *
+         * @param keyStoreFile the keystore file
+         * @param storePassword the keystore password
+         * @param keyPassword the password of the private keys
+         * @return this builder
+         */
+        public Builder keyStore(Path keyStoreFile, char[] storePassword, char[] keyPassword) {
+            Objects.requireNonNull(storePassword, "Keystore password cannot be null");
+            Objects.requireNonNull(keyPassword, "Key password cannot be null");
+            sources.add(new KeyStoreSource(absolute(keyStoreFile), storePassword.clone(), keyPassword.clone()));
+            return this;
+        }
+
+        /**
+         * @param watchForChanges whether files are reloaded when they change, defaults to false
+         * @return this builder
+         */
+        public Builder watchForChanges(boolean watchForChanges) {
+            this.watchForChanges = watchForChanges;
+            return this;
+        }
+
+        /**
+         * Loads all sources.
+         *
+         * @return the KeyProvider
+         * @throws IOException if a file cannot be read
+         * @throws GeneralSecurityException if key material cannot be decoded
+         */
+        public KeyProvider build() throws IOException, GeneralSecurityException {
+            if (sources.isEmpty()) {
+                throw new IllegalArgumentException("At least one key source is required");
+            }
+            return new KeyProvider(this);
+        }
+
+        private static String requireAlias(String alias) {
+            if (alias == null || alias.isEmpty()) {
+                throw new IllegalArgumentException("Alias cannot be empty");
+            }
+            return alias;
+        }
+
+        private static Path absolute(Path file) {
+            return Objects.requireNonNull(file, "File cannot be null").toAbsolutePath().normalize();
+        }
+    }
+}
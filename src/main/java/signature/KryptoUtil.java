@@ -4,39 +4,73 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.GeneralSecurityException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 
 /**
  * Utility class for cryptographic key operations.
- * Provides methods for generating, storing, and retrieving RSA key pairs.
+ * Provides methods for generating, storing, and retrieving RSA, EC and Ed25519 key pairs, and
+ * for loading keystores and certificates. Use {@link KeyProvider} to load key material once and cache it.
  */
 public class KryptoUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(KryptoUtil.class);
 
-    private static final String ALGORITHM = "RSA";
-    private static final int KEY_SIZE = 2048;
+    // Key algorithms tried, in order, when decoding key files of unknown type
+    private static final String[] KEY_ALGORITHMS = {"RSA", "EC", "Ed25519"};
+
+    private final KeyAlgorithm keyAlgorithm;
+
+    /**
+     * Creates a KryptoUtil for RSA 2048 bit keys.
+     */
+    public KryptoUtil() {
+        this(KeyAlgorithm.RSA_2048);
+    }
+
+    /**
+     * Creates a KryptoUtil for the given key type.
+     *
+     * @param keyAlgorithm the type of keys generated and loaded
+     */
+    public KryptoUtil(KeyAlgorithm keyAlgorithm) {
+        if (keyAlgorithm == null) {
+            throw new IllegalArgumentException("Key algorithm cannot be null");
+        }
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    /**
+     * @return the type of keys generated and loaded
+     */
+    public KeyAlgorithm getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
 
     /**
-     * Generates a new RSA key pair.
+     * Generates a new key pair.
      *
      * @return the generated KeyPair
-     * @throws NoSuchAlgorithmException if RSA algorithm is not available
+     * @throws NoSuchAlgorithmException if the key algorithm is not available
      */
     public KeyPair generateKeyPairs() throws NoSuchAlgorithmException {
-        logger.debug("Generating {} key pair with {} bit key size", ALGORITHM, KEY_SIZE);
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance(ALGORITHM);
-        keyGen.initialize(KEY_SIZE);
+        logger.debug("Generating {} key pair", keyAlgorithm);
+        KeyPairGenerator keyGen = keyAlgorithm.newKeyPairGenerator();
         return keyGen.generateKeyPair();
     }
 
@@ -44,7 +78,7 @@ public class KryptoUtil {
      * Generates and stores a key pair to the specified directory.
      *
      * @param dirPath directory path to store the keys
-     * @throws NoSuchAlgorithmException if RSA algorithm is not available
+     * @throws NoSuchAlgorithmException if the key algorithm is not available
      * @throws IOException if key files cannot be written
      */
     public void storeKeyPairs(String dirPath) throws NoSuchAlgorithmException, IOException {
@@ -76,13 +110,13 @@ public class KryptoUtil {
      * @param filePath path to the private key file
      * @return the PrivateKey
      * @throws IOException if the file cannot be read
-     * @throws NoSuchAlgorithmException if RSA algorithm is not available
+     * @throws NoSuchAlgorithmException if the key algorithm is not available
      * @throws InvalidKeySpecException if the key specification is invalid
      */
     public PrivateKey getStoredPrivateKey(String filePath) throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
         byte[] keyData = Files.readAllBytes(Path.of(filePath));
         PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyData);
-        KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
+        KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm.getJcaName());
         logger.debug("Private key loaded from {}", filePath);
         return keyFactory.generatePrivate(keySpec);
     }
@@ -93,14 +127,76 @@ public class KryptoUtil {
      * @param filePath path to the public key file
      * @return the PublicKey
      * @throws IOException if the file cannot be read
-     * @throws NoSuchAlgorithmException if RSA algorithm is not available
+     * @throws NoSuchAlgorithmException if the key algorithm is not available
      * @throws InvalidKeySpecException if the key specification is invalid
      */
     public PublicKey getStoredPublicKey(String filePath) throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
         byte[] keyData = Files.readAllBytes(Path.of(filePath));
         X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyData);
-        KeyFactory keyFactory = KeyFactory.getInstance(ALGORITHM);
+        KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm.getJcaName());
         logger.debug("Public key loaded from {}", filePath);
         return keyFactory.generatePublic(keySpec);
     }
+
+    /**
+     * Loads a keystore. The type, JKS or PKCS12, is detected from the file content.
+     *
+     * @param filePath path to the keystore file
+     * @param password the keystore password
+     * @return the loaded KeyStore
+     * @throws IOException if the file cannot be read or the password is wrong
+     * @throws GeneralSecurityException if the keystore type is not supported
+     */
+    public KeyStore loadKeyStore(Path filePath, char[] password) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(filePath.toFile(), password);
+        logger.debug("{} keystore loaded from {}", keyStore.getType(), filePath);
+        return keyStore;
+    }
+
+    /**
+     * Loads an X509 certificate, DER or PEM encoded.
+     *
+     * @param filePath path to the certificate file
+     * @return the X509Certificate
+     * @throws IOException if the file cannot be read
+     * @throws CertificateException if the certificate cannot be parsed
+     */
+    public X509Certificate loadCertificate(Path filePath) throws IOException, CertificateException {
+        try (InputStream is = Files.newInputStream(filePath)) {
+            X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(is);
+            logger.debug("Certificate {} loaded from {}", certificate.getSubjectX500Principal(), filePath);
+            return certificate;
+        }
+    }
+
+    /**
+     * Decodes a PKCS8 private key of any supported algorithm.
+     */
+    static PrivateKey decodePrivateKey(byte[] keyData) throws InvalidKeySpecException {
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(keyData);
+        for (String algorithm : KEY_ALGORITHMS) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePrivate(keySpec);
+            } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+                logger.trace("Private key is not {}: {}", algorithm, ex.getMessage());
+            }
+        }
+        throw new InvalidKeySpecException("Unsupported PKCS8 private key");
+    }
+
+    /**
+     * Decodes an X509 public key of any supported algorithm.
+     */
+    static PublicKey decodePublicKey(byte[] keyData) throws InvalidKeySpecException {
+        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(keyData);
+        for (String algorithm : KEY_ALGORITHMS) {
+            try {
+                return KeyFactory.getInstance(algorithm).generatePublic(keySpec);
+            } catch (NoSuchAlgorithmException | InvalidKeySpecException ex) {
+                logger.trace("Public key is not {}: {}", algorithm, ex.getMessage());
+            }
+        }
+        throw new InvalidKeySpecException("Unsupported X509 public key");
+    }
 }
@@ -0,0 +1,180 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Signs a batch of documents with a single private key operation.
+ * <p>
+ * Every document is digested on its own, the digests are the leaves of a Merkle tree and only its
+ * root is signed, as an enveloped XML signature over a small {@code BatchRoot} element. Each
+ * document then gets a detached proof (see {@link SignedBatch#proof(int)}): the signed root plus
+ * the sibling digests on the path from the document's leaf to the root. A proof is verified on its
+ * own with {@link BatchProofVerifier}, without the other documents of the batch, at the cost of
+ * one signature verification and {@code log2(n)} digests.
+ * <p>
+ * Leaves are {@code H(0x00 || H(document))} and inner nodes {@code H(0x01 || left || right)}, so a
+ * leaf can never be passed off as an inner node; a node without a sibling is promoted unchanged to
+ * the next level. {@code H} is the digest method of the signing profile. Documents are digested as
+ * the exact bytes shipped, so they must not be re-serialized after signing.
+ * <p>
+ * A {@code ds:Manifest} was not used: JSR-105 secure validation allows at most 30 references per
+ * Manifest, and a Manifest based proof would carry the digests of the whole batch.
+ * Instances are thread-safe.
+ */
+public class MerkleBatchSigner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MerkleBatchSigner.class);
+
+    static final String NAMESPACE = "urn:xstream-poc:batch";
+    static final String ROOT_ID = "batch-root";
+
+    private static final byte LEAF_PREFIX = 0;
+    private static final byte NODE_PREFIX = 1;
+
+    private final SigningProfile profile;
+
+    /**
+     * Creates a batch signer. The reference URI strategy of the profile is not used, the signed
+     * root is always referenced by ID.
+     *
+     * @param profile the signing profile; its digest method is also used for the tree
+     */
+    public MerkleBatchSigner(SigningProfile profile) {
+        this.profile = Objects.requireNonNull(profile, "Signing profile cannot be null");
+        // Fail fast on digest methods without a JCA counterpart
+        newDigest(profile.getDigestMethod());
+    }
+
+    /**
+     * Signs documents held in memory.
+     *
+     * @param documents the documents as shipped
+     * @return the signed batch, proofs are in list order
+     */
+    public SignedBatch sign(List<byte[]> documents)
+            throws ParserConfigurationException, MarshalException, XMLSignatureException {
+        if (documents.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        MessageDigest digest = newDigest(profile.getDigestMethod());
+        byte[][] leaves = new byte[documents.size()][];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = leaf(digest, digest.digest(documents.get(i)));
+        }
+        return signLeaves(digest, leaves);
+    }
+
+    /**
+     * Signs files. Files are streamed through the digest and never held in memory as a whole.
+     *
+     * @param files the files as shipped
+     * @return the signed batch, proofs are in iteration order
+     * @throws IOException if a file cannot be read
+     */
+    public SignedBatch signFiles(Collection<Path> files)
+            throws IOException, ParserConfigurationException, MarshalException, XMLSignatureException {
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        MessageDigest digest = newDigest(profile.getDigestMethod());
+        byte[] buffer = new byte[8192];
+        byte[][] leaves = new byte[files.size()][];
+        int i = 0;
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            leaves[i++] = leaf(digest, digest.digest());
+        }
+        return signLeaves(digest, leaves);
+    }
+
+    private SignedBatch signLeaves(MessageDigest digest, byte[][] leaves)
+            throws ParserConfigurationException, MarshalException, XMLSignatureException {
+        List<byte[][]> levels = buildTree(digest, leaves);
+        byte[] root = levels.get(levels.size() - 1)[0];
+
+        Document rootDocument = DocumentUtil.createDocument();
+        Element batchRoot = rootDocument.createElementNS(NAMESPACE, "BatchRoot");
+        // Canonicalization only sees namespace declarations present as attributes
+        batchRoot.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, XMLConstants.XMLNS_ATTRIBUTE, NAMESPACE);
+        batchRoot.setAttributeNS(null, "Id", ROOT_ID);
+        batchRoot.setAttributeNS(null, "Count", Integer.toString(leaves.length));
+        batchRoot.setAttributeNS(null, "DigestMethod", profile.getDigestMethod());
+        batchRoot.setIdAttributeNS(null, "Id", true);
+        Element rootDigest = rootDocument.createElementNS(NAMESPACE, "RootDigest");
+        rootDigest.setTextContent(Base64.getEncoder().encodeToString(root));
+        batchRoot.appendChild(rootDigest);
+        rootDocument.appendChild(batchRoot);
+
+        XMLSignatureUtil.signInPlace(batchRoot, "#" + ROOT_ID, profile);
+        logger.debug("Signed batch of {} documents", leaves.length);
+        return new SignedBatch(rootDocument, levels);
+    }
+
+    /**
+     * @return the levels of the tree, leaves first and the single root last
+     */
+    private static List<byte[][]> buildTree(MessageDigest digest, byte[][] leaves) {
+        List<byte[][]> levels = new ArrayList<>();
+        byte[][] level = leaves;
+        levels.add(level);
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                int left = 2 * i;
+                parent[i] = left + 1 < level.length ? node(digest, level[left], level[left + 1]) : level[left];
+            }
+            level = parent;
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    static byte[] leaf(MessageDigest digest, byte[] documentDigest) {
+        digest.update(LEAF_PREFIX);
+        return digest.digest(documentDigest);
+    }
+
+    static byte[] leaf(MessageDigest digest, ByteBuffer document) {
+        digest.update(document.duplicate());
+        return leaf(digest, digest.digest());
+    }
+
+    static byte[] node(MessageDigest digest, byte[] left, byte[] right) {
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        return digest.digest(right);
+    }
+
+    static MessageDigest newDigest(String digestMethod) {
+        try {
+            return MessageDigest.getInstance(SignatureAlgorithms.jcaDigestAlgorithm(digestMethod));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException("Digest method is not available: " + digestMethod, ex);
+        }
+    }
+}
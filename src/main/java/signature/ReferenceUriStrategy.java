@@ -0,0 +1,63 @@
+package signature;
+
+import org.w3c.dom.Element;
+
+/**
+ * Determines the URI of the {@code Reference} created for a signed element.
+ */
+@FunctionalInterface
+public interface ReferenceUriStrategy {
+
+    /**
+     * Returns the reference URI for an element. Implementations may prepare the element
+     * for dereferencing, e.g. by registering its ID attribute.
+     *
+     * @param signedElement the element being signed
+     * @return the reference URI
+     */
+    String referenceURI(Element signedElement);
+
+    /**
+     * References the whole document ({@code URI=""}).
+     *
+     * @return the strategy
+     */
+    static ReferenceUriStrategy wholeDocument() {
+        return fixed("");
+    }
+
+    /**
+     * Always uses the same reference URI.
+     *
+     * @param referenceURI the reference URI
+     * @return the strategy
+     */
+    static ReferenceUriStrategy fixed(String referenceURI) {
+        if (referenceURI == null) {
+            throw new IllegalArgumentException("Reference URI cannot be null");
+        }
+        return signedElement -> referenceURI;
+    }
+
+    /**
+     * References the signed element by the value of an ID attribute ({@code URI="#value"}).
+     * The attribute is registered as ID attribute so that the reference can be dereferenced.
+     *
+     * @param attributeName the name of the ID attribute, e.g. {@code ID}
+     * @return the strategy
+     */
+    static ReferenceUriStrategy idAttribute(String attributeName) {
+        if (attributeName == null || attributeName.isEmpty()) {
+            throw new IllegalArgumentException("ID attribute name cannot be empty");
+        }
+        return signedElement -> {
+            String id = signedElement.getAttribute(attributeName);
+            if (id.isEmpty()) {
+                throw new IllegalArgumentException("Element " + signedElement.getTagName()
+                        + " has no " + attributeName + " attribute");
+            }
+            signedElement.setIdAttribute(attributeName, true);
+            return "#" + id;
+        };
+    }
+}
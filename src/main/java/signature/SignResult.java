@@ -0,0 +1,60 @@
+package signature;
+
+import org.w3c.dom.Document;
+
+/**
+ * Outcome of signing one document of a batch.
+ * Either holds the signed document or the exception that made signing fail.
+ */
+public final class SignResult {
+
+    private final int index;
+    private final Document document;
+    private final Exception failure;
+
+    private SignResult(int index, Document document, Exception failure) {
+        this.index = index;
+        this.document = document;
+        this.failure = failure;
+    }
+
+    static SignResult success(int index, Document document) {
+        return new SignResult(index, document, null);
+    }
+
+    static SignResult failure(int index, Exception failure) {
+        return new SignResult(index, null, failure);
+    }
+
+    /**
+     * @return the position of the document in the submitted batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the signed document, or null if signing failed
+     */
+    public Document getDocument() {
+        return document;
+    }
+
+    /**
+     * @return the exception that made signing fail, or null on success
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess()
+                ? "SignResult{index=" + index + ", success}"
+                : "SignResult{index=" + index + ", failure=" + failure + '}';
+    }
+}
@@ -0,0 +1,97 @@
+package signature;
+
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.SignatureMethod;
+import java.security.Key;
+import java.util.Map;
+
+/**
+ * Maps XML-DSig algorithm URIs to JCA algorithm names, for the code paths that
+ * compute digests and signature values without the JSR-105 API.
+ */
+final class SignatureAlgorithms {
+
+    static final String RSA_SHA256 = "http://www.w3.org/2001/04/xmldsig-more#rsa-sha256";
+    static final String RSA_SHA384 = "http://www.w3.org/2001/04/xmldsig-more#rsa-sha384";
+    static final String RSA_SHA512 = "http://www.w3.org/2001/04/xmldsig-more#rsa-sha512";
+    static final String ECDSA_SHA256 = "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha256";
+    static final String ECDSA_SHA384 = "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha384";
+    static final String ECDSA_SHA512 = "http://www.w3.org/2001/04/xmldsig-more#ecdsa-sha512";
+    static final String EDDSA_ED25519 = "http://www.w3.org/2021/04/xmldsig-more#eddsa-ed25519";
+
+    private static final Map<String, String> SIGNATURE_ALGORITHMS = Map.of(
+            SignatureMethod.RSA_SHA1, "SHA1withRSA",
+            RSA_SHA256, "SHA256withRSA",
+            RSA_SHA384, "SHA384withRSA",
+            RSA_SHA512, "SHA512withRSA",
+            // XML-DSig encodes ECDSA signatures as the raw concatenation of r and s
+            ECDSA_SHA256, "SHA256withECDSAinP1363Format",
+            ECDSA_SHA384, "SHA384withECDSAinP1363Format",
+            ECDSA_SHA512, "SHA512withECDSAinP1363Format",
+            EDDSA_ED25519, "Ed25519");
+
+    private static final Map<String, String> DIGEST_ALGORITHMS = Map.of(
+            DigestMethod.SHA1, "SHA-1",
+            DigestMethod.SHA256, "SHA-256",
+            "http://www.w3.org/2001/04/xmldsig-more#sha384", "SHA-384",
+            DigestMethod.SHA512, "SHA-512");
+
+    private SignatureAlgorithms() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * @param signatureMethod the signature method URI
+     * @return the JCA signature algorithm name
+     * @throws IllegalArgumentException if the signature method is not supported
+     */
+    static String jcaSignatureAlgorithm(String signatureMethod) {
+        String algorithm = SIGNATURE_ALGORITHMS.get(signatureMethod);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unsupported signature method: " + signatureMethod);
+        }
+        return algorithm;
+    }
+
+    /**
+     * @param digestMethod the digest method URI
+     * @return whether the digest method has a JCA counterpart
+     */
+    static boolean isSupportedDigestMethod(String digestMethod) {
+        return DIGEST_ALGORITHMS.containsKey(digestMethod);
+    }
+
+    /**
+     * @param digestMethod the digest method URI
+     * @return the JCA message digest algorithm name
+     * @throws IllegalArgumentException if the digest method is not supported
+     */
+    static String jcaDigestAlgorithm(String digestMethod) {
+        String algorithm = DIGEST_ALGORITHMS.get(digestMethod);
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unsupported digest method: " + digestMethod);
+        }
+        return algorithm;
+    }
+
+    /**
+     * @param signatureMethod the signature method URI
+     * @param key the key to verify with
+     * @return whether the key is of the type the signature method needs; true for unknown methods,
+     *         which are left to the provider to reject
+     */
+    static boolean keyMatches(String signatureMethod, Key key) {
+        String algorithm = SIGNATURE_ALGORITHMS.get(signatureMethod);
+        if (algorithm == null) {
+            return true;
+        }
+        String keyAlgorithm = key.getAlgorithm();
+        if (algorithm.endsWith("withRSA")) {
+            return "RSA".equals(keyAlgorithm);
+        }
+        if (algorithm.contains("withECDSA")) {
+            return "EC".equals(keyAlgorithm);
+        }
+        return "EdDSA".equals(keyAlgorithm) || "Ed25519".equals(keyAlgorithm);
+    }
+}
@@ -0,0 +1,122 @@
+package signature;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Validation outcome of one {@code ds:Signature} element.
+ * Besides the overall status it carries the status of the {@code SignatureValue}
+ * and of every {@code Reference} of the signature.
+ */
+public final class SignatureValidationResult {
+
+    /**
+     * Status of a validated signature.
+     */
+    public enum Status {
+        /** Signature value and all references are valid. */
+        VALID,
+        /** Signature value or a reference is invalid, or validation failed with an error. */
+        INVALID,
+        /** Validation was cancelled before this signature was checked. */
+        SKIPPED
+    }
+
+    private final int index;
+    private final Status status;
+    private final Boolean signatureValueValid;
+    private final List<ReferenceStatus> references;
+    private final String failureReason;
+
+    SignatureValidationResult(int index, Status status, Boolean signatureValueValid,
+                              List<ReferenceStatus> references, String failureReason) {
+        this.index = index;
+        this.status = status;
+        this.signatureValueValid = signatureValueValid;
+        this.references = references == null ? Collections.emptyList() : Collections.unmodifiableList(references);
+        this.failureReason = failureReason;
+    }
+
+    static SignatureValidationResult skipped(int index) {
+        return new SignatureValidationResult(index, Status.SKIPPED, null, null, "Validation cancelled");
+    }
+
+    static SignatureValidationResult error(int index, String failureReason) {
+        return new SignatureValidationResult(index, Status.INVALID, null, null, failureReason);
+    }
+
+    /**
+     * @return the position of the signature in document order
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    /**
+     * @return the SignatureValue status, or null if it was not checked
+     */
+    public Boolean getSignatureValueValid() {
+        return signatureValueValid;
+    }
+
+    /**
+     * @return the status of every reference, empty if the signature could not be unmarshalled
+     */
+    public List<ReferenceStatus> getReferences() {
+        return references;
+    }
+
+    /**
+     * @return a description of why validation failed, or null if the signature is valid
+     */
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    @Override
+    public String toString() {
+        return "SignatureValidationResult{index=" + index + ", status=" + status
+                + ", signatureValueValid=" + signatureValueValid + ", references=" + references
+                + (failureReason != null ? ", failureReason='" + failureReason + '\'' : "") + '}';
+    }
+
+    /**
+     * Validation status of a single {@code Reference}.
+     */
+    public static final class ReferenceStatus {
+        private final String id;
+        private final String uri;
+        private final boolean valid;
+
+        ReferenceStatus(String id, String uri, boolean valid) {
+            this.id = id;
+            this.uri = uri;
+            this.valid = valid;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getURI() {
+            return uri;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        @Override
+        public String toString() {
+            return "[Ref id=" + id + ":uri=" + uri + "] valid=" + valid;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package signature;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A batch signed by {@link MerkleBatchSigner}: the signed Merkle root and the tree to derive a
+ * proof for every document of the batch.
+ * <p>
+ * A proof is a small XML document of its own:
+ * <pre>{@code
+ * <BatchProof xmlns="urn:xstream-poc:batch" Index="3">
+ *   <AuditPath><Sibling>base64</Sibling>...</AuditPath>
+ *   <BatchRoot Id="batch-root" Count="1000" DigestMethod="..."><RootDigest>base64</RootDigest><ds:Signature>...</BatchRoot>
+ * </BatchProof>
+ * }</pre>
+ * Siblings are listed from the leaf upwards; whether a sibling is the left or right one follows
+ * from the index and the signed count. Instances are thread-safe.
+ */
+public final class SignedBatch {
+
+    private final Document signedRoot;
+    private final List<byte[][]> levels;
+
+    SignedBatch(Document signedRoot, List<byte[][]> levels) {
+        this.signedRoot = signedRoot;
+        this.levels = levels;
+    }
+
+    /**
+     * @return the number of documents in the batch
+     */
+    public int size() {
+        return levels.get(0).length;
+    }
+
+    /**
+     * @return a copy of the Merkle root digest
+     */
+    public byte[] getRootDigest() {
+        return levels.get(levels.size() - 1)[0].clone();
+    }
+
+    /**
+     * @return a copy of the signed {@code BatchRoot} document
+     */
+    public Document getSignedRoot() {
+        synchronized (signedRoot) {
+            return (Document) signedRoot.cloneNode(true);
+        }
+    }
+
+    /**
+     * Creates the proof of one document.
+     *
+     * @param index the position of the document in the signed batch
+     * @return the proof document
+     * @throws IndexOutOfBoundsException if the index is outside the batch
+     */
+    public Document proof(int index) throws ParserConfigurationException {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside batch of " + size());
+        }
+        Document proof = DocumentUtil.createDocument();
+        Element batchProof = proof.createElementNS(MerkleBatchSigner.NAMESPACE, "BatchProof");
+        batchProof.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, XMLConstants.XMLNS_ATTRIBUTE,
+                MerkleBatchSigner.NAMESPACE);
+        batchProof.setAttributeNS(null, "Index", Integer.toString(index));
+        proof.appendChild(batchProof);
+
+        Element auditPath = proof.createElementNS(MerkleBatchSigner.NAMESPACE, "AuditPath");
+        batchProof.appendChild(auditPath);
+        Base64.Encoder encoder = Base64.getEncoder();
+        int position = index;
+        for (int level = 0; level < levels.size() - 1; level++) {
+            byte[][] nodes = levels.get(level);
+            int sibling = position ^ 1;
+            // The last node of an odd level has no sibling and is promoted unchanged
+            if (sibling < nodes.length) {
+                Element element = proof.createElementNS(MerkleBatchSigner.NAMESPACE, "Sibling");
+                element.setTextContent(encoder.encodeToString(nodes[sibling]));
+                auditPath.appendChild(element);
+            }
+            position >>= 1;
+        }
+
+        // DOM implementations are not thread-safe even for reads
+        synchronized (signedRoot) {
+            batchProof.appendChild(proof.importNode(signedRoot.getDocumentElement(), true));
+        }
+        return proof;
+    }
+
+    /**
+     * Writes the proof of one document as unindented UTF-8; indentation would break the signature.
+     *
+     * @param index the position of the document in the signed batch
+     * @param out receives the proof, it is not closed
+     */
+    public void writeProof(int index, OutputStream out)
+            throws ParserConfigurationException, TransformerException {
+        DocumentUtil.writeTo(proof(index), out, false);
+    }
+}
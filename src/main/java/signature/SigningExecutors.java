@@ -0,0 +1,95 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for executors used to run signature work in parallel.
+ */
+public class SigningExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(SigningExecutors.class);
+
+    private SigningExecutors() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * Creates a fixed pool of daemon platform threads, one per available processor.
+     * This is the right choice for CPU-bound work such as RSA signing.
+     *
+     * @return a new ExecutorService
+     */
+    public static ExecutorService newPlatformThreadPool() {
+        return newPlatformThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a fixed pool of daemon platform threads.
+     *
+     * @param threads the number of threads
+     * @return a new ExecutorService
+     */
+    public static ExecutorService newPlatformThreadPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        return Executors.newFixedThreadPool(threads, new NamedThreadFactory("signing-worker"));
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread per task.
+     * Virtual threads are only available on Java 21+, on older runtimes this falls back
+     * to a cached pool of daemon platform threads.
+     *
+     * @return a new ExecutorService
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            logger.debug("Virtual threads not available, using cached platform threads");
+            return Executors.newCachedThreadPool(new NamedThreadFactory("signing-task"));
+        }
+    }
+
+    /**
+     * Checks whether the running JVM supports virtual threads.
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * ThreadFactory creating named daemon threads.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
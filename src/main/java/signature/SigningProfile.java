@@ -0,0 +1,293 @@
+package signature;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.KeyException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Objects;
+
+/**
+ * Immutable set of parameters used to sign documents.
+ * A profile is built once and can be shared between threads, e.g. by a {@link BatchSigner}.
+ * <p>
+ * The JSR-105 structures that do not depend on the signed document are created up front:
+ * the {@link KeyInfo} (including the encoded {@code KeyValue}) is shared by all signatures,
+ * and the digest, canonicalization and signature methods are cached per thread because the
+ * JDK implementations keep internal state while signing. Transforms and references are bound
+ * to the document they are marshalled into and are therefore still created per signature.
+ * <p>
+ * Algorithms the JDK XML-DSig provider lacks but {@link StreamingSigner} supports, such as
+ * Ed25519, are accepted; such a profile can only be used for streaming.
+ */
+public final class SigningProfile {
+
+    private final KeyPair keyPair;
+    private final String keyName;
+    private final X509Certificate x509Certificate;
+    private final String digestMethod;
+    private final String signatureMethod;
+    private final ReferenceUriStrategy referenceUriStrategy;
+    private final String canonicalizationMethod;
+    private final boolean includeKeyInfo;
+
+    private final KeyInfo keyInfo;
+    private final boolean xmlDsigSupported;
+    private final ThreadLocal<Templates> templates;
+
+    private SigningProfile(Builder builder) {
+        this.keyPair = Objects.requireNonNull(builder.keyPair, "Key pair cannot be null");
+        this.keyName = builder.keyName;
+        this.x509Certificate = builder.x509Certificate;
+        this.digestMethod = Objects.requireNonNull(builder.digestMethod, "Digest method cannot be null");
+        this.signatureMethod = Objects.requireNonNull(builder.signatureMethod, "Signature method cannot be null");
+        this.referenceUriStrategy = Objects.requireNonNull(builder.referenceUriStrategy,
+                "Reference URI strategy cannot be null");
+        this.canonicalizationMethod = Objects.requireNonNull(builder.canonicalizationMethod,
+                "Canonicalization method cannot be null");
+        this.includeKeyInfo = builder.includeKeyInfo;
+
+        try {
+            this.keyInfo = includeKeyInfo
+                    ? XMLSignatureUtil.createKeyInfo(keyName, keyPair.getPublic(), x509Certificate)
+                    : XMLSignatureUtil.createKeyInfo(keyName, null, null);
+        } catch (KeyException ex) {
+            throw new IllegalArgumentException("Cannot create KeyInfo for " + keyPair.getPublic().getAlgorithm()
+                    + " key", ex);
+        }
+
+        // Fail fast on unsupported algorithm URIs instead of on the first signature
+        Templates initial = null;
+        try {
+            initial = createTemplates();
+        } catch (IllegalArgumentException ex) {
+            if (!isStreamingAlgorithm(signatureMethod, digestMethod)) {
+                throw ex;
+            }
+        }
+        this.xmlDsigSupported = initial != null;
+        this.templates = ThreadLocal.withInitial(this::createTemplates);
+        if (xmlDsigSupported) {
+            this.templates.set(initial);
+        }
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return a new SigningProfile builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public KeyPair getKeyPair() {
+        return keyPair;
+    }
+
+    public String getKeyName() {
+        return keyName;
+    }
+
+    public X509Certificate getX509Certificate() {
+        return x509Certificate;
+    }
+
+    public String getDigestMethod() {
+        return digestMethod;
+    }
+
+    public String getSignatureMethod() {
+        return signatureMethod;
+    }
+
+    public ReferenceUriStrategy getReferenceUriStrategy() {
+        return referenceUriStrategy;
+    }
+
+    public String getCanonicalizationMethod() {
+        return canonicalizationMethod;
+    }
+
+    public boolean isIncludeKeyInfo() {
+        return includeKeyInfo;
+    }
+
+    /**
+     * @return false if the algorithms are only supported by {@link StreamingSigner}, e.g. Ed25519 on JDK 17
+     */
+    public boolean isXmlDsigSupported() {
+        return xmlDsigSupported;
+    }
+
+    /**
+     * @return the precomputed KeyInfo shared by all signatures of this profile, or null if it would be empty
+     */
+    KeyInfo getKeyInfo() {
+        return keyInfo;
+    }
+
+    /**
+     * @return the JSR-105 method structures owned by the calling thread
+     */
+    Templates templates() {
+        if (!xmlDsigSupported) {
+            throw new IllegalArgumentException("Signature method " + signatureMethod
+                    + " is not supported by the XML-DSig provider, use StreamingSigner");
+        }
+        return templates.get();
+    }
+
+    private Templates createTemplates() {
+        XMLSignatureFactory factory = XMLSignatureUtil.signatureFactory();
+        try {
+            return new Templates(
+                    factory.newDigestMethod(digestMethod, null),
+                    factory.newCanonicalizationMethod(canonicalizationMethod, (C14NMethodParameterSpec) null),
+                    factory.newSignatureMethod(signatureMethod, null));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalArgumentException("Unsupported signing algorithm: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static boolean isStreamingAlgorithm(String signatureMethod, String digestMethod) {
+        try {
+            SignatureAlgorithms.jcaSignatureAlgorithm(signatureMethod);
+            SignatureAlgorithms.jcaDigestAlgorithm(digestMethod);
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Per-thread JSR-105 method structures of a profile.
+     */
+    static final class Templates {
+        final DigestMethod digestMethod;
+        final CanonicalizationMethod canonicalizationMethod;
+        final SignatureMethod signatureMethod;
+
+        private Templates(DigestMethod digestMethod, CanonicalizationMethod canonicalizationMethod,
+                          SignatureMethod signatureMethod) {
+            this.digestMethod = digestMethod;
+            this.canonicalizationMethod = canonicalizationMethod;
+            this.signatureMethod = signatureMethod;
+        }
+    }
+
+    /**
+     * Builder for {@link SigningProfile}.
+     */
+    public static final class Builder {
+        private KeyPair keyPair;
+        private String keyName;
+        private X509Certificate x509Certificate;
+        private String digestMethod;
+        private String signatureMethod;
+        private ReferenceUriStrategy referenceUriStrategy = ReferenceUriStrategy.wholeDocument();
+        private String canonicalizationMethod;
+        private boolean includeKeyInfo = true;
+
+        private Builder() {
+        }
+
+        /**
+         * @param keyPair the key pair for signing
+         * @return this builder
+         */
+        public Builder keyPair(KeyPair keyPair) {
+            this.keyPair = keyPair;
+            return this;
+        }
+
+        /**
+         * @param keyName optional key name for KeyInfo
+         * @return this builder
+         */
+        public Builder keyName(String keyName) {
+            this.keyName = keyName;
+            return this;
+        }
+
+        /**
+         * @param x509Certificate optional X509 certificate to include in KeyInfo
+         * @return this builder
+         */
+        public Builder x509Certificate(X509Certificate x509Certificate) {
+            this.x509Certificate = x509Certificate;
+            return this;
+        }
+
+        /**
+         * @param digestMethod the digest method URI
+         * @return this builder
+         */
+        public Builder digestMethod(String digestMethod) {
+            this.digestMethod = digestMethod;
+            return this;
+        }
+
+        /**
+         * @param signatureMethod the signature method URI
+         * @return this builder
+         */
+        public Builder signatureMethod(String signatureMethod) {
+            this.signatureMethod = signatureMethod;
+            return this;
+        }
+
+        /**
+         * Uses the same reference URI for every signature.
+         *
+         * @param referenceURI the reference URI, defaults to the whole document
+         * @return this builder
+         */
+        public Builder referenceURI(String referenceURI) {
+            this.referenceUriStrategy = ReferenceUriStrategy.fixed(referenceURI);
+            return this;
+        }
+
+        /**
+         * @param referenceUriStrategy how the reference URI is derived from the signed element
+         * @return this builder
+         */
+        public Builder referenceUriStrategy(ReferenceUriStrategy referenceUriStrategy) {
+            this.referenceUriStrategy = referenceUriStrategy;
+            return this;
+        }
+
+        /**
+         * @param canonicalizationMethod the canonicalization method URI
+         * @return this builder
+         */
+        public Builder canonicalizationMethod(String canonicalizationMethod) {
+            this.canonicalizationMethod = canonicalizationMethod;
+            return this;
+        }
+
+        /**
+         * @param includeKeyInfo whether the public key and certificate are placed in KeyInfo, defaults to true
+         * @return this builder
+         */
+        public Builder includeKeyInfo(boolean includeKeyInfo) {
+            this.includeKeyInfo = includeKeyInfo;
+            return this;
+        }
+
+        /**
+         * Builds the profile.
+         *
+         * @return the immutable SigningProfile
+         * @throws IllegalArgumentException if an algorithm or the key is not supported
+         */
+        public SigningProfile build() {
+            return new SigningProfile(this);
+        }
+    }
+}
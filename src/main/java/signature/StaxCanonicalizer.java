@@ -0,0 +1,375 @@
+package signature;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Exclusive or inclusive XML Canonicalization 1.0 (without comments) of StAX events.
+ * <p>
+ * Events are passed in document order while the reader is positioned on them, and the canonical
+ * form is written to a {@link CanonicalWriter} as they arrive. Only the namespace declarations
+ * rendered by open elements are kept, so memory is bounded by element depth rather than
+ * document size. The first element passed in is the apex of the canonicalized node-set; text
+ * outside of it is dropped and processing instructions before/after it are separated by line
+ * feeds, as required for a whole document.
+ * <p>
+ * Inclusive canonicalization of a subtree renders the namespaces and {@code xml:*} attributes the
+ * apex inherits from its ancestors, which a reader positioned on the apex cannot enumerate; they
+ * are passed in when the canonicalizer is created.
+ * <p>
+ * Not thread-safe, use one instance per document.
+ */
+final class StaxCanonicalizer {
+
+    private static final String XML_PREFIX = "xml";
+    private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+
+    private final CanonicalWriter writer;
+    private final boolean exclusive;
+    private final Map<String, String> inheritedNamespaces;
+    private final Map<String, String> inheritedXmlAttributes;
+
+    // Namespace declarations rendered by the open elements, a frame per depth
+    private String[] renderedPrefixes = new String[16];
+    private String[] renderedUris = new String[16];
+    private int renderedCount;
+    private int[] frames = new int[16];
+    private int depth;
+    private boolean apexSeen;
+
+    // Scratch space reused for every element, sorted by insertion sort
+    private String[] nsPrefixes = new String[8];
+    private String[] nsUris = new String[8];
+    private String[] attributeNamespaces = new String[8];
+    private String[] attributePrefixes = new String[8];
+    private String[] attributeLocalNames = new String[8];
+    private String[] attributeValues = new String[8];
+    private int[] attributeOrder = new int[8];
+
+    private StaxCanonicalizer(CanonicalWriter writer, boolean exclusive, Map<String, String> inheritedNamespaces,
+                              Map<String, String> inheritedXmlAttributes) {
+        this.writer = writer;
+        this.exclusive = exclusive;
+        this.inheritedNamespaces = inheritedNamespaces;
+        this.inheritedXmlAttributes = inheritedXmlAttributes;
+    }
+
+    /**
+     * Creates an exclusive canonicalizer, it needs no context of the apex ancestors.
+     */
+    static StaxCanonicalizer exclusive(CanonicalWriter writer) {
+        return new StaxCanonicalizer(writer, true, Map.of(), Map.of());
+    }
+
+    /**
+     * Creates an inclusive canonicalizer.
+     *
+     * @param inheritedNamespaces prefix to URI of the namespaces in scope at the apex parent,
+     *                            the default namespace has the empty prefix
+     * @param inheritedXmlAttributes local name to value of the {@code xml:*} attributes in scope
+     *                               at the apex parent
+     */
+    static StaxCanonicalizer inclusive(CanonicalWriter writer, Map<String, String> inheritedNamespaces,
+                                       Map<String, String> inheritedXmlAttributes) {
+        return new StaxCanonicalizer(writer, false, inheritedNamespaces, inheritedXmlAttributes);
+    }
+
+    /**
+     * Passes the current event of the reader to the canonicalizer.
+     * Comments, document start/end and whitespace outside the apex element are ignored.
+     */
+    void event(XMLStreamReader reader) {
+        switch (reader.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                startElement(reader);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                endElement(reader);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (depth > 0) {
+                    writer.writeText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                processingInstruction(reader.getPITarget(), reader.getPIData());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Flushes the canonical form written so far.
+     */
+    void finish() {
+        writer.flush();
+    }
+
+    /**
+     * Drops all state, including buffered output, so the instance can canonicalize a new apex element.
+     */
+    void reset() {
+        writer.reset();
+        renderedCount = 0;
+        depth = 0;
+        apexSeen = false;
+    }
+
+    /**
+     * @return the depth of the element currently open, 0 outside of the apex element
+     */
+    int depth() {
+        return depth;
+    }
+
+    private void startElement(XMLStreamReader reader) {
+        boolean apex = !apexSeen;
+        apexSeen = true;
+        String prefix = nullToEmpty(reader.getPrefix());
+        String localName = reader.getLocalName();
+
+        int nsCount = exclusive ? collectUtilizedNamespaces(reader, prefix) : collectInScopeNamespaces(reader, apex);
+        int attributeCount = collectAttributes(reader, apex);
+
+        pushFrame();
+
+        writer.write('<');
+        writeQName(prefix, localName);
+
+        // Declarations are sorted by prefix, the default namespace has the empty prefix and comes first
+        sortNamespaces(nsCount);
+        for (int i = 0; i < nsCount; i++) {
+            String nsPrefix = nsPrefixes[i];
+            String nsUri = nsUris[i];
+            String rendered = findRendered(nsPrefix);
+            boolean render = nsPrefix.isEmpty()
+                    ? (nsUri.isEmpty() ? rendered != null && !rendered.isEmpty() : !nsUri.equals(rendered))
+                    : !nsUri.equals(rendered);
+            if (render) {
+                addRendered(nsPrefix, nsUri);
+                if (nsPrefix.isEmpty()) {
+                    writer.write(" xmlns=\"");
+                } else {
+                    writer.write(" xmlns:");
+                    writer.write(nsPrefix);
+                    writer.write("=\"");
+                }
+                writer.writeAttributeValue(nsUri);
+                writer.write('"');
+            }
+        }
+
+        // Attributes are sorted by namespace URI, then local name
+        sortAttributes(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            int index = attributeOrder[i];
+            writer.write(' ');
+            writeQName(attributePrefixes[index], attributeLocalNames[index]);
+            writer.write("=\"");
+            writer.writeAttributeValue(attributeValues[index]);
+            writer.write('"');
+        }
+        writer.write('>');
+    }
+
+    /**
+     * Exclusive c14n: the namespaces visibly utilized by the element name and its attributes.
+     */
+    private int collectUtilizedNamespaces(XMLStreamReader reader, String prefix) {
+        int nsCount = addNamespace(0, prefix, nullToEmpty(reader.getNamespaceURI()));
+        for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            String attributePrefix = nullToEmpty(reader.getAttributePrefix(i));
+            if (!attributePrefix.isEmpty() && !XML_PREFIX.equals(attributePrefix)) {
+                nsCount = addNamespace(nsCount, attributePrefix, nullToEmpty(reader.getAttributeNamespace(i)));
+            }
+        }
+        return nsCount;
+    }
+
+    /**
+     * Inclusive c14n: the namespaces declared on the element, plus the inherited ones for the apex.
+     */
+    private int collectInScopeNamespaces(XMLStreamReader reader, boolean apex) {
+        int nsCount = 0;
+        for (int i = 0, count = reader.getNamespaceCount(); i < count; i++) {
+            String nsPrefix = nullToEmpty(reader.getNamespacePrefix(i));
+            if (!XML_PREFIX.equals(nsPrefix)) {
+                nsCount = addNamespace(nsCount, nsPrefix, nullToEmpty(reader.getNamespaceURI(i)));
+            }
+        }
+        if (apex) {
+            // Declarations on the apex come first and take precedence over inherited ones
+            for (Map.Entry<String, String> inherited : inheritedNamespaces.entrySet()) {
+                nsCount = addNamespace(nsCount, inherited.getKey(), inherited.getValue());
+            }
+        }
+        return nsCount;
+    }
+
+    private int collectAttributes(XMLStreamReader reader, boolean apex) {
+        int count = reader.getAttributeCount();
+        ensureAttributeCapacity(count);
+        for (int i = 0; i < count; i++) {
+            attributeNamespaces[i] = nullToEmpty(reader.getAttributeNamespace(i));
+            attributePrefixes[i] = nullToEmpty(reader.getAttributePrefix(i));
+            attributeLocalNames[i] = reader.getAttributeLocalName(i);
+            attributeValues[i] = reader.getAttributeValue(i);
+        }
+        if (apex && !exclusive) {
+            int declared = count;
+            for (Map.Entry<String, String> inherited : inheritedXmlAttributes.entrySet()) {
+                if (!hasXmlAttribute(declared, inherited.getKey())) {
+                    ensureAttributeCapacity(count + 1);
+                    attributeNamespaces[count] = XML_NAMESPACE;
+                    attributePrefixes[count] = XML_PREFIX;
+                    attributeLocalNames[count] = inherited.getKey();
+                    attributeValues[count] = inherited.getValue();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean hasXmlAttribute(int count, String localName) {
+        for (int i = 0; i < count; i++) {
+            if (XML_NAMESPACE.equals(attributeNamespaces[i]) && attributeLocalNames[i].equals(localName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureAttributeCapacity(int count) {
+        if (count > attributeNamespaces.length) {
+            int length = Math.max(count, attributeNamespaces.length * 2);
+            attributeNamespaces = Arrays.copyOf(attributeNamespaces, length);
+            attributePrefixes = Arrays.copyOf(attributePrefixes, length);
+            attributeLocalNames = Arrays.copyOf(attributeLocalNames, length);
+            attributeValues = Arrays.copyOf(attributeValues, length);
+            attributeOrder = new int[length];
+        }
+    }
+
+    private void endElement(XMLStreamReader reader) {
+        writer.write("</");
+        writeQName(nullToEmpty(reader.getPrefix()), reader.getLocalName());
+        writer.write('>');
+        depth--;
+        renderedCount = frames[depth];
+    }
+
+    private void processingInstruction(String target, String data) {
+        boolean afterApex = depth == 0 && apexSeen;
+        if (afterApex) {
+            writer.write('\n');
+        }
+        writer.write("<?");
+        writer.write(target);
+        if (data != null && !data.isEmpty()) {
+            writer.write(' ');
+            writer.writeUnescaped(data);
+        }
+        writer.write("?>");
+        if (depth == 0 && !apexSeen) {
+            writer.write('\n');
+        }
+    }
+
+    private void writeQName(String prefix, String localName) {
+        if (!prefix.isEmpty()) {
+            writer.write(prefix);
+            writer.write(':');
+        }
+        writer.write(localName);
+    }
+
+    private int addNamespace(int count, String prefix, String uri) {
+        for (int i = 0; i < count; i++) {
+            if (nsPrefixes[i].equals(prefix)) {
+                return count;
+            }
+        }
+        if (count == nsPrefixes.length) {
+            nsPrefixes = grow(nsPrefixes);
+            nsUris = grow(nsUris);
+        }
+        nsPrefixes[count] = prefix;
+        nsUris[count] = uri;
+        return count + 1;
+    }
+
+    private void sortNamespaces(int count) {
+        for (int i = 1; i < count; i++) {
+            String prefix = nsPrefixes[i];
+            String uri = nsUris[i];
+            int j = i - 1;
+            while (j >= 0 && nsPrefixes[j].compareTo(prefix) > 0) {
+                nsPrefixes[j + 1] = nsPrefixes[j];
+                nsUris[j + 1] = nsUris[j];
+                j--;
+            }
+            nsPrefixes[j + 1] = prefix;
+            nsUris[j + 1] = uri;
+        }
+    }
+
+    private void sortAttributes(int count) {
+        for (int i = 0; i < count; i++) {
+            int j = i - 1;
+            while (j >= 0 && compareAttributes(attributeOrder[j], i) > 0) {
+                attributeOrder[j + 1] = attributeOrder[j];
+                j--;
+            }
+            attributeOrder[j + 1] = i;
+        }
+    }
+
+    private int compareAttributes(int a, int b) {
+        int byNamespace = attributeNamespaces[a].compareTo(attributeNamespaces[b]);
+        return byNamespace != 0 ? byNamespace : attributeLocalNames[a].compareTo(attributeLocalNames[b]);
+    }
+
+    private void pushFrame() {
+        if (depth == frames.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(frames, 0, grown, 0, depth);
+            frames = grown;
+        }
+        frames[depth++] = renderedCount;
+    }
+
+    private String findRendered(String prefix) {
+        for (int i = renderedCount - 1; i >= 0; i--) {
+            if (renderedPrefixes[i].equals(prefix)) {
+                return renderedUris[i];
+            }
+        }
+        return null;
+    }
+
+    private void addRendered(String prefix, String uri) {
+        if (renderedCount == renderedPrefixes.length) {
+            renderedPrefixes = grow(renderedPrefixes);
+            renderedUris = grow(renderedUris);
+        }
+        renderedPrefixes[renderedCount] = prefix;
+        renderedUris[renderedCount] = uri;
+        renderedCount++;
+    }
+
+    private static String[] grow(String[] array) {
+        String[] grown = new String[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
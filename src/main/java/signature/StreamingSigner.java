@@ -0,0 +1,409 @@
+package signature;
+
+import metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.TransformerException;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Signs XML documents as a stream, without building a DOM.
+ * <p>
+ * The input is read with StAX and copied to the output while its exclusive canonical form is
+ * digested on the fly. When the document element ends, an enveloped {@code ds:Signature} over the
+ * whole document ({@code URI=""}, enveloped-signature and exclusive c14n transforms, as produced by
+ * {@link XMLSignatureUtil}) is appended as its last child. Memory use is bounded by element depth,
+ * not document size.
+ * <p>
+ * The profile's digest, signature and canonicalization methods, key and KeyInfo settings are used;
+ * its reference URI strategy is not, as a stream is always signed as a whole. SignedInfo can be
+ * canonicalized with inclusive or exclusive c14n (without comments). Instances are thread-safe.
+ */
+public class StreamingSigner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingSigner.class);
+
+    private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+
+    private final SigningProfile profile;
+    private final String digestAlgorithm;
+    private final String signatureAlgorithm;
+    private final boolean exclusiveSignedInfo;
+    private final String keyInfoXml;
+
+    /**
+     * Creates a streaming signer.
+     *
+     * @param profile the signing profile
+     * @throws IllegalArgumentException if an algorithm of the profile is not supported for streaming
+     */
+    public StreamingSigner(SigningProfile profile) {
+        this.profile = Objects.requireNonNull(profile, "Signing profile cannot be null");
+        this.digestAlgorithm = SignatureAlgorithms.jcaDigestAlgorithm(profile.getDigestMethod());
+        this.signatureAlgorithm = SignatureAlgorithms.jcaSignatureAlgorithm(profile.getSignatureMethod());
+
+        String canonicalizationMethod = profile.getCanonicalizationMethod();
+        if (CanonicalizationMethod.EXCLUSIVE.equals(canonicalizationMethod)) {
+            this.exclusiveSignedInfo = true;
+        } else if (CanonicalizationMethod.INCLUSIVE.equals(canonicalizationMethod)) {
+            this.exclusiveSignedInfo = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported canonicalization method for streaming: "
+                    + canonicalizationMethod);
+        }
+
+        this.keyInfoXml = marshalKeyInfo(profile);
+    }
+
+    /**
+     * Signs a document.
+     *
+     * @param inputStream the unsigned document
+     * @param outputStream receives the signed document, UTF-8 encoded; it is flushed but not closed
+     * @throws XMLStreamException if the input is not well-formed or contains a DOCTYPE
+     * @throws GeneralSecurityException if digesting or signing fails
+     * @throws IOException if the output cannot be written
+     */
+    public void sign(InputStream inputStream, OutputStream outputStream)
+            throws XMLStreamException, GeneralSecurityException, IOException {
+        sign(inputStream, outputStream, 0);
+    }
+
+    /**
+     * Signs a document file, reading it through a read-only memory mapping.
+     *
+     * @param source the unsigned document
+     * @param outputStream receives the signed document, UTF-8 encoded; it is flushed but not closed
+     * @throws XMLStreamException if the input is not well-formed or contains a DOCTYPE
+     * @throws GeneralSecurityException if digesting or signing fails
+     * @throws IOException if the file cannot be mapped or the output cannot be written
+     */
+    public void sign(Path source, OutputStream outputStream)
+            throws XMLStreamException, GeneralSecurityException, IOException {
+        ByteBuffer mapped = DocumentUtil.mapFile(source);
+        sign(new ByteBufferInputStream(mapped), outputStream, mapped.remaining());
+    }
+
+    private void sign(InputStream inputStream, OutputStream outputStream, long bytes)
+            throws XMLStreamException, GeneralSecurityException, IOException {
+        long start = Metrics.start();
+        String signatureMethod = profile.getSignatureMethod();
+        try {
+            signStream(inputStream, outputStream);
+        } catch (UncheckedIOException ex) {
+            Metrics.failure(Metrics.STREAM_SIGN, signatureMethod, start, "io");
+            throw ex.getCause();
+        } catch (XMLStreamException ex) {
+            Metrics.failure(Metrics.STREAM_SIGN, signatureMethod, start, "malformed");
+            throw ex;
+        } catch (GeneralSecurityException ex) {
+            Metrics.failure(Metrics.STREAM_SIGN, signatureMethod, start, "signature");
+            throw ex;
+        } catch (IOException ex) {
+            Metrics.failure(Metrics.STREAM_SIGN, signatureMethod, start, "io");
+            throw ex;
+        }
+        Metrics.success(Metrics.STREAM_SIGN, signatureMethod, start, bytes);
+    }
+
+    private void signStream(InputStream inputStream, OutputStream outputStream)
+            throws XMLStreamException, GeneralSecurityException, IOException {
+
+        XMLStreamReader reader = DocumentUtil.createXMLStreamReader(inputStream);
+        MessageDigest messageDigest = MessageDigest.getInstance(digestAlgorithm);
+        StaxCanonicalizer canonicalizer = StaxCanonicalizer.exclusive(CanonicalWriter.to(messageDigest));
+
+        BufferedOutputStream bufferedOut = new BufferedOutputStream(outputStream, 8192);
+        EchoWriter output = new EchoWriter(CanonicalWriter.to(bufferedOut));
+        // Content after the document element is buffered until the signature is written
+        ByteArrayOutputStream trailerBuffer = new ByteArrayOutputStream();
+        EchoWriter trailer = new EchoWriter(CanonicalWriter.to(trailerBuffer));
+
+        output.writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        RootInfo root = null;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                canonicalizer.event(reader);
+
+                EchoWriter target = root != null && root.closed ? trailer : output;
+                if (event == XMLStreamConstants.START_ELEMENT && root == null) {
+                    root = RootInfo.of(reader);
+                }
+                if (event == XMLStreamConstants.END_ELEMENT && canonicalizer.depth() == 0) {
+                    // Keep the end tag of the document element open for the signature
+                    output.closePendingStartTag();
+                    root.closed = true;
+                    continue;
+                }
+                target.event(reader, canonicalizer.depth());
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (root == null) {
+            throw new XMLStreamException("Document has no root element");
+        }
+
+        canonicalizer.finish();
+        String digestValue = Base64.getEncoder().encodeToString(messageDigest.digest());
+        String canonicalSignedInfo = canonicalSignedInfo(digestValue, root);
+
+        Signature signer = Signature.getInstance(signatureAlgorithm);
+        signer.initSign(profile.getKeyPair().getPrivate());
+        signer.update(canonicalSignedInfo.getBytes(StandardCharsets.UTF_8));
+        String signatureValue = Base64.getEncoder().encodeToString(signer.sign());
+
+        CanonicalWriter writer = output.writer;
+        writer.write("<Signature xmlns=\"" + XMLSignature.XMLNS + "\">");
+        writer.write(signedInfo(digestValue, true, root));
+        writer.write("<SignatureValue>");
+        writer.write(signatureValue);
+        writer.write("</SignatureValue>");
+        writer.write(keyInfoXml);
+        writer.write("</Signature></");
+        writer.write(root.qName);
+        writer.write('>');
+        trailer.writer.flush();
+        writer.flush();
+        trailerBuffer.writeTo(bufferedOut);
+        bufferedOut.flush();
+
+        logger.debug("Signed XML stream with {} and {}", digestAlgorithm, signatureAlgorithm);
+    }
+
+    /**
+     * Returns the canonical form of SignedInfo as it will be canonicalized by a verifier.
+     * Inclusive c14n also renders the namespaces and {@code xml:*} attributes inherited from the
+     * document element; the default namespace is always the one declared by the Signature element.
+     */
+    private String canonicalSignedInfo(String digestValue, RootInfo root) {
+        return signedInfo(digestValue, exclusiveSignedInfo, root);
+    }
+
+    /**
+     * Renders SignedInfo; the exclusive form doubles as the serialized element in the output.
+     */
+    private String signedInfo(String digestValue, boolean exclusive, RootInfo root) {
+        StringBuilder sb = new StringBuilder(768);
+        sb.append("<SignedInfo xmlns=\"").append(XMLSignature.XMLNS).append('"');
+        if (!exclusive) {
+            root.prefixedNamespaces.forEach((prefix, uri) ->
+                    sb.append(" xmlns:").append(prefix).append("=\"").append(escapeAttribute(uri)).append('"'));
+            root.xmlAttributes.forEach((localName, value) ->
+                    sb.append(" xml:").append(localName).append("=\"").append(escapeAttribute(value)).append('"'));
+        }
+        sb.append('>');
+        appendMethod(sb, "CanonicalizationMethod", profile.getCanonicalizationMethod());
+        appendMethod(sb, "SignatureMethod", profile.getSignatureMethod());
+        sb.append("<Reference URI=\"\"><Transforms>");
+        appendMethod(sb, "Transform", Transform.ENVELOPED);
+        appendMethod(sb, "Transform", CanonicalizationMethod.EXCLUSIVE);
+        sb.append("</Transforms>");
+        appendMethod(sb, "DigestMethod", profile.getDigestMethod());
+        sb.append("<DigestValue>").append(digestValue).append("</DigestValue></Reference></SignedInfo>");
+        return sb.toString();
+    }
+
+    private static void appendMethod(StringBuilder sb, String elementName, String algorithm) {
+        sb.append('<').append(elementName).append(" Algorithm=\"").append(escapeAttribute(algorithm))
+                .append("\"></").append(elementName).append('>');
+    }
+
+    private static String escapeAttribute(String value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length() + 16);
+        CanonicalWriter writer = CanonicalWriter.to(bytes);
+        writer.writeAttributeValue(value);
+        writer.flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String marshalKeyInfo(SigningProfile profile) {
+        KeyInfo keyInfo = profile.getKeyInfo();
+        if (keyInfo == null) {
+            return "";
+        }
+        try {
+            Document scratch = DocumentUtil.createDocument();
+            Element holder = scratch.createElementNS(XMLSignature.XMLNS, "Signature");
+            scratch.appendChild(holder);
+            keyInfo.marshal(new DOMStructure(holder),
+                    new DOMSignContext(profile.getKeyPair().getPrivate(), holder));
+            return DocumentUtil.serializeFragment(holder.getFirstChild());
+        } catch (ParserConfigurationException | MarshalException | TransformerException ex) {
+            throw new IllegalArgumentException("Cannot marshal KeyInfo of signing profile", ex);
+        }
+    }
+
+    /**
+     * Namespaces and xml:* attributes of the document element, needed for inclusive SignedInfo c14n.
+     */
+    private static final class RootInfo {
+        final String qName;
+        final TreeMap<String, String> prefixedNamespaces = new TreeMap<>();
+        final TreeMap<String, String> xmlAttributes = new TreeMap<>();
+        boolean closed;
+
+        private RootInfo(String qName) {
+            this.qName = qName;
+        }
+
+        static RootInfo of(XMLStreamReader reader) {
+            String prefix = reader.getPrefix();
+            RootInfo root = new RootInfo(prefix == null || prefix.isEmpty()
+                    ? reader.getLocalName()
+                    : prefix + ":" + reader.getLocalName());
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String nsPrefix = reader.getNamespacePrefix(i);
+                if (nsPrefix != null && !nsPrefix.isEmpty()) {
+                    root.prefixedNamespaces.put(nsPrefix, reader.getNamespaceURI(i));
+                }
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (XML_NAMESPACE.equals(reader.getAttributeNamespace(i))) {
+                    root.xmlAttributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                }
+            }
+            return root;
+        }
+    }
+
+    /**
+     * Copies StAX events to the output, keeping namespace declarations and attribute order.
+     * Empty elements are written in short form; text and attribute values use the c14n
+     * escaping so that re-parsing yields exactly the digested content.
+     */
+    private static final class EchoWriter {
+        final CanonicalWriter writer;
+        private boolean pendingStartTag;
+
+        EchoWriter(CanonicalWriter writer) {
+            this.writer = writer;
+        }
+
+        void event(XMLStreamReader reader, int depth) {
+            int event = reader.getEventType();
+            if (event == XMLStreamConstants.END_ELEMENT && pendingStartTag) {
+                pendingStartTag = false;
+                writer.write("/>");
+                return;
+            }
+            if (event != XMLStreamConstants.START_DOCUMENT && event != XMLStreamConstants.END_DOCUMENT) {
+                closePendingStartTag();
+            }
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    writeStartTag(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    writer.write("</");
+                    writeQName(reader.getPrefix(), reader.getLocalName());
+                    writer.write('>');
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // Whitespace outside the document element is not part of the infoset
+                    if (depth > 0) {
+                        writer.writeText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    writer.write("<!--");
+                    writer.write(reader.getText());
+                    writer.write("-->");
+                    writeLineFeedOutsideRoot(depth);
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    writer.write("<?");
+                    writer.write(reader.getPITarget());
+                    String data = reader.getPIData();
+                    if (data != null && !data.isEmpty()) {
+                        writer.write(' ');
+                        writer.write(data);
+                    }
+                    writer.write("?>");
+                    writeLineFeedOutsideRoot(depth);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void closePendingStartTag() {
+            if (pendingStartTag) {
+                pendingStartTag = false;
+                writer.write('>');
+            }
+        }
+
+        private void writeStartTag(XMLStreamReader reader) {
+            writer.write('<');
+            writeQName(reader.getPrefix(), reader.getLocalName());
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String prefix = reader.getNamespacePrefix(i);
+                if (prefix == null || prefix.isEmpty()) {
+                    writer.write(" xmlns=\"");
+                } else {
+                    writer.write(" xmlns:");
+                    writer.write(prefix);
+                    writer.write("=\"");
+                }
+                String uri = reader.getNamespaceURI(i);
+                writer.writeAttributeValue(uri == null ? "" : uri);
+                writer.write('"');
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                writer.write(' ');
+                writeQName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                writer.write("=\"");
+                writer.writeAttributeValue(reader.getAttributeValue(i));
+                writer.write('"');
+            }
+            pendingStartTag = true;
+        }
+
+        private void writeQName(String prefix, String localName) {
+            if (prefix != null && !prefix.isEmpty()) {
+                writer.write(prefix);
+                writer.write(':');
+            }
+            writer.write(localName);
+        }
+
+        private void writeLineFeedOutsideRoot(int depth) {
+            if (depth == 0) {
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,838 @@
+package signature;
+
+import metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Verifies XML signatures as a stream, without building a DOM.
+ * <p>
+ * The document is read once with StAX. The exclusive canonical form of the whole document and of
+ * every element carrying an ID attribute is digested on the fly, with each configured digest
+ * method, while the {@code ds:Signature} elements are parsed. Once the stream ends, every
+ * SignatureValue is verified against the preset key and every reference is compared with the
+ * digest of its target, producing the same per-signature and per-reference report as
+ * {@link XMLSignatureUtil#validateDetailed(org.w3c.dom.Document, Key)}.
+ * <p>
+ * Supported are references to the whole document ({@code URI=""}) or to an element by ID
+ * ({@code URI="#id"}) with an optional enveloped-signature transform followed by exclusive c14n,
+ * which is what {@link XMLSignatureUtil} and {@link StreamingSigner} produce, and SignedInfo
+ * canonicalized with inclusive or exclusive c14n. Anything else is reported as an invalid
+ * signature or reference.
+ * <p>
+ * Because the referenced content is digested before the references are known, the cost grows
+ * with the ID elements of the document, not only with its depth. Each event is canonicalized once
+ * for the document and once for every open element carrying an ID, so nested ID elements multiply
+ * the hashing work. The digesting state of closed elements is reused, but the digest values of
+ * every uniquely identified element are kept until the end of the document, since a signature
+ * further down may still reference it: memory is linear in the number of ID elements, at a few
+ * dozen bytes per element and digest method, plus the open elements. Instances are thread-safe.
+ */
+public class StreamingVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingVerifier.class);
+
+    static final Set<String> DEFAULT_ID_ATTRIBUTES = Set.of("Id", "ID", "id");
+    private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+
+    private final Key publicKey;
+    private final Set<String> idAttributeNames;
+    private final List<String> digestMethods;
+    private final List<String> jcaDigestAlgorithms;
+
+    /**
+     * Creates a verifier that resolves {@code Id}, {@code ID} and {@code id} attributes and
+     * supports SHA-256 reference digests.
+     *
+     * @param publicKey the key the signatures must verify with
+     */
+    public StreamingVerifier(Key publicKey) {
+        this(publicKey, DEFAULT_ID_ATTRIBUTES, Set.of(DigestMethod.SHA256));
+    }
+
+    /**
+     * Creates a verifier.
+     * <p>
+     * A stream cannot be read twice, so the referenced content is digested before the reference
+     * is known: each additional ID attribute or digest method adds hashing work for every element.
+     *
+     * @param publicKey the key the signatures must verify with
+     * @param idAttributeNames unqualified names of the attributes that identify elements for {@code #id} references
+     * @param digestMethods the reference digest methods to compute
+     * @throws IllegalArgumentException if a digest method is not supported
+     */
+    public StreamingVerifier(Key publicKey, Set<String> idAttributeNames, Set<String> digestMethods) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key cannot be null");
+        }
+        if (digestMethods == null || digestMethods.isEmpty()) {
+            throw new IllegalArgumentException("At least one digest method is required");
+        }
+        this.publicKey = publicKey;
+        this.idAttributeNames = Set.copyOf(Objects.requireNonNull(idAttributeNames, "ID attribute names cannot be null"));
+        this.digestMethods = List.copyOf(digestMethods);
+        List<String> algorithms = new ArrayList<>(this.digestMethods.size());
+        for (String digestMethod : this.digestMethods) {
+            algorithms.add(SignatureAlgorithms.jcaDigestAlgorithm(digestMethod));
+        }
+        this.jcaDigestAlgorithms = List.copyOf(algorithms);
+    }
+
+    /**
+     * Verifies all signatures of a document.
+     *
+     * @param inputStream the signed document, it is read to the end but not closed
+     * @return the per-signature validation report
+     * @throws XMLStreamException if the input is not well-formed or contains a DOCTYPE
+     */
+    public ValidationReport verify(InputStream inputStream) throws XMLStreamException {
+        return verify(inputStream, 0);
+    }
+
+    /**
+     * Verifies all signatures of a document file, reading it through a read-only memory mapping.
+     *
+     * @param signedFile the signed document
+     * @return the per-signature validation report
+     * @throws XMLStreamException if the input is not well-formed or contains a DOCTYPE
+     * @throws IOException if the file cannot be mapped
+     */
+    public ValidationReport verify(Path signedFile) throws XMLStreamException, IOException {
+        return verify(DocumentUtil.mapFile(signedFile));
+    }
+
+    /**
+     * Verifies all signatures of a document held in a buffer. The position of the buffer is not changed.
+     *
+     * @param signedDocument the signed document, heap, direct or mapped
+     * @return the per-signature validation report
+     * @throws XMLStreamException if the input is not well-formed or contains a DOCTYPE
+     */
+    public ValidationReport verify(ByteBuffer signedDocument) throws XMLStreamException {
+        return verify(new ByteBufferInputStream(signedDocument), signedDocument.remaining());
+    }
+
+    private ValidationReport verify(InputStream inputStream, long bytes) throws XMLStreamException {
+        long start = Metrics.start();
+        XMLStreamReader reader = null;
+        try {
+            reader = DocumentUtil.createXMLStreamReader(inputStream);
+            ValidationReport report = new VerificationPass(reader).run();
+            if (report.isValid()) {
+                Metrics.success(Metrics.STREAM_VERIFY, "stax", start, bytes);
+            } else {
+                Metrics.failure(Metrics.STREAM_VERIFY, "stax", start,
+                        report.getSignatures().isEmpty() ? "no-signature" : "invalid");
+            }
+            return report;
+        } catch (XMLStreamException ex) {
+            Metrics.failure(Metrics.STREAM_VERIFY, "stax", start, "malformed");
+            throw ex;
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * State of verifying one document.
+     */
+    private final class VerificationPass {
+
+        private final XMLStreamReader reader;
+        private final InScopeTracker inScope = new InScopeTracker();
+        private final List<Scope> openScopes = new ArrayList<>();
+        private final Deque<Scope> closedScopes = new ArrayDeque<>();
+        private final Map<String, ScopeDigests> digests = new HashMap<>();
+        private final Set<String> duplicateIds = new HashSet<>();
+        private final List<ParsedSignature> signatures = new ArrayList<>();
+        private final List<SignatureValidationResult> nestedSignatureErrors = new ArrayList<>();
+
+        private ParsedSignature current;
+        private int depth;
+
+        VerificationPass(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        ValidationReport run() throws XMLStreamException {
+            openScope("", 0);
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        feed();
+                        if (current != null) {
+                            current.text(reader);
+                        }
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        feed();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            closeScope(openScopes.remove(0));
+            return report();
+        }
+
+        private void startElement() {
+            depth++;
+            boolean signatureElement = XMLSignature.XMLNS.equals(reader.getNamespaceURI())
+                    && "Signature".equals(reader.getLocalName());
+            if (signatureElement && current == null) {
+                current = new ParsedSignature(signatures.size() + nestedSignatureErrors.size(), depth);
+                signatures.add(current);
+                // Digests that leave this signature out, in case a reference to an open scope is enveloped
+                for (Scope scope : openScopes) {
+                    scope.excludeSignature(current.index);
+                }
+            } else if (signatureElement) {
+                int index = signatures.size() + nestedSignatureErrors.size();
+                nestedSignatureErrors.add(SignatureValidationResult.error(index, "Nested signatures are not supported"));
+            } else if (current != null) {
+                current.startElement(reader, inScope);
+            }
+
+            for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+                String namespace = reader.getAttributeNamespace(i);
+                if ((namespace == null || namespace.isEmpty())
+                        && idAttributeNames.contains(reader.getAttributeLocalName(i))) {
+                    openScope("#" + reader.getAttributeValue(i), depth);
+                    break;
+                }
+            }
+
+            inScope.push(reader);
+            feed();
+        }
+
+        private void endElement() {
+            feed();
+            if (current != null) {
+                if (depth == current.depth) {
+                    finishSignature();
+                } else {
+                    current.endElement(reader, depth);
+                    if (current.signedInfoParsed && depth == current.depth + 1 && current.isSignedInfo(reader)) {
+                        // Only keep the digests leaving out this signature for scopes it references as enveloped
+                        for (Scope scope : openScopes) {
+                            if (!current.referencesEnveloped(scope.uri)) {
+                                scope.discardExclusion(current.index);
+                            }
+                        }
+                    }
+                }
+            }
+            for (int i = openScopes.size() - 1; i > 0 && openScopes.get(i).depth == depth; i--) {
+                closeScope(openScopes.remove(i));
+            }
+            inScope.pop();
+            depth--;
+        }
+
+        private void finishSignature() {
+            for (Scope scope : openScopes) {
+                scope.writer.flush();
+                scope.sink.resume(current.index);
+            }
+            current.verifySignatureValue(publicKey);
+            current = null;
+        }
+
+        private void feed() {
+            for (Scope scope : openScopes) {
+                scope.canonicalizer.event(reader);
+            }
+            if (current != null) {
+                current.feedSignedInfo(reader);
+            }
+        }
+
+        private void openScope(String uri, int scopeDepth) {
+            Scope scope = closedScopes.poll();
+            if (scope == null) {
+                scope = new Scope();
+            }
+            scope.open(uri, scopeDepth);
+            openScopes.add(scope);
+        }
+
+        private void closeScope(Scope scope) {
+            scope.canonicalizer.finish();
+            if (duplicateIds.contains(scope.uri)) {
+                // Only the fact that the ID is ambiguous is needed
+                scope.sink.reset();
+            } else if (digests.remove(scope.uri) != null) {
+                duplicateIds.add(scope.uri);
+                scope.sink.reset();
+            } else {
+                digests.put(scope.uri, scope.sink.result());
+            }
+            closedScopes.push(scope);
+        }
+
+        private ValidationReport report() {
+            List<SignatureValidationResult> results = new ArrayList<>(signatures.size() + nestedSignatureErrors.size());
+            for (ParsedSignature signature : signatures) {
+                results.add(signature.result(this));
+            }
+            results.addAll(nestedSignatureErrors);
+            results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+            return new ValidationReport(results);
+        }
+
+        /**
+         * @return the digest of a reference target, or a reason why it cannot be computed
+         */
+        ResolvedDigest resolve(String uri, boolean enveloped, int signatureIndex, String digestMethod) {
+            if (!uri.isEmpty() && !uri.startsWith("#")) {
+                return ResolvedDigest.failure("Unsupported reference URI '" + uri + "'");
+            }
+            if (duplicateIds.contains(uri)) {
+                return ResolvedDigest.failure("Reference '" + uri + "' is ambiguous, the ID is not unique");
+            }
+            ScopeDigests scopeDigests = digests.get(uri);
+            if (scopeDigests == null) {
+                return ResolvedDigest.failure("Cannot resolve reference '" + uri + "'");
+            }
+            int algorithm = digestMethods.indexOf(digestMethod);
+            if (algorithm < 0) {
+                return ResolvedDigest.failure("Digest method " + digestMethod
+                        + " is not configured for streaming verification");
+            }
+            byte[][] values = enveloped
+                    ? scopeDigests.excluding.getOrDefault(signatureIndex, scopeDigests.all)
+                    : scopeDigests.all;
+            return ResolvedDigest.of(values[algorithm]);
+        }
+    }
+
+    /**
+     * Content digested for one reference target: the whole document or an element with an ID.
+     * Once closed, a scope is reused for the next ID element, together with its digests and buffer.
+     */
+    private final class Scope {
+        final DigestSink sink;
+        final CanonicalWriter writer;
+        final StaxCanonicalizer canonicalizer;
+        String uri;
+        int depth;
+
+        Scope() {
+            this.sink = new DigestSink(newDigests());
+            this.writer = CanonicalWriter.to(sink);
+            this.canonicalizer = StaxCanonicalizer.exclusive(writer);
+        }
+
+        void open(String uri, int depth) {
+            this.uri = uri;
+            this.depth = depth;
+            canonicalizer.reset();
+            sink.reset();
+        }
+
+        void excludeSignature(int signatureIndex) {
+            writer.flush();
+            sink.fork(signatureIndex);
+        }
+
+        void discardExclusion(int signatureIndex) {
+            sink.variants.remove(signatureIndex);
+        }
+
+        private MessageDigest[] newDigests() {
+            MessageDigest[] digests = new MessageDigest[jcaDigestAlgorithms.size()];
+            for (int i = 0; i < digests.length; i++) {
+                try {
+                    digests[i] = MessageDigest.getInstance(jcaDigestAlgorithms.get(i));
+                } catch (NoSuchAlgorithmException ex) {
+                    throw new IllegalStateException("Digest algorithm not available: " + jcaDigestAlgorithms.get(i), ex);
+                }
+            }
+            return digests;
+        }
+    }
+
+    /**
+     * Feeds canonical bytes into the digests of a scope and into copies that leave out one
+     * signature. A copy is forked from the running digests when a signature starts and is
+     * suspended until that signature ends, which is the enveloped-signature transform.
+     */
+    private static final class DigestSink extends OutputStream {
+        private final MessageDigest[] all;
+        private final Map<Integer, MessageDigest[]> variants = new LinkedHashMap<>();
+        private final Set<Integer> suspended = new HashSet<>();
+
+        DigestSink(MessageDigest[] all) {
+            this.all = all;
+        }
+
+        void fork(int signatureIndex) {
+            MessageDigest[] copy = new MessageDigest[all.length];
+            for (int i = 0; i < all.length; i++) {
+                try {
+                    copy[i] = (MessageDigest) all[i].clone();
+                } catch (CloneNotSupportedException ex) {
+                    throw new IllegalStateException("Digest algorithm cannot be cloned: " + all[i].getAlgorithm(), ex);
+                }
+            }
+            variants.put(signatureIndex, copy);
+            suspended.add(signatureIndex);
+        }
+
+        void resume(int signatureIndex) {
+            suspended.remove(signatureIndex);
+        }
+
+        /**
+         * Completes the digests, which also resets them for the next scope.
+         */
+        ScopeDigests result() {
+            Map<Integer, byte[][]> excluding = Map.of();
+            if (!variants.isEmpty()) {
+                excluding = new HashMap<>();
+                for (Map.Entry<Integer, MessageDigest[]> variant : variants.entrySet()) {
+                    excluding.put(variant.getKey(), finish(variant.getValue()));
+                }
+            }
+            ScopeDigests result = new ScopeDigests(finish(all), excluding);
+            variants.clear();
+            suspended.clear();
+            return result;
+        }
+
+        void reset() {
+            for (MessageDigest digest : all) {
+                digest.reset();
+            }
+            variants.clear();
+            suspended.clear();
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (MessageDigest digest : all) {
+                digest.update(b, off, len);
+            }
+            for (Map.Entry<Integer, MessageDigest[]> variant : variants.entrySet()) {
+                if (!suspended.contains(variant.getKey())) {
+                    for (MessageDigest digest : variant.getValue()) {
+                        digest.update(b, off, len);
+                    }
+                }
+            }
+        }
+
+        private static byte[][] finish(MessageDigest[] digests) {
+            byte[][] values = new byte[digests.length][];
+            for (int i = 0; i < digests.length; i++) {
+                values[i] = digests[i].digest();
+            }
+            return values;
+        }
+    }
+
+    private static final class ScopeDigests {
+        final byte[][] all;
+        final Map<Integer, byte[][]> excluding;
+
+        ScopeDigests(byte[][] all, Map<Integer, byte[][]> excluding) {
+            this.all = all;
+            this.excluding = excluding;
+        }
+    }
+
+    /**
+     * Either the digest of a reference target or the reason why it cannot be computed.
+     */
+    private static final class ResolvedDigest {
+        final byte[] value;
+        final String problem;
+
+        private ResolvedDigest(byte[] value, String problem) {
+            this.value = value;
+            this.problem = problem;
+        }
+
+        static ResolvedDigest of(byte[] value) {
+            return new ResolvedDigest(value, null);
+        }
+
+        static ResolvedDigest failure(String problem) {
+            return new ResolvedDigest(null, problem);
+        }
+    }
+
+    /**
+     * Namespace declarations and {@code xml:*} attributes in scope, needed to canonicalize
+     * SignedInfo with inclusive c14n.
+     */
+    private static final class InScopeTracker {
+        private final Deque<Map<String, String>> namespaces = new ArrayDeque<>();
+        private final Deque<Map<String, String>> xmlAttributes = new ArrayDeque<>();
+
+        void push(XMLStreamReader reader) {
+            Map<String, String> declared = Map.of();
+            int nsCount = reader.getNamespaceCount();
+            if (nsCount > 0) {
+                declared = new HashMap<>();
+                for (int i = 0; i < nsCount; i++) {
+                    String prefix = reader.getNamespacePrefix(i);
+                    String uri = reader.getNamespaceURI(i);
+                    declared.put(prefix == null ? "" : prefix, uri == null ? "" : uri);
+                }
+            }
+            Map<String, String> xml = Map.of();
+            for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+                if (XML_NAMESPACE.equals(reader.getAttributeNamespace(i))) {
+                    if (xml.isEmpty()) {
+                        xml = new HashMap<>();
+                    }
+                    xml.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                }
+            }
+            namespaces.push(declared);
+            xmlAttributes.push(xml);
+        }
+
+        void pop() {
+            namespaces.pop();
+            xmlAttributes.pop();
+        }
+
+        Map<String, String> namespaces() {
+            return merge(namespaces);
+        }
+
+        Map<String, String> xmlAttributes() {
+            return merge(xmlAttributes);
+        }
+
+        private static Map<String, String> merge(Deque<Map<String, String>> frames) {
+            Map<String, String> merged = new HashMap<>();
+            // The deque iterates from the innermost frame, outer declarations must not override
+            for (Map<String, String> frame : frames) {
+                frame.forEach(merged::putIfAbsent);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * A {@code ds:Signature} element as far as it is needed for verification.
+     */
+    private final class ParsedSignature {
+        final int index;
+        final int depth;
+        final List<ParsedReference> references = new ArrayList<>();
+        final StringBuilder signatureValue = new StringBuilder();
+
+        String canonicalizationMethod;
+        String signatureMethod;
+        String unsupported;
+        boolean signedInfoParsed;
+        Boolean signatureValueValid;
+        String signatureValueFailure;
+
+        private StaxCanonicalizer exclusiveSignedInfo;
+        private StaxCanonicalizer inclusiveSignedInfo;
+        private ByteArrayOutputStream exclusiveBytes;
+        private ByteArrayOutputStream inclusiveBytes;
+        private final Deque<String> path = new ArrayDeque<>();
+        private ParsedReference reference;
+        private StringBuilder textTarget;
+
+        ParsedSignature(int index, int depth) {
+            this.index = index;
+            this.depth = depth;
+        }
+
+        void startElement(XMLStreamReader reader, InScopeTracker inScope) {
+            String parent = path.peek();
+            String name = XMLSignature.XMLNS.equals(reader.getNamespaceURI()) ? reader.getLocalName() : "";
+            path.push(name);
+            textTarget = null;
+
+            if (parent == null) {
+                if ("SignedInfo".equals(name) && !signedInfoParsed) {
+                    // The canonicalization method is only known after SignedInfo has started
+                    exclusiveBytes = new ByteArrayOutputStream(1024);
+                    inclusiveBytes = new ByteArrayOutputStream(1024);
+                    exclusiveSignedInfo = StaxCanonicalizer.exclusive(CanonicalWriter.to(exclusiveBytes));
+                    inclusiveSignedInfo = StaxCanonicalizer.inclusive(CanonicalWriter.to(inclusiveBytes),
+                            inScope.namespaces(), inScope.xmlAttributes());
+                } else if ("SignatureValue".equals(name)) {
+                    textTarget = signatureValue;
+                }
+                return;
+            }
+            // Only the first SignedInfo child of this signature is signed, look-alikes elsewhere
+            // (e.g. in ds:Object or KeyInfo) must not be read as part of it
+            if (!inSignedInfo()) {
+                return;
+            }
+            int level = path.size();
+            switch (parent) {
+                case "SignedInfo":
+                    if (level != 2) {
+                        break;
+                    }
+                    if ("CanonicalizationMethod".equals(name)) {
+                        canonicalizationMethod = reader.getAttributeValue(null, "Algorithm");
+                    } else if ("SignatureMethod".equals(name)) {
+                        signatureMethod = reader.getAttributeValue(null, "Algorithm");
+                    } else if ("Reference".equals(name)) {
+                        reference = new ParsedReference(reader.getAttributeValue(null, "Id"),
+                                reader.getAttributeValue(null, "URI"));
+                        references.add(reference);
+                    }
+                    break;
+                case "CanonicalizationMethod":
+                    if (level == 3) {
+                        unsupported = "Canonicalization method parameters are not supported";
+                    }
+                    break;
+                case "Reference":
+                    if (level != 3) {
+                        break;
+                    }
+                    if ("DigestMethod".equals(name)) {
+                        reference.digestMethod = reader.getAttributeValue(null, "Algorithm");
+                    } else if ("DigestValue".equals(name)) {
+                        textTarget = reference.digestValue;
+                    }
+                    break;
+                case "Transforms":
+                    // The reference is only set while a Reference child of SignedInfo is open
+                    if (level == 4 && reference != null && "Transform".equals(name)) {
+                        reference.transforms.add(reader.getAttributeValue(null, "Algorithm"));
+                    }
+                    break;
+                case "Transform":
+                    if (level == 5 && reference != null) {
+                        reference.unsupported = "Transform parameters are not supported";
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * @return true while within the first SignedInfo child of the signature, the current element included
+         */
+        private boolean inSignedInfo() {
+            return exclusiveSignedInfo != null && !signedInfoParsed && "SignedInfo".equals(path.peekLast());
+        }
+
+        void endElement(XMLStreamReader reader, int elementDepth) {
+            path.pop();
+            if (path.size() == 1) {
+                // A Reference of SignedInfo ended, nothing below another element may extend it
+                reference = null;
+            }
+            textTarget = null;
+            if (elementDepth == depth + 1 && isSignedInfo(reader) && exclusiveSignedInfo != null) {
+                exclusiveSignedInfo.finish();
+                inclusiveSignedInfo.finish();
+                signedInfoParsed = true;
+            }
+        }
+
+        boolean isSignedInfo(XMLStreamReader reader) {
+            return XMLSignature.XMLNS.equals(reader.getNamespaceURI()) && "SignedInfo".equals(reader.getLocalName());
+        }
+
+        void feedSignedInfo(XMLStreamReader reader) {
+            if (exclusiveSignedInfo != null && !signedInfoParsed) {
+                exclusiveSignedInfo.event(reader);
+                inclusiveSignedInfo.event(reader);
+            }
+        }
+
+        void text(XMLStreamReader reader) {
+            if (textTarget != null) {
+                textTarget.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+
+        boolean referencesEnveloped(String uri) {
+            for (ParsedReference ref : references) {
+                if (uri.equals(ref.uri) && ref.isEnveloped()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void verifySignatureValue(Key key) {
+            byte[] canonicalSignedInfo;
+            if (!signedInfoParsed) {
+                signatureValueFailure = "Signature has no SignedInfo";
+                return;
+            } else if (unsupported != null) {
+                signatureValueFailure = unsupported;
+                return;
+            } else if (CanonicalizationMethod.EXCLUSIVE.equals(canonicalizationMethod)) {
+                canonicalSignedInfo = exclusiveBytes.toByteArray();
+            } else if (CanonicalizationMethod.INCLUSIVE.equals(canonicalizationMethod)) {
+                canonicalSignedInfo = inclusiveBytes.toByteArray();
+            } else {
+                signatureValueFailure = "Unsupported canonicalization method for streaming: " + canonicalizationMethod;
+                return;
+            }
+            // The canonical forms are no longer needed, only keep what the report needs
+            exclusiveBytes = null;
+            inclusiveBytes = null;
+            exclusiveSignedInfo = null;
+            inclusiveSignedInfo = null;
+
+            try {
+                Signature verifier = Signature.getInstance(SignatureAlgorithms.jcaSignatureAlgorithm(signatureMethod));
+                verifier.initVerify((PublicKey) key);
+                verifier.update(canonicalSignedInfo);
+                signatureValueValid = verifier.verify(Base64.getMimeDecoder().decode(signatureValue.toString()));
+            } catch (GeneralSecurityException | IllegalArgumentException | ClassCastException ex) {
+                logger.debug("Verification of signature {} failed: {}", index, ex.getMessage());
+                logger.trace("Verification exception", ex);
+                signatureValueFailure = ex.getMessage();
+            }
+        }
+
+        SignatureValidationResult result(VerificationPass pass) {
+            if (signatureValueFailure != null) {
+                return SignatureValidationResult.error(index, signatureValueFailure);
+            }
+            String failureReason = signatureValueValid ? null : "SignatureValue is invalid";
+            boolean valid = signatureValueValid;
+            List<SignatureValidationResult.ReferenceStatus> statuses = new ArrayList<>(references.size());
+            for (ParsedReference ref : references) {
+                String problem = ref.unsupportedReason();
+                if (problem == null) {
+                    ResolvedDigest digest = pass.resolve(ref.uri, ref.isEnveloped(), index, ref.digestMethod);
+                    if (digest.problem != null) {
+                        problem = digest.problem;
+                    } else {
+                        problem = compareDigest(ref, digest.value);
+                    }
+                }
+                boolean refValid = problem == null;
+                statuses.add(new SignatureValidationResult.ReferenceStatus(ref.id, ref.uri, refValid));
+                if (!refValid) {
+                    valid = false;
+                    if (failureReason == null) {
+                        failureReason = problem;
+                    }
+                    logger.trace("[Ref id={}:uri={}] validity status: false ({})", ref.id, ref.uri, problem);
+                }
+            }
+            if (!valid) {
+                logger.trace("Signature validation status: {}", signatureValueValid);
+            }
+            SignatureValidationResult.Status status = valid
+                    ? SignatureValidationResult.Status.VALID
+                    : SignatureValidationResult.Status.INVALID;
+            return new SignatureValidationResult(index, status, signatureValueValid, statuses, failureReason);
+        }
+    }
+
+    /**
+     * @return null if the DigestValue of a reference matches, otherwise why not
+     */
+    private static String compareDigest(ParsedReference ref, byte[] calculated) {
+        byte[] expected;
+        try {
+            expected = Base64.getMimeDecoder().decode(ref.digestValue.toString());
+        } catch (IllegalArgumentException ex) {
+            logger.debug("DigestValue of reference '{}' is not base64: {}", ref.uri, ex.getMessage());
+            return "DigestValue of reference '" + ref.uri + "' is not valid base64: " + ex.getMessage();
+        }
+        return MessageDigest.isEqual(expected, calculated) ? null : "Digest of reference '" + ref.uri + "' does not match";
+    }
+
+    private static final class ParsedReference {
+        private static final List<String> EXCLUSIVE_TRANSFORMS = Arrays.asList(
+                CanonicalizationMethod.EXCLUSIVE, CanonicalizationMethod.EXCLUSIVE_WITH_COMMENTS);
+
+        final String id;
+        final String uri;
+        final List<String> transforms = new ArrayList<>(2);
+        final StringBuilder digestValue = new StringBuilder(64);
+        String digestMethod;
+        String unsupported;
+
+        ParsedReference(String id, String uri) {
+            this.id = id;
+            this.uri = uri;
+        }
+
+        boolean isEnveloped() {
+            return !transforms.isEmpty() && Transform.ENVELOPED.equals(transforms.get(0));
+        }
+
+        /**
+         * Same-document references never include comments, so exclusive c14n with and without
+         * comments produce the same output.
+         */
+        String unsupportedReason() {
+            if (uri == null) {
+                return "References without URI are not supported";
+            }
+            if (unsupported != null) {
+                return unsupported;
+            }
+            int c14n = isEnveloped() ? 1 : 0;
+            if (transforms.size() != c14n + 1 || !EXCLUSIVE_TRANSFORMS.contains(transforms.get(c14n))) {
+                return "Unsupported transforms for streaming: " + transforms;
+            }
+            return null;
+        }
+    }
+}
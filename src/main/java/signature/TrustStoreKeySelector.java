@@ -0,0 +1,339 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.security.auth.x500.X500Principal;
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.XMLStructure;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.KeyName;
+import javax.xml.crypto.dsig.keyinfo.KeyValue;
+import javax.xml.crypto.dsig.keyinfo.X509Data;
+import javax.xml.crypto.dsig.keyinfo.X509IssuerSerial;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyException;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.X509Certificate;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves the validation key of a signature from its KeyInfo against a preloaded trust store,
+ * so documents of many partners can be validated by one selector without looking up a key per
+ * document first.
+ * <p>
+ * The KeyInfo children are tried in document order: an {@code X509Certificate} is matched by the
+ * SHA-256 fingerprint of its encoding, {@code X509IssuerSerial} and {@code X509SubjectName} by
+ * name, a {@code KeyName} by the name it was trusted under and a {@code KeyValue} by its encoded
+ * key. Only trusted keys are ever returned, a certificate or key that merely appears in KeyInfo is
+ * not trusted. Trusted certificates must be within their validity period unless
+ * {@link Builder#checkValidity(boolean)} is switched off, and the key must suit the signature
+ * method.
+ * <p>
+ * All lookups are reads of immutable maps built once; instances are thread-safe and meant to be
+ * shared, e.g. across a {@link BatchValidator} or {@link DirectoryVerifier}.
+ */
+public final class TrustStoreKeySelector extends KeySelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrustStoreKeySelector.class);
+
+    private final Map<ByteBuffer, Trusted> byFingerprint;
+    private final Map<String, Trusted> byKeyName;
+    private final Map<ByteBuffer, Trusted> byEncodedKey;
+    private final Map<X500Principal, Trusted> bySubject;
+    private final Map<IssuerSerial, Trusted> byIssuerSerial;
+    private final boolean checkValidity;
+
+    private TrustStoreKeySelector(Builder builder) {
+        this.byFingerprint = Map.copyOf(builder.byFingerprint);
+        this.byKeyName = Map.copyOf(builder.byKeyName);
+        this.byEncodedKey = Map.copyOf(builder.byEncodedKey);
+        this.bySubject = Map.copyOf(builder.bySubject);
+        this.byIssuerSerial = Map.copyOf(builder.byIssuerSerial);
+        this.checkValidity = builder.checkValidity;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public KeySelectorResult select(KeyInfo keyInfo, Purpose purpose, AlgorithmMethod method,
+                                    XMLCryptoContext context) throws KeySelectorException {
+        if (keyInfo == null) {
+            throw new KeySelectorException("Signature has no KeyInfo");
+        }
+        String signatureMethod = method != null ? method.getAlgorithm() : null;
+        for (XMLStructure item : keyInfo.getContent()) {
+            Trusted trusted = lookup(item);
+            if (trusted == null) {
+                continue;
+            }
+            if (signatureMethod != null && !SignatureAlgorithms.keyMatches(signatureMethod, trusted.key)) {
+                throw new KeySelectorException("Trusted key " + trusted + " does not suit " + signatureMethod);
+            }
+            if (checkValidity && trusted.certificate != null) {
+                try {
+                    trusted.certificate.checkValidity();
+                } catch (CertificateExpiredException | CertificateNotYetValidException ex) {
+                    throw new KeySelectorException("Trusted certificate " + trusted + " is not valid now", ex);
+                }
+            }
+            Key key = trusted.key;
+            return () -> key;
+        }
+        throw new KeySelectorException("No trusted key found in KeyInfo");
+    }
+
+    /**
+     * @return the number of trusted certificates
+     */
+    public int getCertificateCount() {
+        return byFingerprint.size();
+    }
+
+    private Trusted lookup(XMLStructure item) throws KeySelectorException {
+        if (item instanceof KeyName) {
+            return byKeyName.get(((KeyName) item).getName());
+        }
+        if (item instanceof KeyValue) {
+            try {
+                return byEncodedKey.get(ByteBuffer.wrap(((KeyValue) item).getPublicKey().getEncoded()));
+            } catch (KeyException ex) {
+                logger.debug("Skipping unreadable KeyValue: {}", ex.getMessage());
+                return null;
+            }
+        }
+        if (item instanceof X509Data) {
+            for (Object content : ((X509Data) item).getContent()) {
+                Trusted trusted = lookupX509(content);
+                if (trusted != null) {
+                    return trusted;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Trusted lookupX509(Object content) throws KeySelectorException {
+        if (content instanceof X509Certificate) {
+            try {
+                return byFingerprint.get(CertificateCache.fingerprint((X509Certificate) content));
+            } catch (CertificateEncodingException ex) {
+                throw new KeySelectorException("Cannot encode certificate of KeyInfo", ex);
+            }
+        }
+        try {
+            if (content instanceof X509IssuerSerial) {
+                X509IssuerSerial issuerSerial = (X509IssuerSerial) content;
+                return byIssuerSerial.get(new IssuerSerial(new X500Principal(issuerSerial.getIssuerName()),
+                        issuerSerial.getSerialNumber()));
+            }
+            if (content instanceof String) {
+                return bySubject.get(new X500Principal((String) content));
+            }
+        } catch (IllegalArgumentException ex) {
+            logger.debug("Skipping malformed X509 name: {}", ex.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "TrustStoreKeySelector{certificates=" + byFingerprint.size() + ", keyNames=" + byKeyName.size()
+                + ", keys=" + byEncodedKey.size() + '}';
+    }
+
+    /**
+     * A trusted key, with the certificate it was taken from if any.
+     */
+    private static final class Trusted {
+        private final PublicKey key;
+        private final X509Certificate certificate;
+        private final String name;
+
+        private Trusted(PublicKey key, X509Certificate certificate, String name) {
+            this.key = key;
+            this.certificate = certificate;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class IssuerSerial {
+        private final X500Principal issuer;
+        private final BigInteger serialNumber;
+
+        private IssuerSerial(X500Principal issuer, BigInteger serialNumber) {
+            this.issuer = issuer;
+            this.serialNumber = serialNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IssuerSerial)) {
+                return false;
+            }
+            IssuerSerial other = (IssuerSerial) o;
+            return issuer.equals(other.issuer) && serialNumber.equals(other.serialNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(issuer, serialNumber);
+        }
+    }
+
+    /**
+     * Builder for {@link TrustStoreKeySelector}.
+     */
+    public static final class Builder {
+        private final Map<ByteBuffer, Trusted> byFingerprint = new HashMap<>();
+        private final Map<String, Trusted> byKeyName = new HashMap<>();
+        private final Map<ByteBuffer, Trusted> byEncodedKey = new HashMap<>();
+        private final Map<X500Principal, Trusted> bySubject = new HashMap<>();
+        private final Map<IssuerSerial, Trusted> byIssuerSerial = new HashMap<>();
+        private boolean checkValidity = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Trusts a certificate. Signatures naming it by certificate, issuer and serial number,
+         * subject name or by its public key are resolved to its public key.
+         *
+         * @param certificate the trusted certificate
+         * @return this builder
+         * @throws IllegalArgumentException if the certificate cannot be encoded
+         */
+        public Builder trust(X509Certificate certificate) {
+            return trust(null, certificate);
+        }
+
+        /**
+         * Trusts a certificate that is also referred to by a KeyName.
+         *
+         * @param keyName the KeyName the signer uses, may be null
+         * @param certificate the trusted certificate
+         * @return this builder
+         * @throws IllegalArgumentException if the certificate cannot be encoded
+         */
+        public Builder trust(String keyName, X509Certificate certificate) {
+            Objects.requireNonNull(certificate, "Certificate cannot be null");
+            Trusted trusted = new Trusted(certificate.getPublicKey(), certificate,
+                    certificate.getSubjectX500Principal().getName());
+            try {
+                byFingerprint.put(CertificateCache.fingerprint(certificate), trusted);
+            } catch (CertificateEncodingException ex) {
+                throw new IllegalArgumentException("Cannot encode certificate " + trusted, ex);
+            }
+            bySubject.put(certificate.getSubjectX500Principal(), trusted);
+            byIssuerSerial.put(new IssuerSerial(certificate.getIssuerX500Principal(), certificate.getSerialNumber()),
+                    trusted);
+            byEncodedKey.put(ByteBuffer.wrap(trusted.key.getEncoded()), trusted);
+            if (keyName != null) {
+                byKeyName.put(keyName, trusted);
+            }
+            return this;
+        }
+
+        /**
+         * Trusts a bare public key, found by its KeyName or its KeyValue.
+         *
+         * @param keyName the KeyName the signer uses, may be null
+         * @param publicKey the trusted public key
+         * @return this builder
+         */
+        public Builder trust(String keyName, PublicKey publicKey) {
+            Objects.requireNonNull(publicKey, "Public key cannot be null");
+            Trusted trusted = new Trusted(publicKey, null, keyName != null ? keyName : publicKey.getAlgorithm() + " key");
+            byEncodedKey.put(ByteBuffer.wrap(publicKey.getEncoded()), trusted);
+            if (keyName != null) {
+                byKeyName.put(keyName, trusted);
+            }
+            return this;
+        }
+
+        /**
+         * Trusts the certificate of every entry of a keystore, under its alias as KeyName.
+         *
+         * @param keyStore a loaded keystore, e.g. from {@link KryptoUtil#loadKeyStore}
+         * @return this builder
+         * @throws GeneralSecurityException if the keystore cannot be read
+         */
+        public Builder trust(KeyStore keyStore) throws GeneralSecurityException {
+            for (Enumeration<String> aliases = keyStore.aliases(); aliases.hasMoreElements(); ) {
+                String alias = aliases.nextElement();
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate instanceof X509Certificate) {
+                    trust(alias, (X509Certificate) certificate);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Trusts every alias of a key provider under its alias as KeyName, by certificate if it
+         * has one and by public key otherwise.
+         *
+         * @param keyProvider the key provider; keys reloaded later are not picked up
+         * @return this builder
+         */
+        public Builder trust(KeyProvider keyProvider) {
+            for (String alias : keyProvider.getAliases()) {
+                X509Certificate certificate = keyProvider.getCertificate(alias);
+                if (certificate != null) {
+                    trust(alias, certificate);
+                } else if (keyProvider.getPublicKey(alias) != null) {
+                    trust(alias, keyProvider.getPublicKey(alias));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param checkValidity whether trusted certificates must be within their validity period
+         *                      when a signature is validated, defaults to true
+         * @return this builder
+         */
+        public Builder checkValidity(boolean checkValidity) {
+            this.checkValidity = checkValidity;
+            return this;
+        }
+
+        /**
+         * Builds the selector.
+         *
+         * @return a new TrustStoreKeySelector
+         * @throws IllegalStateException if nothing is trusted
+         */
+        public TrustStoreKeySelector build() {
+            if (byEncodedKey.isEmpty()) {
+                throw new IllegalStateException("At least one certificate or key must be trusted");
+            }
+            return new TrustStoreKeySelector(this);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package signature;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Validation outcome of a document: one {@link SignatureValidationResult} per {@code ds:Signature}.
+ * A document is valid if it carries at least one signature and all of them are valid.
+ */
+public final class ValidationReport {
+
+    private final List<SignatureValidationResult> signatures;
+    private final Exception failure;
+
+    ValidationReport(List<SignatureValidationResult> signatures) {
+        this(signatures, null);
+    }
+
+    private ValidationReport(List<SignatureValidationResult> signatures, Exception failure) {
+        this.signatures = Collections.unmodifiableList(signatures);
+        this.failure = failure;
+    }
+
+    static ValidationReport failure(Exception failure) {
+        return new ValidationReport(Collections.emptyList(), failure);
+    }
+
+    /**
+     * @return true if the document has signatures and all of them are valid
+     */
+    public boolean isValid() {
+        if (failure != null || signatures.isEmpty()) {
+            return false;
+        }
+        for (SignatureValidationResult signature : signatures) {
+            if (!signature.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the per-signature results in document order
+     */
+    public List<SignatureValidationResult> getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * @return the exception that prevented validating the document, or null
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationReport{valid=" + isValid() + ", signatures=" + signatures
+                + (failure != null ? ", failure=" + failure : "") + '}';
+    }
+}
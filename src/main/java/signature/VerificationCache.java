@@ -0,0 +1,296 @@
+package signature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers verification outcomes of signed documents, so a document that is received again
+ * (retries, duplicates across queues) is answered with one SHA-256 over its bytes and one lookup
+ * instead of parsing, canonicalization, digesting and signature verification.
+ * <p>
+ * Entries are keyed by a SHA-256 over the encoded public key and the raw signed bytes; a byte that
+ * differs, or another key, is a different entry. Valid and invalid outcomes are cached, documents
+ * that could not be parsed are not. The cache is bounded: it is split into up to 16 segments, each
+ * an LRU list, whose sizes add up to {@code maximumSize}, and entries expire after a time to live
+ * so that a revoked key stops being trusted eventually. Instances are thread-safe.
+ */
+public final class VerificationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerificationCache.class);
+
+    private static final int SEGMENTS = 16;
+
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    });
+
+    private final Segment[] segments;
+    private final long timeToLiveNanos;
+    private final LongSupplier ticker;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private VerificationCache(Builder builder) {
+        if (builder.maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        if (builder.timeToLive.isNegative() || builder.timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        // Small caches get fewer segments, every segment holds at least one entry
+        int segmentCount = (int) Math.min(SEGMENTS, builder.maximumSize);
+        long segmentSize = builder.maximumSize / segmentCount;
+        long remainder = builder.maximumSize % segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSize + (i < remainder ? 1 : 0));
+        }
+        this.timeToLiveNanos = builder.timeToLive.toNanos();
+        this.ticker = builder.ticker;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Validates all signatures of a signed document, or returns the cached outcome of an earlier
+     * validation of the same bytes with the same key.
+     *
+     * @param signedXml the signed document as received
+     * @param publicKey the public key for validation
+     * @return the per-signature validation report
+     */
+    public ValidationReport validate(byte[] signedXml, Key publicKey) {
+        return validate(ByteBuffer.wrap(signedXml), publicKey);
+    }
+
+    /**
+     * Validates the remaining bytes of a buffer; see {@link #validate(byte[], Key)}. The position of
+     * the buffer is not changed.
+     *
+     * @param signedXml the signed document as received, heap, direct or mapped
+     * @param publicKey the public key for validation
+     * @return the per-signature validation report
+     */
+    public ValidationReport validate(ByteBuffer signedXml, Key publicKey) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key cannot be null");
+        }
+        ByteBuffer key = cacheKey(signedXml, publicKey);
+        Segment segment = segments[(key.hashCode() & Integer.MAX_VALUE) % segments.length];
+
+        ValidationReport cached = segment.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        ValidationReport report;
+        try {
+            report = XMLSignatureUtil.validateDetailed(DocumentUtil.parseXmlDocument(signedXml), publicKey);
+        } catch (Exception ex) {
+            logger.debug("Validating cached document failed: {}", ex.getMessage());
+            return ValidationReport.failure(ex);
+        }
+        segment.put(key, report);
+        return report;
+    }
+
+    /**
+     * @return the number of validations answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of validations that had to verify the document
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits divided by all lookups, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return the number of entries dropped because a segment was full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because their time to live had passed
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return the number of cached outcomes, including expired ones not yet dropped
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Drops all cached outcomes, e.g. after a key has been revoked. Statistics are kept.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VerificationCache{size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount() + '}';
+    }
+
+    private static ByteBuffer cacheKey(ByteBuffer signedXml, Key publicKey) {
+        MessageDigest digest = sha256.get();
+        byte[] encodedKey = publicKey.getEncoded();
+        // Length prefix, so that key and document bytes cannot be shifted into each other
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, encodedKey.length));
+        digest.update(encodedKey);
+        digest.update(signedXml.duplicate());
+        // ByteBuffer compares and hashes its content
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    /**
+     * One LRU list of the cache, guarded by its own lock.
+     */
+    private final class Segment {
+
+        private final LinkedHashMap<ByteBuffer, Entry> entries;
+
+        private Segment(long maximumSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+                    if (size() > maximumSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized ValidationReport get(ByteBuffer key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (ticker.getAsLong() - entry.expiresAt >= 0) {
+                entries.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry.report;
+        }
+
+        private synchronized void put(ByteBuffer key, ValidationReport report) {
+            entries.put(key, new Entry(report, ticker.getAsLong() + timeToLiveNanos));
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+        private final ValidationReport report;
+        private final long expiresAt;
+
+        private Entry(ValidationReport report, long expiresAt) {
+            this.report = report;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Builder for {@link VerificationCache}.
+     */
+    public static final class Builder {
+        private long maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofMinutes(10);
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maximumSize the maximum number of cached outcomes, defaults to 10000
+         * @return this builder
+         */
+        public Builder maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param timeToLive how long an outcome is reused after the document was verified, defaults to 10 minutes
+         * @return this builder
+         */
+        public Builder timeToLive(Duration timeToLive) {
+            this.timeToLive = Objects.requireNonNull(timeToLive, "Time to live cannot be null");
+            return this;
+        }
+
+        /**
+         * @param ticker the nanosecond time source, for tests
+         * @return this builder
+         */
+        Builder ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker, "Ticker cannot be null");
+            return this;
+        }
+
+        /**
+         * Builds the cache.
+         *
+         * @return a new, empty VerificationCache
+         * @throws IllegalArgumentException if the size or time to live is not positive
+         */
+        public VerificationCache build() {
+            return new VerificationCache(this);
+        }
+    }
+}
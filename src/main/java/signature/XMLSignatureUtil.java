@@ -1,5 +1,6 @@
 package signature;
 
+import metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Attr;
@@ -8,6 +9,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
 import javax.xml.crypto.AlgorithmMethod;
 import javax.xml.crypto.KeySelector;
@@ -29,25 +31,44 @@ import javax.xml.crypto.dsig.dom.DOMValidateContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
 import javax.xml.crypto.dsig.keyinfo.KeyInfoFactory;
 import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.ExcC14NParameterSpec;
 import javax.xml.crypto.dsig.spec.TransformParameterSpec;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyException;
 import java.security.KeyPair;
+import java.security.MessageDigest;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.Security;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.EdECPublicKey;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Utility class for XML Digital Signature operations.
@@ -55,10 +76,31 @@ import java.util.List;
  */
 public class XMLSignatureUtil {
 
+    /**
+     * System property that switches off digesting references with the built-in canonicalizer
+     * when set to {@code false}; see {@link #setDirectDigest(boolean)}.
+     */
+    public static final String DIRECT_DIGEST_PROPERTY = "xstream-poc.directDigest";
+
     private static final Logger logger = LoggerFactory.getLogger(XMLSignatureUtil.class);
-    private static final XMLSignatureFactory signatureFactory = getXMLSignatureFactory();
+    // JSR-105 only makes the static factory methods thread-safe, instances need one per thread
+    private static final ThreadLocal<XMLSignatureFactory> signatureFactory =
+            ThreadLocal.withInitial(XMLSignatureUtil::getXMLSignatureFactory);
+
+    private static final String UNKNOWN_ALGORITHM = "unknown";
+
+    private static final int MAX_REFERENCES = readMaxReferences();
+
+    private static final int WORKER_PENDING = 0;
+    private static final int WORKER_STARTED = 1;
+    private static final int WORKER_SKIPPED = 2;
+
+    // XPath objects are not thread-safe
+    private static final ThreadLocal<XPath> xpath = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
 
     private static boolean includeKeyInfoInSignature = true;
+    private static volatile boolean directDigest =
+            !"false".equalsIgnoreCase(System.getProperty(DIRECT_DIGEST_PROPERTY));
 
     private XMLSignatureUtil() {
         // Utility class - prevent instantiation
@@ -80,6 +122,26 @@ public class XMLSignatureUtil {
         }
     }
 
+    private static int readMaxReferences() {
+        // The value of the JDK's shipped default policy, used as a conservative fallback when the
+        // policy in effect does not set maxReferences
+        int maxReferences = 30;
+        String policy = Security.getProperty("jdk.xml.dsig.secureValidationPolicy");
+        if (policy != null) {
+            for (String entry : policy.split(",")) {
+                String[] tokens = entry.trim().split("\\s+");
+                if (tokens.length == 2 && "maxReferences".equals(tokens[0])) {
+                    try {
+                        maxReferences = Integer.parseInt(tokens[1]);
+                    } catch (NumberFormatException ex) {
+                        logger.debug("Ignoring malformed maxReferences: {}", tokens[1]);
+                    }
+                }
+            }
+        }
+        return Math.max(1, maxReferences);
+    }
+
     private static XMLSignatureFactory getXMLSignatureFactory() {
         try {
             return XMLSignatureFactory.getInstance("DOM", "ApacheXMLDSig");
@@ -190,7 +252,7 @@ public class XMLSignatureUtil {
 
         DOMSignContext signContext = new DOMSignContext(signingKey, elementToSign, nextSibling);
         signImpl(signContext, digestMethod, signatureMethod, referenceURI, keyName, publicKey,
-                x509Certificate, canonicalizationMethodType);
+                x509Certificate, canonicalizationMethodType, includeKeyInfoInSignature);
     }
 
     /**
@@ -240,11 +302,434 @@ public class XMLSignatureUtil {
 
         DOMSignContext signContext = new DOMSignContext(signingKey, doc.getDocumentElement());
         signImpl(signContext, digestMethod, signatureMethod, referenceURI, keyName, publicKey,
-                x509Certificate, canonicalizationMethodType);
+                x509Certificate, canonicalizationMethodType, includeKeyInfoInSignature);
+
+        return doc;
+    }
+
+    /**
+     * Signs the root element of a document using a signing profile.
+     * Unlike the other sign methods this one does not depend on any global state,
+     * so it can be called concurrently for different documents.
+     *
+     * @param doc the document to sign
+     * @param profile the signing profile
+     * @return the signed document
+     */
+    public static Document sign(Document doc, SigningProfile profile)
+            throws MarshalException, XMLSignatureException, TransformerException {
+
+        if (doc == null) {
+            throw new IllegalArgumentException("Document to be signed cannot be null");
+        }
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("Document to be signed={}", DocumentUtil.asString(doc));
+        }
+
+        Element root = doc.getDocumentElement();
+        DOMSignContext signContext = new DOMSignContext(profile.getKeyPair().getPrivate(), root);
+        signImpl(signContext, profile, profile.getReferenceUriStrategy().referenceURI(root));
+
+        return doc;
+    }
+
+    /**
+     * Signs the root element of a UTF-8 document read from a stream and writes the signed document
+     * to another stream, without decoding either to a string. The output is not indented, so the
+     * signature stays valid. Neither stream is closed.
+     *
+     * @param xml the document to sign
+     * @param out receives the signed document
+     * @param profile the signing profile
+     */
+    public static void sign(InputStream xml, OutputStream out, SigningProfile profile)
+            throws ParserConfigurationException, SAXException, IOException,
+            MarshalException, XMLSignatureException, TransformerException {
+
+        Document doc = DocumentUtil.parseXmlDocument(xml);
+        DocumentUtil.writeTo(sign(doc, profile), out, false);
+    }
+
+    /**
+     * Signs the root element of a document given as bytes.
+     *
+     * @param xml the document to sign
+     * @param profile the signing profile
+     * @return the signed document as unindented UTF-8 bytes
+     * @see #sign(InputStream, OutputStream, SigningProfile)
+     */
+    public static byte[] sign(byte[] xml, SigningProfile profile)
+            throws ParserConfigurationException, SAXException, IOException,
+            MarshalException, XMLSignatureException, TransformerException {
+
+        Document doc = DocumentUtil.parseXmlDocument(xml);
+        return DocumentUtil.asBytes(sign(doc, profile), false);
+    }
+
+    /**
+     * Signs a specific element using a signing profile, with the signature placed before a sibling node.
+     *
+     * @param elementToSign element to sign
+     * @param nextSibling child of elementToSign used as next sibling of the created signature,
+     *                    or null to append the signature as last child
+     * @param profile the signing profile
+     */
+    public static void sign(Element elementToSign, Node nextSibling, SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+        sign(elementToSign, nextSibling, profile.getReferenceUriStrategy().referenceURI(elementToSign), profile);
+    }
+
+    /**
+     * Signs an element with a given reference URI, the signature is inserted before
+     * {@code nextSibling} or appended if it is null.
+     */
+    private static void sign(Element elementToSign, Node nextSibling, String referenceURI, SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+
+        PrivateKey signingKey = profile.getKeyPair().getPrivate();
+        DOMSignContext signContext = nextSibling == null
+                ? new DOMSignContext(signingKey, elementToSign)
+                : new DOMSignContext(signingKey, elementToSign, nextSibling);
+        signImpl(signContext, profile, referenceURI);
+    }
+
+    /**
+     * Signs an element of a document in place, without copying it into a temporary document.
+     * <p>
+     * The profile must reference the element by ID (see {@link ReferenceUriStrategy#idAttribute(String)});
+     * the reference is digested with exclusive canonicalization, so the digest does not depend on the
+     * ancestors of the element. The enveloped signature is appended as last child of the element.
+     * The result is byte-identical to {@link #sign(Document, Node, String, KeyPair, String, String, String,
+     * X509Certificate, String)} with the same ID reference whenever SignedInfo is canonicalized
+     * exclusively, or inclusively and the ancestors of the element declare no namespaces or
+     * {@code xml:*} attributes.
+     *
+     * @param elementToSign the element to sign
+     * @param profile the signing profile, with an ID based reference URI strategy
+     * @return the signed element
+     */
+    public static Element signInPlace(Element elementToSign, SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+
+        if (elementToSign == null) {
+            throw new IllegalArgumentException("Element to be signed cannot be null");
+        }
+
+        String referenceURI = profile.getReferenceUriStrategy().referenceURI(elementToSign);
+        if (!referenceURI.startsWith("#")) {
+            throw new IllegalArgumentException("In-place signing requires an ID reference, got '" + referenceURI + "'");
+        }
+        // The strategy is only asked once, it may register or generate the ID
+        sign(elementToSign, null, referenceURI, profile);
+        return elementToSign;
+    }
+
+    /**
+     * Signs an element in place with a given ID reference, ignoring the reference URI strategy of
+     * the profile. The ID attribute must already be registered.
+     */
+    static Element signInPlace(Element elementToSign, String referenceURI, SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+        sign(elementToSign, null, referenceURI, profile);
+        return elementToSign;
+    }
+
+    /**
+     * Signs many elements of a document with signatures holding one {@code Reference} per element,
+     * so N elements cost a private key operation per {@link #maxReferencesPerSignature()} elements
+     * plus N digests instead of N signatures. The enveloped signatures are appended as last
+     * children of the document element.
+     * <p>
+     * JSR-105 secure validation, on by default, rejects signatures with more references than the
+     * {@code maxReferences} limit of the {@code jdk.xml.dsig.secureValidationPolicy} security
+     * property (30 in a default JDK), so larger lists are split into several signatures in list
+     * order. The profile must reference elements by ID (see {@link ReferenceUriStrategy#idAttribute(String)}).
+     * Validation reports the status of every reference, so a tampered element can be told apart
+     * from the others.
+     *
+     * @param doc the document containing the elements
+     * @param elementsToSign the elements to sign, in the order of their references
+     * @param profile the signing profile, with an ID based reference URI strategy
+     * @return the signed document
+     */
+    public static Document signElements(Document doc, List<Element> elementsToSign, SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+
+        if (doc == null) {
+            throw new IllegalArgumentException("Document to be signed cannot be null");
+        }
+        if (elementsToSign == null || elementsToSign.isEmpty()) {
+            throw new IllegalArgumentException("Elements to be signed cannot be empty");
+        }
+
+        ReferenceUriStrategy strategy = profile.getReferenceUriStrategy();
+        List<String> referenceURIs = new ArrayList<>(elementsToSign.size());
+        Set<String> seen = new HashSet<>();
+        for (Element element : elementsToSign) {
+            if (element.getOwnerDocument() != doc) {
+                throw new IllegalArgumentException("Element " + element.getTagName() + " belongs to another document");
+            }
+            String referenceURI = strategy.referenceURI(element);
+            if (!referenceURI.startsWith("#")) {
+                throw new IllegalArgumentException("Signing several elements requires ID references, got '"
+                        + referenceURI + "'");
+            }
+            if (!seen.add(referenceURI)) {
+                throw new IllegalArgumentException("Reference " + referenceURI + " would be signed twice");
+            }
+            referenceURIs.add(referenceURI);
+        }
+
+        int chunkSize = maxReferencesPerSignature();
+        for (int from = 0; from < referenceURIs.size(); from += chunkSize) {
+            DOMSignContext signContext = new DOMSignContext(profile.getKeyPair().getPrivate(), doc.getDocumentElement());
+            signImpl(signContext, profile, referenceURIs.subList(from, Math.min(from + chunkSize, referenceURIs.size())));
+        }
 
         return doc;
     }
 
+    /**
+     * @return the number of references a signature may hold and still pass JSR-105 secure
+     *         validation, taken from the {@code jdk.xml.dsig.secureValidationPolicy} security property
+     */
+    public static int maxReferencesPerSignature() {
+        return MAX_REFERENCES;
+    }
+
+    /**
+     * Signs the elements matched by an XPath expression with one signature; see
+     * {@link #signElements(Document, List, SigningProfile)}. The expression is evaluated without
+     * namespace bindings, so it can only name elements of no namespace or use {@code local-name()}.
+     *
+     * @param doc the document containing the elements
+     * @param xpathExpression selects the elements to sign, e.g. {@code /PurchaseOrder/Item}
+     * @param profile the signing profile, with an ID based reference URI strategy
+     * @return the signed document
+     * @throws XPathExpressionException if the expression is invalid
+     */
+    public static Document signElements(Document doc, String xpathExpression, SigningProfile profile)
+            throws XPathExpressionException, MarshalException, XMLSignatureException {
+
+        if (doc == null) {
+            throw new IllegalArgumentException("Document to be signed cannot be null");
+        }
+        NodeList nodes = (NodeList) xpath.get().evaluate(xpathExpression, doc, XPathConstants.NODESET);
+        List<Element> elements = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (!(nodes.item(i) instanceof Element)) {
+                throw new IllegalArgumentException("XPath " + xpathExpression + " matches a non-element node");
+            }
+            elements.add((Element) nodes.item(i));
+        }
+        if (elements.isEmpty()) {
+            throw new IllegalArgumentException("XPath " + xpathExpression + " matches no element");
+        }
+        return signElements(doc, elements, profile);
+    }
+
+    /**
+     * Re-signs the signatures of an amended document, doing work proportional to the amendment.
+     * <p>
+     * Every reference is digested again and compared with its stored {@code DigestValue}.
+     * A signature is rebuilt only if one of its references changed. It keeps its algorithms,
+     * position and IDs. The stored digests of its unchanged references are reused. Only
+     * SignedInfo is canonicalized and signed again. Signatures without changes are left
+     * untouched. For documents from {@link #signElements(Document, List, SigningProfile)}
+     * amending one element costs one private key operation, not one per signature.
+     * <p>
+     * {@code #id} references are resolved through registered ID attributes. Where none is
+     * registered, e.g. after parsing, attributes named {@code Id}, {@code ID} or {@code id} are
+     * registered. Signatures whose references cover other signatures of the document are not
+     * supported. Like signing, re-signing vouches for the content as it is; the document is not
+     * validated under the secure validation policy, use {@link #validateDetailed} first if it
+     * comes from elsewhere.
+     *
+     * @param doc the amended signed document
+     * @param profile the signing profile with the key pair of the original signer
+     * @return the URIs of the references whose digest changed, empty if nothing was re-signed
+     */
+    public static List<String> resign(Document doc, SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+        return resign(doc, profile, null);
+    }
+
+    /**
+     * Re-signs the signatures of an amended document, digesting only the references affected by
+     * the given nodes; see {@link #resign(Document, SigningProfile)}. A reference is affected if
+     * its target contains a changed node or lies within one; a changed attribute counts as its
+     * owner element. References not affected keep their stored digest without being digested.
+     *
+     * @param doc the amended signed document
+     * @param profile the signing profile with the key pair of the original signer
+     * @param changedNodes the nodes that were amended, e.g. the modified elements or attributes
+     * @return the URIs of the references whose digest changed, empty if nothing was re-signed
+     */
+    public static List<String> resign(Document doc, SigningProfile profile, Collection<? extends Node> changedNodes)
+            throws MarshalException, XMLSignatureException {
+
+        if (doc == null) {
+            throw new IllegalArgumentException("Signed document cannot be null");
+        }
+        propagateIDAttributeSetup(doc.getDocumentElement(), doc.getDocumentElement());
+
+        // Copied, the live list changes while signatures are replaced
+        NodeList signatureNodes = doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
+        List<Element> signatures = new ArrayList<>(signatureNodes.getLength());
+        for (int i = 0; i < signatureNodes.getLength(); i++) {
+            signatures.add((Element) signatureNodes.item(i));
+        }
+
+        List<String> changedReferences = new ArrayList<>();
+        boolean idsRegistered = false;
+        for (Element signatureElement : signatures) {
+            DOMValidateContext validateContext = new DOMValidateContext(
+                    new KeySelectorPresetKey(profile.getKeyPair().getPublic()), signatureElement);
+            // Re-signing vouches for the content like signing does; the secure validation checks
+            // scan the whole document per reference and would make the scan quadratic
+            validateContext.setProperty("org.jcp.xml.dsig.secureValidation", Boolean.FALSE);
+            XMLSignature signature = signatureFactory().unmarshalXMLSignature(validateContext);
+            List<Reference> references = signature.getSignedInfo().getReferences();
+
+            if (!idsRegistered && !referencesResolvable(doc, references)) {
+                registerIdAttributes(doc, StreamingVerifier.DEFAULT_ID_ATTRIBUTES);
+                idsRegistered = true;
+            }
+
+            List<byte[]> digests = new ArrayList<>(references.size());
+            boolean changed = false;
+            for (Reference reference : references) {
+                byte[] digest = reference.getDigestValue();
+                if (changedNodes == null || affects(doc, reference.getURI(), changedNodes)) {
+                    byte[] calculated = directDigest(doc, reference, signatureElement);
+                    if (calculated == null && !reference.validate(validateContext)) {
+                        calculated = reference.getCalculatedDigestValue();
+                    }
+                    if (calculated != null && !MessageDigest.isEqual(calculated, digest)) {
+                        digest = calculated;
+                        changedReferences.add(reference.getURI());
+                        changed = true;
+                    }
+                }
+                digests.add(digest);
+            }
+            if (changed) {
+                replaceSignature(signatureElement, signature, digests, profile);
+            }
+        }
+
+        logger.debug("Re-signed document, {} references changed", changedReferences.size());
+        return changedReferences;
+    }
+
+    /**
+     * Replaces a signature by one with the same structure, the given reference digests and a new
+     * SignatureValue. References created with a digest value are not digested again when signing.
+     */
+    private static void replaceSignature(Element signatureElement, XMLSignature signature, List<byte[]> digests,
+                                         SigningProfile profile)
+            throws MarshalException, XMLSignatureException {
+        XMLSignatureFactory factory = signatureFactory();
+        SignedInfo oldInfo = signature.getSignedInfo();
+        List<Reference> references = new ArrayList<>(digests.size());
+        try {
+            for (int i = 0; i < digests.size(); i++) {
+                Reference old = oldInfo.getReferences().get(i);
+                List<Transform> transforms = new ArrayList<>(old.getTransforms().size());
+                for (Transform transform : old.getTransforms()) {
+                    transforms.add(factory.newTransform(transform.getAlgorithm(),
+                            (TransformParameterSpec) transform.getParameterSpec()));
+                }
+                references.add(factory.newReference(old.getURI(),
+                        factory.newDigestMethod(old.getDigestMethod().getAlgorithm(), null),
+                        transforms, old.getType(), old.getId(), digests.get(i)));
+            }
+            CanonicalizationMethod canonicalizationMethod = factory.newCanonicalizationMethod(
+                    oldInfo.getCanonicalizationMethod().getAlgorithm(),
+                    (C14NMethodParameterSpec) oldInfo.getCanonicalizationMethod().getParameterSpec());
+            SignatureMethod signatureMethod = factory.newSignatureMethod(
+                    oldInfo.getSignatureMethod().getAlgorithm(), null);
+            SignedInfo signedInfo = factory.newSignedInfo(canonicalizationMethod, signatureMethod,
+                    references, oldInfo.getId());
+
+            XMLSignature replacement = factory.newXMLSignature(signedInfo, profile.getKeyInfo(),
+                    signature.getObjects(), signature.getId(), signature.getSignatureValue().getId());
+
+            Node parent = signatureElement.getParentNode();
+            Node nextSibling = signatureElement.getNextSibling();
+            parent.removeChild(signatureElement);
+            PrivateKey signingKey = profile.getKeyPair().getPrivate();
+            DOMSignContext signContext = nextSibling == null
+                    ? new DOMSignContext(signingKey, parent)
+                    : new DOMSignContext(signingKey, parent, nextSibling);
+            if (signatureElement.getPrefix() != null) {
+                signContext.setDefaultNamespacePrefix(signatureElement.getPrefix());
+            }
+            signTimed(replacement, signContext, signatureMethod.getAlgorithm());
+        } catch (GeneralSecurityException ex) {
+            throw new XMLSignatureException("Cannot recreate the algorithms of the signature", ex);
+        }
+    }
+
+    private static boolean referencesResolvable(Document doc, List<Reference> references) {
+        for (Reference reference : references) {
+            String uri = reference.getURI();
+            if (uri != null && uri.startsWith("#") && doc.getElementById(uri.substring(1)) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void registerIdAttributes(Document doc, Set<String> idAttributeNames) {
+        NodeList elements = doc.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            for (String name : idAttributeNames) {
+                if (element.hasAttributeNS(null, name)) {
+                    element.setIdAttributeNS(null, name, true);
+                }
+            }
+        }
+    }
+
+    private static boolean affects(Document doc, String uri, Collection<? extends Node> changedNodes) {
+        if (uri == null || !uri.startsWith("#")) {
+            // The whole document or an external resource
+            return true;
+        }
+        Element target = doc.getElementById(uri.substring(1));
+        if (target == null) {
+            // Let validation report the dangling reference
+            return true;
+        }
+        for (Node node : changedNodes) {
+            Node changed = node;
+            if (node.getNodeType() == Node.ATTRIBUTE_NODE) {
+                // Attributes have no parent, their owner element is what contains them
+                changed = ((Attr) node).getOwnerElement();
+                if (changed == null) {
+                    // Removed from its element, where it was is unknown
+                    return true;
+                }
+            }
+            if (isAncestorOrSelf(target, changed) || isAncestorOrSelf(changed, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAncestorOrSelf(Node ancestor, Node node) {
+        for (Node current = node; current != null; current = current.getParentNode()) {
+            if (current == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Validates all signatures in a signed document.
      *
@@ -282,6 +767,176 @@ public class XMLSignatureUtil {
         return true;
     }
 
+    /**
+     * Validates all signatures in a signed document and reports the status of each of them.
+     *
+     * @param signedDoc the signed document
+     * @param publicKey the public key for validation
+     * @return the per-signature validation report
+     */
+    public static ValidationReport validateDetailed(Document signedDoc, Key publicKey) {
+        requirePublicKey(publicKey);
+        return validateDetailed(signedDoc, new KeySelectorPresetKey(publicKey));
+    }
+
+    /**
+     * Validates all signatures in a signed document with the keys chosen by a key selector, e.g. a
+     * {@link TrustStoreKeySelector} resolving each signature's KeyInfo. A signature whose key cannot
+     * be selected is reported as an error.
+     *
+     * @param signedDoc the signed document
+     * @param keySelector the selector of the validation key of each signature
+     * @return the per-signature validation report
+     */
+    public static ValidationReport validateDetailed(Document signedDoc, KeySelector keySelector) {
+        if (keySelector == null) {
+            throw new IllegalArgumentException("Key selector cannot be null");
+        }
+        NodeList signatureNodes = prepareValidation(signedDoc);
+        int count = signatureNodes.getLength();
+
+        List<SignatureValidationResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(validateSignatureNode(i, signatureNodes.item(i), keySelector));
+        }
+        return new ValidationReport(results);
+    }
+
+    /**
+     * Validates the signatures of a document concurrently, using one worker per available processor.
+     *
+     * @param signedDoc the signed document
+     * @param publicKey the public key for validation
+     * @param executor the executor running the validation workers
+     * @return the per-signature validation report
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @see #validateConcurrently(Document, Key, ExecutorService, int)
+     */
+    public static ValidationReport validateConcurrently(Document signedDoc, Key publicKey, ExecutorService executor)
+            throws InterruptedException {
+        return validateConcurrently(signedDoc, publicKey, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Validates the signatures of a document concurrently.
+     * <p>
+     * DOM implementations are not thread-safe even for reads, so every additional worker validates
+     * on its own deep copy of the document. Workers take signatures from a shared queue and stop
+     * as soon as one signature is found invalid; workers still queued in the executor are then
+     * cancelled, and signatures not checked by then are reported as
+     * {@link SignatureValidationResult.Status#SKIPPED}.
+     *
+     * @param signedDoc the signed document
+     * @param publicKey the public key for validation
+     * @param executor the executor running the validation workers
+     * @param parallelism the maximum number of concurrent workers
+     * @return the per-signature validation report
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static ValidationReport validateConcurrently(Document signedDoc, Key publicKey, ExecutorService executor,
+                                                        int parallelism) throws InterruptedException {
+        requirePublicKey(publicKey);
+        NodeList signatureNodes = prepareValidation(signedDoc);
+        int count = signatureNodes.getLength();
+        int workers = Math.min(parallelism, count);
+        if (workers <= 1) {
+            return validateDetailed(signedDoc, publicKey);
+        }
+
+        // Copies are made on the calling thread, the original is handed over to the first worker
+        List<Document> copies = new ArrayList<>(workers);
+        copies.add(signedDoc);
+        for (int i = 1; i < workers; i++) {
+            copies.add((Document) signedDoc.cloneNode(true));
+        }
+
+        KeySelector keySelector = new KeySelectorPresetKey(publicKey);
+        SignatureValidationResult[] results = new SignatureValidationResult[count];
+        AtomicInteger nextSignature = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        // A worker only runs if it moves itself out of PENDING; a failure marks the pending ones SKIPPED
+        AtomicIntegerArray workerStates = new AtomicIntegerArray(workers);
+        CountDownLatch finished = new CountDownLatch(workers);
+        Runnable skipPending = () -> {
+            for (int w = 0; w < workers; w++) {
+                if (workerStates.compareAndSet(w, WORKER_PENDING, WORKER_SKIPPED)) {
+                    finished.countDown();
+                }
+            }
+        };
+
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            Document copy = copies.get(w);
+            int worker = w;
+            futures.add(executor.submit(() -> {
+                if (!workerStates.compareAndSet(worker, WORKER_PENDING, WORKER_STARTED)) {
+                    return;
+                }
+                try {
+                    NodeList nodes = copy.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
+                    int i;
+                    while (!failed.get() && !Thread.currentThread().isInterrupted()
+                            && (i = nextSignature.getAndIncrement()) < count) {
+                        SignatureValidationResult result = validateSignatureNode(i, nodes.item(i), keySelector);
+                        results[i] = result;
+                        if (!result.isValid()) {
+                            failed.set(true);
+                            skipPending.run();
+                        }
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            }));
+        }
+
+        try {
+            // Running workers are waited for rather than interrupted, the first one reads the caller's document
+            finished.await();
+            for (int w = 0; w < workers; w++) {
+                if (workerStates.get(w) == WORKER_SKIPPED) {
+                    futures.get(w).cancel(false);
+                } else {
+                    futures.get(w).get();
+                }
+            }
+        } catch (InterruptedException ex) {
+            failed.set(true);
+            futures.forEach(future -> future.cancel(true));
+            throw ex;
+        } catch (ExecutionException ex) {
+            // validateSignatureNode never throws, anything else is a bug
+            throw new IllegalStateException("Unexpected validation worker failure", ex.getCause());
+        }
+
+        List<SignatureValidationResult> report = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            report.add(results[i] != null ? results[i] : SignatureValidationResult.skipped(i));
+        }
+        return new ValidationReport(report);
+    }
+
+    private static void requirePublicKey(Key publicKey) {
+        if (publicKey == null) {
+            throw new IllegalArgumentException("Public key cannot be null");
+        }
+    }
+
+    private static NodeList prepareValidation(Document signedDoc) {
+        if (signedDoc == null) {
+            throw new IllegalArgumentException("Signed document cannot be null");
+        }
+
+        propagateIDAttributeSetup(signedDoc.getDocumentElement(), signedDoc.getDocumentElement());
+
+        NodeList signatureNodes = signedDoc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
+        if (signatureNodes.getLength() == 0) {
+            logger.debug("Cannot find Signature element");
+        }
+        return signatureNodes;
+    }
+
     /**
      * Validates a single signature node.
      *
@@ -291,8 +946,20 @@ public class XMLSignatureUtil {
      */
     public static boolean validateSingleNode(Node signatureNode, Key key)
             throws MarshalException, XMLSignatureException {
+        return validateSingleNode(signatureNode, new KeySelectorPresetKey(key));
+    }
+
+    /**
+     * Validates a single signature node with the key chosen by a key selector.
+     *
+     * @param signatureNode the signature node to validate
+     * @param keySelector the selector of the validation key, e.g. a {@link TrustStoreKeySelector}
+     * @return true if signature is valid; false as well if no key could be selected
+     */
+    public static boolean validateSingleNode(Node signatureNode, KeySelector keySelector)
+            throws MarshalException, XMLSignatureException {
         try {
-            if (validateUsingKeySelector(signatureNode, new KeySelectorPresetKey(key))) {
+            if (validateUsingKeySelector(signatureNode, keySelector)) {
                 return true;
             }
         } catch (XMLSignatureException ex) {
@@ -305,18 +972,35 @@ public class XMLSignatureUtil {
     private static boolean validateUsingKeySelector(Node signatureNode, KeySelector keySelector)
             throws XMLSignatureException, MarshalException {
 
+        long start = Metrics.start();
         DOMValidateContext validateContext = new DOMValidateContext(keySelector, signatureNode);
-        XMLSignature signature = signatureFactory.unmarshalXMLSignature(validateContext);
-        boolean coreValidity = signature.validate(validateContext);
+        XMLSignature signature;
+        boolean coreValidity;
+        try {
+            signature = signatureFactory().unmarshalXMLSignature(validateContext);
+        } catch (MarshalException ex) {
+            Metrics.failure(Metrics.VALIDATE, UNKNOWN_ALGORITHM, start, "unmarshal");
+            throw ex;
+        }
+        String signatureMethod = signature.getSignedInfo().getSignatureMethod().getAlgorithm();
+        boolean signatureValid;
+        try {
+            signatureValid = signature.getSignatureValue().validate(validateContext);
+            coreValidity = signatureValid && allValid(validateReferences(signature, validateContext, false));
+        } catch (XMLSignatureException ex) {
+            Metrics.failure(Metrics.VALIDATE, signatureMethod, start, "validation-error");
+            throw ex;
+        }
+        recordValidation(signatureMethod, start, coreValidity, signatureValid);
 
         if (!coreValidity && logger.isTraceEnabled()) {
-            boolean signatureValid = signature.getSignatureValue().validate(validateContext);
-            logger.trace("Signature validation status: {}", signatureValid);
+            SignatureValidationResult result = describeValidation(0, signature, signatureValid,
+                    validateReferences(signature, validateContext, true), false);
+            logger.trace("Signature validation status: {}", result.getSignatureValueValid());
 
-            List<Reference> references = signature.getSignedInfo().getReferences();
-            for (Reference ref : references) {
+            for (SignatureValidationResult.ReferenceStatus ref : result.getReferences()) {
                 logger.trace("[Ref id={}:uri={}] validity status: {}",
-                        ref.getId(), ref.getURI(), ref.validate(validateContext));
+                        ref.getId(), ref.getURI(), ref.isValid());
             }
         }
 
@@ -324,65 +1008,324 @@ public class XMLSignatureUtil {
     }
 
     /**
-     * Parses an X509 certificate from a KeyInfo certificate string.
+     * Validates a single signature node and collects the status of its SignatureValue and references.
+     * Never throws, unmarshalling and validation errors are reported in the result.
+     */
+    private static SignatureValidationResult validateSignatureNode(int index, Node signatureNode,
+                                                                   KeySelector keySelector) {
+        long start = Metrics.start();
+        String signatureMethod = UNKNOWN_ALGORITHM;
+        try {
+            DOMValidateContext validateContext = new DOMValidateContext(keySelector, signatureNode);
+            XMLSignature signature = signatureFactory().unmarshalXMLSignature(validateContext);
+            signatureMethod = signature.getSignedInfo().getSignatureMethod().getAlgorithm();
+            boolean signatureValid = signature.getSignatureValue().validate(validateContext);
+            boolean[] referencesValid = validateReferences(signature, validateContext, true);
+            boolean coreValidity = signatureValid && allValid(referencesValid);
+            recordValidation(signatureMethod, start, coreValidity, signatureValid);
+            return describeValidation(index, signature, signatureValid, referencesValid, coreValidity);
+        } catch (MarshalException | XMLSignatureException ex) {
+            Metrics.failure(Metrics.VALIDATE, signatureMethod, start,
+                    ex instanceof MarshalException ? "unmarshal" : "validation-error");
+            logger.debug("Verification of signature {} failed: {}", index, ex.getMessage());
+            logger.trace("Verification exception", ex);
+            return SignatureValidationResult.error(index, ex.getMessage());
+        }
+    }
+
+    private static void recordValidation(String signatureMethod, long start, boolean coreValidity,
+                                         boolean signatureValid) {
+        if (coreValidity) {
+            Metrics.success(Metrics.VALIDATE, signatureMethod, start, 0);
+        } else if (start != 0) {
+            Metrics.failure(Metrics.VALIDATE, signatureMethod, start,
+                    signatureValid ? "reference-digest" : "signature-value");
+        }
+    }
+
+    private static SignatureValidationResult describeValidation(int index, XMLSignature signature,
+                                                                boolean signatureValid, boolean[] referencesValid,
+                                                                boolean coreValidity) {
+        List<Reference> references = signature.getSignedInfo().getReferences();
+        List<SignatureValidationResult.ReferenceStatus> statuses = new ArrayList<>(references.size());
+        String failureReason = signatureValid ? null : "SignatureValue is invalid";
+        for (int i = 0; i < references.size(); i++) {
+            Reference ref = references.get(i);
+            boolean refValid = referencesValid[i];
+            statuses.add(new SignatureValidationResult.ReferenceStatus(ref.getId(), ref.getURI(), refValid));
+            if (!refValid && failureReason == null) {
+                failureReason = "Digest of reference '" + ref.getURI() + "' does not match";
+            }
+        }
+
+        SignatureValidationResult.Status status = coreValidity
+                ? SignatureValidationResult.Status.VALID
+                : SignatureValidationResult.Status.INVALID;
+        return new SignatureValidationResult(index, status, signatureValid, statuses, failureReason);
+    }
+
+    /**
+     * Validates the digests of the references of a signature, digesting with
+     * {@link DomCanonicalizer} where possible and with the provider otherwise.
+     *
+     * @param all whether to validate all references or to stop at the first invalid one
+     * @return the validity of each reference; false for those not validated
+     */
+    private static boolean[] validateReferences(XMLSignature signature, DOMValidateContext validateContext,
+                                                boolean all) throws XMLSignatureException {
+        Element signatureElement = (Element) validateContext.getNode();
+        Document doc = signatureElement.getOwnerDocument();
+        List<Reference> references = signature.getSignedInfo().getReferences();
+        Set<String> duplicateIds = directDigest ? duplicateIds(doc, references) : Collections.emptySet();
+
+        boolean[] valid = new boolean[references.size()];
+        for (int i = 0; i < valid.length; i++) {
+            Reference reference = references.get(i);
+            String uri = reference.getURI();
+            // The provider rejects references to duplicate IDs, a signature wrapping attack
+            byte[] digest = uri != null && uri.startsWith("#") && duplicateIds.contains(uri.substring(1))
+                    ? null
+                    : directDigest(doc, reference, signatureElement);
+            valid[i] = digest != null
+                    ? MessageDigest.isEqual(digest, reference.getDigestValue())
+                    : reference.validate(validateContext);
+            if (!valid[i] && !all) {
+                break;
+            }
+        }
+        return valid;
+    }
+
+    private static boolean allValid(boolean[] valid) {
+        for (boolean v : valid) {
+            if (!v) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the IDs referenced by a signature that more than one element carries. Secure validation
+     * checks this by walking the document for every reference; this walks it once per signature.
+     */
+    private static Set<String> duplicateIds(Document doc, List<Reference> references) {
+        Set<String> referencedIds = new HashSet<>();
+        for (Reference reference : references) {
+            String uri = reference.getURI();
+            if (uri != null && uri.startsWith("#")) {
+                referencedIds.add(uri.substring(1));
+            }
+        }
+        if (referencedIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> seen = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        NodeList elements = doc.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            NamedNodeMap attributes = elements.item(i).getAttributes();
+            for (int j = 0; j < attributes.getLength(); j++) {
+                Attr attribute = (Attr) attributes.item(j);
+                String value = attribute.getValue();
+                if (attribute.isId() && referencedIds.contains(value) && !seen.add(value)) {
+                    duplicates.add(value);
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    private static byte[] directDigest(Document doc, Reference reference, Element signatureElement) {
+        return directDigest(doc, reference.getURI(), reference.getTransforms(),
+                reference.getDigestMethod().getAlgorithm(), signatureElement);
+    }
+
+    /**
+     * Digests a reference with {@link DomCanonicalizer}, straight from the DOM into the message
+     * digest, instead of the provider's transforms that canonicalize into a buffer first. Covers
+     * the references this class creates: {@code ""} or {@code #id} with the enveloped signature
+     * and exclusive canonicalization transforms.
      *
-     * @param certificateString the base64-encoded certificate string
+     * @param signatureElement the signature holding the reference, null while signing
+     * @return the digest, or null if the reference is left to the provider
+     */
+    private static byte[] directDigest(Document doc, String uri, List<Transform> transforms, String digestMethod,
+                                       Element signatureElement) {
+        if (!directDigest || uri == null || !isDirectTransforms(transforms)
+                || !SignatureAlgorithms.isSupportedDigestMethod(digestMethod)) {
+            return null;
+        }
+        Node target;
+        if (uri.isEmpty()) {
+            target = doc;
+        } else if (uri.startsWith("#") && !uri.startsWith("#xpointer(")) {
+            target = doc.getElementById(uri.substring(1));
+            if (target == null) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        return DomCanonicalizer.digest(target, signatureElement, digestMethod);
+    }
+
+    private static boolean isDirectTransforms(List<Transform> transforms) {
+        if (transforms.size() != 2 || !Transform.ENVELOPED.equals(transforms.get(0).getAlgorithm())
+                || !CanonicalizationMethod.EXCLUSIVE.equals(transforms.get(1).getAlgorithm())) {
+            return false;
+        }
+        Object parameters = transforms.get(1).getParameterSpec();
+        return !(parameters instanceof ExcC14NParameterSpec)
+                || ((ExcC14NParameterSpec) parameters).getPrefixList().isEmpty();
+    }
+
+    /**
+     * Switches digesting references with the built-in canonicalizer on or off for signing,
+     * validation and re-signing. It produces the bytes of the JDK canonicalizer without buffering
+     * them; off, every reference is digested by the XML-DSig provider. On by default.
+     */
+    public static void setDirectDigest(boolean enable) {
+        directDigest = enable;
+    }
+
+    public static boolean isDirectDigest() {
+        return directDigest;
+    }
+
+    /**
+     * Parses an X509 certificate from a KeyInfo certificate string. Certificates are cached by
+     * fingerprint, a certificate seen before is returned without parsing it again.
+     *
+     * @param certificateString the base64-encoded certificate string, line breaks are allowed
      * @return the parsed X509Certificate
      * @throws CertificateException if certificate parsing fails
      */
     public static X509Certificate getX509CertificateFromKeyInfoString(String certificateString)
             throws CertificateException {
-
-        String pemCertificate = "-----BEGIN CERTIFICATE-----\n" +
-                certificateString +
-                "\n-----END CERTIFICATE-----";
-
-        CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(
-                pemCertificate.getBytes(StandardCharsets.UTF_8));
-
-        return (X509Certificate) certFactory.generateCertificate(inputStream);
+        byte[] der;
+        try {
+            der = Base64.getMimeDecoder().decode(certificateString);
+        } catch (IllegalArgumentException ex) {
+            throw new CertificateException("Certificate is not base64 encoded", ex);
+        }
+        return CertificateCache.certificate(der);
     }
 
     private static void signImpl(DOMSignContext signContext, String digestMethod,
                                  String signatureMethod, String referenceURI, String keyName,
                                  PublicKey publicKey, X509Certificate x509Certificate,
-                                 String canonicalizationMethodType)
+                                 String canonicalizationMethodType, boolean includeKeyInfo)
             throws GeneralSecurityException, MarshalException, XMLSignatureException {
 
-        DigestMethod digestMethodObj = signatureFactory.newDigestMethod(digestMethod, null);
+        XMLSignatureFactory factory = signatureFactory();
+        DigestMethod digestMethodObj = factory.newDigestMethod(digestMethod, null);
 
-        List<Transform> transforms = new ArrayList<>();
-        transforms.add(signatureFactory.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null));
-        transforms.add(signatureFactory.newTransform("http://www.w3.org/2001/10/xml-exc-c14n#",
-                (TransformParameterSpec) null));
+        Reference reference = newReference(ownerDocument(signContext.getParent()), referenceURI, digestMethodObj);
 
-        Reference reference = signatureFactory.newReference(referenceURI, digestMethodObj,
-                transforms, null, null);
-
-        CanonicalizationMethod canonicalizationMethod = signatureFactory.newCanonicalizationMethod(
+        CanonicalizationMethod canonicalizationMethod = factory.newCanonicalizationMethod(
                 canonicalizationMethodType, (C14NMethodParameterSpec) null);
 
         List<Reference> references = Collections.singletonList(reference);
-        SignatureMethod signatureMethodObj = signatureFactory.newSignatureMethod(signatureMethod, null);
-        SignedInfo signedInfo = signatureFactory.newSignedInfo(canonicalizationMethod,
+        SignatureMethod signatureMethodObj = factory.newSignatureMethod(signatureMethod, null);
+        SignedInfo signedInfo = factory.newSignedInfo(canonicalizationMethod,
                 signatureMethodObj, references);
 
         KeyInfo keyInfo;
-        if (includeKeyInfoInSignature) {
+        if (includeKeyInfo) {
             keyInfo = createKeyInfo(keyName, publicKey, x509Certificate);
         } else {
             keyInfo = createKeyInfo(keyName, null, null);
         }
 
-        XMLSignature signature = signatureFactory.newXMLSignature(signedInfo, keyInfo);
-        signature.sign(signContext);
+        XMLSignature signature = factory.newXMLSignature(signedInfo, keyInfo);
+        signTimed(signature, signContext, signatureMethod);
+    }
+
+    /**
+     * Signs using the precomputed structures of a profile. Only the transforms, the reference,
+     * SignedInfo and the signature itself are created per call.
+     */
+    private static void signImpl(DOMSignContext signContext, SigningProfile profile, String referenceURI)
+            throws MarshalException, XMLSignatureException {
+        signImpl(signContext, profile, Collections.singletonList(referenceURI));
+    }
+
+    private static void signImpl(DOMSignContext signContext, SigningProfile profile, List<String> referenceURIs)
+            throws MarshalException, XMLSignatureException {
+
+        SigningProfile.Templates templates = profile.templates();
+        Document doc = ownerDocument(signContext.getParent());
+        List<Reference> references = new ArrayList<>(referenceURIs.size());
+        for (String referenceURI : referenceURIs) {
+            references.add(newReference(doc, referenceURI, templates.digestMethod));
+        }
+        XMLSignatureFactory factory = signatureFactory();
+        SignedInfo signedInfo = factory.newSignedInfo(templates.canonicalizationMethod,
+                templates.signatureMethod, references);
+
+        XMLSignature signature = factory.newXMLSignature(signedInfo, profile.getKeyInfo());
+        signTimed(signature, signContext, profile.getSignatureMethod());
+    }
+
+    private static void signTimed(XMLSignature signature, DOMSignContext signContext, String signatureMethod)
+            throws MarshalException, XMLSignatureException {
+        long start = Metrics.start();
+        try {
+            signature.sign(signContext);
+        } catch (MarshalException ex) {
+            Metrics.failure(Metrics.SIGN, signatureMethod, start, "marshal");
+            throw ex;
+        } catch (XMLSignatureException ex) {
+            Metrics.failure(Metrics.SIGN, signatureMethod, start, "signature");
+            throw ex;
+        }
+        Metrics.success(Metrics.SIGN, signatureMethod, start, 0);
+    }
+
+    /**
+     * Creates a reference with the transforms of {@link #newReferenceTransforms()}. Its digest is
+     * computed up front where {@link #directDigest} applies, the provider does not digest such a
+     * reference again; the signature is not in the document yet, as the enveloped transform wants.
+     */
+    private static Reference newReference(Document doc, String referenceURI, DigestMethod digestMethod) {
+        XMLSignatureFactory factory = signatureFactory();
+        List<Transform> transforms = newReferenceTransforms();
+        byte[] digest = directDigest(doc, referenceURI, transforms, digestMethod.getAlgorithm(), null);
+        return digest == null
+                ? factory.newReference(referenceURI, digestMethod, transforms, null, null)
+                : factory.newReference(referenceURI, digestMethod, transforms, null, null, digest);
+    }
+
+    private static Document ownerDocument(Node node) {
+        return node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node : node.getOwnerDocument();
+    }
+
+    /**
+     * Creates the enveloped signature and exclusive canonicalization transforms of a reference.
+     * Transforms keep a reference to the document they were first used with, so they cannot be reused.
+     */
+    private static List<Transform> newReferenceTransforms() {
+        try {
+            XMLSignatureFactory factory = signatureFactory();
+            List<Transform> transforms = new ArrayList<>(2);
+            transforms.add(factory.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null));
+            transforms.add(factory.newTransform(CanonicalizationMethod.EXCLUSIVE,
+                    (TransformParameterSpec) null));
+            return transforms;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Standard transforms are not available", ex);
+        }
+    }
+
+    static XMLSignatureFactory signatureFactory() {
+        return signatureFactory.get();
     }
 
-    private static KeyInfo createKeyInfo(String keyName, PublicKey publicKey,
+    static KeyInfo createKeyInfo(String keyName, PublicKey publicKey,
                                          X509Certificate x509Certificate) throws KeyException {
 
-        KeyInfoFactory keyInfoFactory = signatureFactory.getKeyInfoFactory();
+        KeyInfoFactory keyInfoFactory = signatureFactory().getKeyInfoFactory();
         List<XMLStructure> items = new LinkedList<>();
 
         if (keyName != null) {
@@ -393,11 +1336,13 @@ public class XMLSignatureUtil {
             items.add(keyInfoFactory.newX509Data(Collections.singletonList(x509Certificate)));
         }
 
-        if (publicKey != null) {
+        // KeyValue has no EdDSA form in the JDK XML-DSig provider, the key is identified otherwise
+        if (publicKey != null && !(publicKey instanceof EdECPublicKey)) {
             items.add(keyInfoFactory.newKeyValue(publicKey));
         }
 
-        return keyInfoFactory.newKeyInfo(items);
+        // A signature without KeyInfo is valid, an empty KeyInfo element is not
+        return items.isEmpty() ? null : keyInfoFactory.newKeyInfo(items);
     }
 
     /**
@@ -423,9 +1368,12 @@ public class XMLSignatureUtil {
 
     /**
      * Sets whether to include KeyInfo in signatures.
+     * Only affects the sign methods that do not take a {@link SigningProfile}.
      *
      * @param include true to include KeyInfo
+     * @deprecated global state shared by all threads, use {@link SigningProfile.Builder#includeKeyInfo(boolean)}
      */
+    @Deprecated
     public static void setIncludeKeyInfoInSignature(boolean include) {
         includeKeyInfoInSignature = include;
     }
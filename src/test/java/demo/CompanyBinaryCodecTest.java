@@ -0,0 +1,86 @@
+package demo;
+
+import model.Address;
+import model.Company;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the binary Company codec.
+ */
+@DisplayName("Company Binary Codec Tests")
+class CompanyBinaryCodecTest {
+
+    private final CompanyBinaryCodec codec = new CompanyBinaryCodec();
+    private final CompanySerializer serializer = CompanySerializer.shared();
+
+    @Test
+    @DisplayName("Should round-trip to the same XML form")
+    void roundTripMatchesXml() {
+        Company sparse = new Company();
+        sparse.setId(-42);
+        sparse.setWebsites(new String[] { "a", null, "ümläut" });
+        sparse.setAddress(new Address(null, "Redmond"));
+        Company empty = new Company();
+        empty.setWebsites(new String[0]);
+
+        for (Company company : List.of(TestDataFactory.createCompany(), sparse, empty)) {
+            byte[] binary = codec.encode(company);
+
+            Company decoded = codec.decode(binary);
+
+            assertEquals(serializer.toXml(company), serializer.toXml(decoded));
+        }
+    }
+
+    @Test
+    @DisplayName("Should be several times smaller than the XML form")
+    void smallerThanXml() {
+        Company company = TestDataFactory.createCompany();
+
+        byte[] binary = serializer.toBinary(company);
+        byte[] xml = serializer.toXml(company).getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(binary.length * 2 < xml.length, binary.length + " vs " + xml.length);
+    }
+
+    @Test
+    @DisplayName("Should skip fields appended by a newer writer")
+    void skipsUnknownTrailingFields() {
+        Company company = TestDataFactory.createCompany();
+        company.setAddress(null);
+        byte[] binary = codec.encode(company);
+        // Header is 3 bytes, then the company tag and a one byte body length
+        assertTrue(binary[4] > 0);
+        byte[] newer = Arrays.copyOf(binary, binary.length + 2);
+        newer[4] += 2;
+        newer[binary.length] = 3;
+        newer[binary.length + 1] = 'x';
+
+        assertEquals(serializer.toXml(company), serializer.toXml(codec.decode(newer)));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown types, versions and malformed data")
+    void rejectsInvalidInput() {
+        byte[] binary = codec.encode(TestDataFactory.createCompany());
+
+        byte[] otherType = binary.clone();
+        otherType[3] = 9;
+        byte[] futureVersion = binary.clone();
+        futureVersion[2] = (byte) (CompanyBinaryCodec.VERSION + 1);
+        byte[] hugeArray = { 'C', 'B', 1, 1, 5, 0, 0, (byte) 0xFF, (byte) 0xFF, 0x7F };
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(otherType));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(futureVersion));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(Arrays.copyOf(binary, binary.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(hugeArray));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("<company/>".getBytes(StandardCharsets.UTF_8)));
+    }
+}
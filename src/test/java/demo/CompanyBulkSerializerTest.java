@@ -0,0 +1,138 @@
+package demo;
+
+import model.Company;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for streaming bulk serialization of companies.
+ */
+@DisplayName("Company Bulk Serializer Tests")
+class CompanyBulkSerializerTest {
+
+    private final CompanyBulkSerializer bulk = new CompanyBulkSerializer();
+
+    @Test
+    @DisplayName("Should round-trip many companies through one XML document")
+    void xmlRoundTrip() throws Exception {
+        List<Company> companies = companies(1_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = bulk.writeXml(companies.stream(), out);
+        List<Company> read;
+        try (Stream<Company> stream = bulk.readXml(new ByteArrayInputStream(out.toByteArray()))) {
+            read = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(companies.size(), written);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("<companies>"));
+        assertEquals(describe(companies), describe(read));
+    }
+
+    @Test
+    @DisplayName("Should round-trip many companies through one JSON array")
+    void jsonRoundTrip() throws Exception {
+        List<Company> companies = companies(1_000);
+        companies.get(7).setName("Braces {[ and \"quotes\" \\ ]}");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = bulk.writeJettisonJson(companies.iterator(), out);
+        List<Company> read;
+        try (Stream<Company> stream = bulk.readJettisonJson(new ByteArrayInputStream(out.toByteArray()))) {
+            read = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(companies.size(), written);
+        assertEquals(describe(companies), describe(read));
+    }
+
+    @Test
+    @DisplayName("Should parse only as far as the stream is consumed")
+    void readsLazily() throws Exception {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        bulk.writeXml(companies(2).stream(), xml);
+        String json = "[" + CompanySerializer.shared().toJettisonJson(TestDataFactory.createCompany()) + ", not json";
+        // Cut the XML document in the middle of the second company
+        byte[] truncatedXml = xml.toString(StandardCharsets.UTF_8).substring(0, xml.size() - 40)
+                .getBytes(StandardCharsets.UTF_8);
+
+        try (Stream<Company> fromXml = bulk.readXml(new ByteArrayInputStream(truncatedXml));
+             Stream<Company> fromJson = bulk.readJettisonJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals(0, fromXml.findFirst().orElseThrow().getId());
+            assertEquals(111, fromJson.findFirst().orElseThrow().getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should handle empty collections and reject malformed JSON")
+    void emptyAndMalformed() throws Exception {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+        bulk.writeXml(Stream.empty(), xml);
+        bulk.writeJettisonJson(Stream.empty(), json);
+
+        try (Stream<Company> fromXml = bulk.readXml(new ByteArrayInputStream(xml.toByteArray()));
+             Stream<Company> fromJson = bulk.readJettisonJson(new ByteArrayInputStream(json.toByteArray()))) {
+            assertEquals(0, fromXml.count());
+            assertEquals(0, fromJson.count());
+        }
+        try (Stream<Company> malformed = bulk.readJettisonJson(new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)))) {
+            assertThrows(IllegalArgumentException.class, malformed::count);
+        }
+    }
+
+    @Test
+    @DisplayName("Should leave a failed XML export unterminated so readers cannot take it as complete")
+    void failedXmlExportIsNotWellFormed() throws Exception {
+        Iterator<Company> source = companies(5).iterator();
+        Iterator<Company> failing = new Iterator<>() {
+            private int served;
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public Company next() {
+                if (++served == 3) {
+                    throw new IllegalStateException("Source failed");
+                }
+                return source.next();
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThrows(IllegalStateException.class, () -> bulk.writeXml(failing, out));
+
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("</companies>"));
+        try (Stream<Company> read = bulk.readXml(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThrows(RuntimeException.class, read::count);
+        }
+    }
+
+    private static List<Company> companies(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Company company = TestDataFactory.createCompany();
+            company.setId(i);
+            company.setName("Company " + i);
+            return company;
+        }).collect(Collectors.toList());
+    }
+
+    private static List<String> describe(List<Company> companies) {
+        return companies.stream().map(Company::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,143 @@
+package demo;
+
+import com.thoughtworks.xstream.security.ForbiddenClassException;
+import model.Address;
+import model.Company;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the shared XStream based Company serializer.
+ */
+@DisplayName("Company Serializer Tests")
+class CompanySerializerTest {
+
+    private final CompanySerializer serializer = CompanySerializer.shared();
+
+    @Test
+    @DisplayName("Should round-trip a company through XML and Jettison JSON")
+    void roundTrip() {
+        Company company = TestDataFactory.createCompany();
+
+        String xml = serializer.toXml(company);
+        String json = serializer.toJettisonJson(company);
+
+        assertTrue(xml.startsWith("<company id=\"111\">"), xml);
+        assertEquals(company.toString(), serializer.fromXml(xml).toString());
+        assertEquals(company.toString(), serializer.fromJettisonJson(json).toString());
+        assertEquals(xml, new XmlJsonDemo().convertToXml(company), "Demo output must not change");
+    }
+
+    @Test
+    @DisplayName("Should convert UTF-8 bytes and buffers like strings")
+    void byteRoundTrip() {
+        Company company = TestDataFactory.createCompany();
+        company.setName("Caf\u00e9 <&>");
+        String xml = serializer.toXml(company);
+        String json = serializer.toJettisonJson(company);
+
+        byte[] xmlBytes = serializer.toXmlBytes(company, true);
+        byte[] compactXml = serializer.toXmlBytes(company, false);
+        byte[] jsonBytes = serializer.toJettisonJsonBytes(company);
+
+        assertEquals(xml, new String(xmlBytes, StandardCharsets.UTF_8));
+        assertFalse(new String(compactXml, StandardCharsets.UTF_8).contains("\n"));
+        assertEquals(json, new String(jsonBytes, StandardCharsets.UTF_8));
+        assertEquals(company.toString(), serializer.fromXml(compactXml).toString());
+        assertEquals(company.toString(), serializer.fromXml(ByteBuffer.wrap(xmlBytes)).toString());
+        assertEquals(company.toString(), serializer.fromJettisonJson(jsonBytes).toString());
+        assertEquals(company.toString(), serializer.fromJettisonJson(ByteBuffer.wrap(jsonBytes)).toString());
+    }
+
+    @Test
+    @DisplayName("Should write and read UTF-8 streams like bytes")
+    void streamRoundTrip() {
+        Company company = TestDataFactory.createCompany();
+        company.setName("Caf\u00e9 \u65e5\u672c \ud834\udd1e <&>");
+
+        for (boolean indent : new boolean[] { true, false }) {
+            ByteArrayOutputStream xml = new ByteArrayOutputStream();
+            serializer.toXml(company, xml, indent);
+
+            assertArrayEquals(serializer.toXmlBytes(company, indent), xml.toByteArray());
+            assertEquals(company.toString(),
+                    serializer.fromXml(new ByteArrayInputStream(xml.toByteArray())).toString());
+        }
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        serializer.toJettisonJson(company, json);
+
+        assertArrayEquals(serializer.toJettisonJsonBytes(company), json.toByteArray());
+        assertEquals(company.toString(),
+                serializer.fromJettisonJson(new ByteArrayInputStream(json.toByteArray())).toString());
+    }
+
+    @Test
+    @DisplayName("Should write and read exactly like the reflection converters")
+    void matchesReflectiveConverters() {
+        CompanySerializer reflective = CompanySerializer.reflective();
+        Company sparse = TestDataFactory.createCompany();
+        sparse.setName(null);
+        sparse.setWebsites(new String[] { "a", "<&>" });
+        sparse.setAddress(new Address(null, "Redmond"));
+        Company empty = new Company();
+        empty.setWebsites(new String[0]);
+
+        for (Company company : List.of(TestDataFactory.createCompany(), sparse, empty)) {
+            String xml = reflective.toXml(company);
+            String json = reflective.toJettisonJson(company);
+
+            assertEquals(xml, serializer.toXml(company));
+            assertEquals(json, serializer.toJettisonJson(company));
+            assertEquals(reflective.fromXml(xml).toString(), serializer.fromXml(xml).toString());
+            assertEquals(reflective.fromJettisonJson(json).toString(), serializer.fromJettisonJson(json).toString());
+        }
+
+        // The reflective path writes null items too, but its whitelist rejects them when reading back
+        Company withNull = TestDataFactory.createCompany();
+        withNull.setWebsites(new String[] { "a", null });
+        assertEquals(reflective.toXml(withNull), serializer.toXml(withNull));
+        assertArrayEquals(withNull.getWebsites(), serializer.fromXml(serializer.toXml(withNull)).getWebsites());
+    }
+
+    @Test
+    @DisplayName("Should keep rejecting types outside the whitelist")
+    void rejectsForbiddenTypes() {
+        String xml = "<java.io.File><path>/etc/passwd</path></java.io.File>";
+
+        assertThrows(ForbiddenClassException.class, () -> serializer.fromXml(xml));
+    }
+
+    @Test
+    @DisplayName("Should convert concurrently with one shared instance")
+    void concurrentConversions() throws Exception {
+        Company company = TestDataFactory.createCompany();
+        String expectedXml = serializer.toXml(company);
+        String expectedJson = serializer.toJettisonJson(company);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() ->
+                        expectedXml.equals(serializer.toXml(serializer.fromXml(expectedXml)))
+                                && expectedJson.equals(serializer.toJettisonJson(serializer.fromJettisonJson(expectedJson)))));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package demo;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import model.Address;
+import model.Company;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming XML to Jettison JSON transcoder.
+ */
+@DisplayName("XML JSON Transcoder Tests")
+class XmlJsonTranscoderTest {
+
+    private final CompanySerializer serializer = CompanySerializer.shared();
+    private final XmlJsonTranscoder transcoder = new XmlJsonTranscoder();
+
+    @Test
+    @DisplayName("Should produce the same JSON as the Jettison object round-trip")
+    void matchesJettison() throws Exception {
+        // Arrange
+        Company company = TestDataFactory.createCompany();
+        String xml = serializer.toXml(company);
+
+        // Act
+        String json = transcoder.transcode(xml);
+
+        // Assert
+        assertEquals(JSON.parseObject(serializer.toJettisonJson(company)), JSON.parseObject(json));
+        assertEquals(company.toString(), serializer.fromJettisonJson(json).toString());
+    }
+
+    @Test
+    @DisplayName("Should keep single, empty and attribute-only elements readable by Jettison")
+    void edgeCasesReadBack() throws Exception {
+        Company single = TestDataFactory.createCompany();
+        single.setWebsites(new String[] { "http://one.example" });
+        Company sparse = new Company();
+        sparse.setId(7);
+        sparse.setName("007");
+        sparse.setWebsites(new String[0]);
+        sparse.setAddress(new Address(null, "Redmond"));
+
+        for (Company company : new Company[] { single, sparse }) {
+            String json = transcoder.transcode(serializer.toXml(company));
+            Company expected = serializer.fromJettisonJson(serializer.toJettisonJson(company));
+
+            assertEquals(expected.toString(), serializer.fromJettisonJson(json).toString(), json);
+        }
+        assertEquals("007", JSON.parseObject(transcoder.transcode(serializer.toXml(sparse)))
+                .getJSONObject("company").get("name"), "Leading zeros must stay a string");
+    }
+
+    @Test
+    @DisplayName("Should stream a large document in bounded chunks")
+    void streamsLargeDocument() throws Exception {
+        Company company = TestDataFactory.createCompany();
+        String[] websites = new String[20_000];
+        for (int i = 0; i < websites.length; i++) {
+            websites[i] = "http://site" + i + ".example";
+        }
+        company.setWebsites(websites);
+        byte[] xml = serializer.toXml(company).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+        transcoder.transcode(new ByteArrayInputStream(xml), json);
+
+        JSONArray items = JSON.parseObject(json.toString(StandardCharsets.UTF_8))
+                .getJSONObject("company").getJSONArray("websites").getJSONObject(0).getJSONArray("string");
+        assertEquals(websites.length, items.size());
+        assertEquals(websites[websites.length - 1], items.getString(websites.length - 1));
+    }
+
+    @Test
+    @DisplayName("Should read a string as characters whatever encoding it declares")
+    void ignoresDeclaredEncodingOfString() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a><b>é</b></a>";
+
+        assertEquals("{\"a\":{\"b\":\"é\"}}", transcoder.transcode(xml));
+    }
+
+    @Test
+    @DisplayName("Should reject a DOCTYPE")
+    void rejectsDoctype() {
+        String xml = "<!DOCTYPE company [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><company>&x;</company>";
+
+        assertThrows(XMLStreamException.class, () -> transcoder.transcode(xml));
+    }
+
+    @Test
+    @DisplayName("Should reject repeated siblings outside array elements")
+    void rejectsRepeatedSiblings() throws Exception {
+        String adjacent = "<company><name>a</name><name>b</name></company>";
+        String apart = "<company><name>a</name><id>1</id><name>b</name></company>";
+
+        XMLStreamException ex = assertThrows(XMLStreamException.class, () -> transcoder.transcode(adjacent));
+        assertTrue(ex.getMessage().contains("'name'"), ex.getMessage());
+        assertThrows(XMLStreamException.class, () -> transcoder.transcode(apart));
+        assertEquals("{\"company\":[{\"name\":[\"a\",\"b\"]}]}",
+                new XmlJsonTranscoder(Set.of("company")).transcode(adjacent));
+    }
+
+    @Test
+    @DisplayName("Should reject array items whose names are interleaved")
+    void rejectsInterleavedItems() {
+        Company company = TestDataFactory.createCompany();
+        company.setWebsites(new String[] { "http://a.example", null, "http://b.example" });
+        String xml = serializer.toXml(company);
+
+        XMLStreamException ex = assertThrows(XMLStreamException.class, () -> transcoder.transcode(xml));
+        assertTrue(ex.getMessage().contains("'string'"), ex.getMessage());
+    }
+}
@@ -0,0 +1,136 @@
+package metrics;
+
+import demo.CompanySerializer;
+import demo.TestDataFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import signature.DocumentUtil;
+import signature.KryptoUtil;
+import signature.SigningProfile;
+import signature.TestDocuments;
+import signature.XMLSignatureUtil;
+
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.security.KeyPair;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the hot-path metrics.
+ */
+@DisplayName("Metrics Tests")
+class MetricsTest {
+
+    @BeforeEach
+    void setUp() {
+        Metrics.reset();
+        Metrics.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.unregisterMBeans();
+        Metrics.reset();
+    }
+
+    @Test
+    @DisplayName("Should record signing, validation failures by reason and parsed bytes")
+    void recordsSignatureOperations() throws Exception {
+        KeyPair keyPair = new KryptoUtil().generateKeyPairs();
+        SigningProfile profile = TestDocuments.profile(keyPair).build();
+        byte[] signed = XMLSignatureUtil.sign(DocumentUtil.asBytes(TestDocuments.purchaseOrder(), false), profile);
+        Document tampered = DocumentUtil.parseXmlDocument(signed);
+        tampered.getElementsByTagName("Name").item(0).setTextContent("Mallory");
+
+        assertTrue(XMLSignatureUtil.validate(DocumentUtil.parseXmlDocument(signed), keyPair.getPublic()));
+        assertFalse(XMLSignatureUtil.validate(tampered, keyPair.getPublic()));
+
+        assertEquals(1, Metrics.operation(Metrics.SIGN, TestDocuments.RSA_SHA256).getCount());
+        OperationMetrics validate = Metrics.operation(Metrics.VALIDATE, TestDocuments.RSA_SHA256);
+        assertEquals(2, validate.getCount());
+        assertEquals(1, validate.getFailureCount());
+        assertEquals(Map.of("reference-digest", 1L), validate.getFailureReasons());
+        assertTrue(validate.getMaxMicros() > 0);
+        // Both the unsigned and the signed document are serialized once, the signed one is parsed twice more
+        long parsed = Metrics.operation(Metrics.PARSE, "dom").getBytes();
+        long serialized = Metrics.operation(Metrics.SERIALIZE, "compact").getBytes();
+        assertEquals(signed.length, parsed - serialized);
+    }
+
+    @Test
+    @DisplayName("Should record conversions and nothing while disabled")
+    void recordsConversionsOnlyWhenEnabled() {
+        CompanySerializer serializer = CompanySerializer.shared();
+        byte[] xml = serializer.toXmlBytes(TestDataFactory.createCompany(), false);
+
+        serializer.fromXml(xml);
+        Metrics.setEnabled(false);
+        serializer.fromXml(xml);
+        assertThrows(RuntimeException.class, () -> serializer.fromXml("<java.io.File/>"));
+
+        OperationMetrics fromXml = Metrics.operation(Metrics.CONVERT, "fromXml");
+        assertEquals(1, fromXml.getCount());
+        assertEquals(xml.length, fromXml.getBytes());
+        assertEquals(0, fromXml.getFailureCount());
+        assertEquals(xml.length, Metrics.operation(Metrics.CONVERT, "toXml").getBytes());
+    }
+
+    @Test
+    @DisplayName("Should export operations as MXBeans")
+    void exportsMBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        OperationMetrics existing = Metrics.operation(Metrics.PARSE, "dom");
+        Metrics.registerMBeans();
+
+        CompanySerializer.shared().toBinary(TestDataFactory.createCompany());
+        OperationMetrics created = Metrics.operation(Metrics.CONVERT, "toBinary");
+
+        assertTrue(server.isRegistered(Metrics.objectName(existing)));
+        assertEquals(1L, server.getAttribute(Metrics.objectName(created), "Count"));
+        Metrics.unregisterMBeans();
+        assertFalse(server.isRegistered(Metrics.objectName(created)));
+    }
+
+    @Test
+    @DisplayName("Should estimate percentiles within a factor of two")
+    void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        assertEquals(0, new LatencyHistogram().percentile(50));
+        assertTrue(histogram.percentile(50) >= 1_000 && histogram.percentile(50) < 2_000);
+        assertTrue(histogram.percentile(99) < 2_000);
+        assertEquals(1_000_000, histogram.percentile(100));
+        assertEquals(1_000_000, histogram.getMax());
+    }
+
+    @Test
+    @DisplayName("Should record without allocating")
+    void recordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 20_000; i++) {
+            Metrics.success(Metrics.SIGN, TestDocuments.RSA_SHA256, Metrics.start(), 10);
+            Metrics.failure(Metrics.VALIDATE, TestDocuments.RSA_SHA256, Metrics.start(), "signature-value");
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            Metrics.success(Metrics.SIGN, TestDocuments.RSA_SHA256, Metrics.start(), 10);
+            Metrics.failure(Metrics.VALIDATE, TestDocuments.RSA_SHA256, Metrics.start(), "signature-value");
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 1024, "Recording allocated " + allocated + " bytes");
+        assertEquals(30_000, Metrics.operation(Metrics.SIGN, TestDocuments.RSA_SHA256).getCount());
+    }
+}
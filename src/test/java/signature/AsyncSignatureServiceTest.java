@@ -0,0 +1,127 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import javax.xml.crypto.AlgorithmMethod;
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.KeySelectorException;
+import javax.xml.crypto.KeySelectorResult;
+import javax.xml.crypto.XMLCryptoContext;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the asynchronous signing and validation facade.
+ */
+@DisplayName("Async Signature Service Tests")
+class AsyncSignatureServiceTest {
+
+    private KeyPair keyPair;
+    private SigningProfile profile;
+    private AsyncSignatureService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        profile = SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(KeyAlgorithm.RSA_2048.getSignatureMethod())
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should parse, sign and validate without blocking the caller")
+    void signAndValidate() throws Exception {
+        service = AsyncSignatureService.builder().cpuThreads(2).build();
+
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("purchase.xml")) {
+            assertNotNull(is, "purchase.xml should exist in test resources");
+            CompletableFuture<ValidationReport> chained = service.parseAsync(is)
+                    .thenCompose(doc -> service.signAsync(doc, profile))
+                    .thenCompose(signed -> service.validateAsync(signed, keyPair.getPublic()));
+            assertTrue(chained.get(10, TimeUnit.SECONDS).isValid());
+        }
+
+        byte[] xml = "<Order><Item>Line item</Item></Order>".getBytes(StandardCharsets.UTF_8);
+        byte[] signed = service.signAsync(xml, profile).get(10, TimeUnit.SECONDS);
+        assertTrue(service.validateAsync(signed, keyPair.getPublic()).get(10, TimeUnit.SECONDS).isValid());
+        assertNotNull(service.validateAsync("<a".getBytes(StandardCharsets.UTF_8), keyPair.getPublic())
+                .get(10, TimeUnit.SECONDS).getFailure());
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> service.parseAsync(new ByteArrayInputStream("<a".getBytes(StandardCharsets.UTF_8)))
+                        .get(10, TimeUnit.SECONDS));
+        assertInstanceOf(SAXException.class, ex.getCause());
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Should reject operations beyond the pending limit until earlier ones complete")
+    void rejectsWhenSaturated() throws Exception {
+        service = AsyncSignatureService.builder().cpuThreads(1).maxPending(2).build();
+        Document signed = XMLSignatureUtil.sign(DocumentUtil.parseXmlDocument(
+                "<Order><Item>Line item</Item></Order>".getBytes(StandardCharsets.UTF_8)), profile);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the only CPU thread until released
+        KeySelector blocking = new KeySelector() {
+            @Override
+            public KeySelectorResult select(KeyInfo keyInfo, Purpose purpose, AlgorithmMethod method,
+                                            XMLCryptoContext context) throws KeySelectorException {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new KeySelectorException(ex);
+                }
+                return keyPair::getPublic;
+            }
+        };
+
+        CompletableFuture<ValidationReport> first = service.validateAsync(signed, blocking);
+        CompletableFuture<ValidationReport> second =
+                service.validateAsync((Document) signed.cloneNode(true), keyPair.getPublic());
+        CompletableFuture<ValidationReport> rejected = service.validateAsync(signed, keyPair.getPublic());
+
+        assertEquals(2, service.getPendingCount());
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertFalse(second.isDone(), "Queued behind the blocked CPU thread");
+
+        release.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS).isValid());
+        assertTrue(second.get(10, TimeUnit.SECONDS).isValid());
+        assertEquals(0, service.getPendingCount());
+        assertTrue(service.validateAsync(signed, keyPair.getPublic()).get(10, TimeUnit.SECONDS).isValid());
+
+        service.close();
+        ex = assertThrows(ExecutionException.class,
+                () -> service.validateAsync(signed, keyPair.getPublic()).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertEquals(0, service.getPendingCount());
+    }
+}
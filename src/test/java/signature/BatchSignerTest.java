@@ -0,0 +1,92 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BatchSigner.
+ * Tests parallel signing, result ordering and failure isolation.
+ */
+@DisplayName("Batch Signer Tests")
+class BatchSignerTest {
+
+    private KeyPair keyPair;
+    private SigningProfile profile;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        profile = TestDocuments.profile(keyPair, CanonicalizationMethod.INCLUSIVE).build();
+        executor = SigningExecutors.newPlatformThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should sign every document and keep submission order")
+    void signAllKeepsOrder() throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            Document doc = TestDocuments.purchaseOrder();
+            doc.getDocumentElement().setAttribute("batchIndex", Integer.toString(i));
+            documents.add(doc);
+        }
+
+        List<SignResult> results = new BatchSigner(profile, executor).signAll(documents);
+
+        assertEquals(documents.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            SignResult result = results.get(i);
+            assertTrue(result.isSuccess(), "Document " + i + " should be signed");
+            assertEquals(i, result.getIndex());
+            assertEquals(Integer.toString(i), result.getDocument().getDocumentElement().getAttribute("batchIndex"));
+            assertTrue(XMLSignatureUtil.validate(result.getDocument(), keyPair.getPublic()),
+                    "Signature of document " + i + " should be valid");
+        }
+    }
+
+    @Test
+    @DisplayName("Should isolate a failing document from the rest of the batch")
+    void signAllIsolatesFailures() throws Exception {
+        Document empty = DocumentUtil.createDocument();
+
+        List<SignResult> results = new BatchSigner(profile, executor)
+                .signAll(Stream.of(TestDocuments.purchaseOrder(), empty, TestDocuments.purchaseOrder()));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess(), "Document without root element cannot be signed");
+        assertNotNull(results.get(1).getFailure());
+        assertNull(results.get(1).getDocument());
+        assertTrue(results.get(2).isSuccess());
+    }
+
+    @Test
+    @DisplayName("Should sign on the virtual thread executor")
+    void signAllOnVirtualThreadExecutor() throws Exception {
+        ExecutorService virtual = SigningExecutors.newVirtualThreadExecutor();
+        try {
+            List<SignResult> results = new BatchSigner(profile, virtual)
+                    .signAll(List.of(TestDocuments.purchaseOrder(), TestDocuments.purchaseOrder()));
+            assertTrue(results.stream().allMatch(SignResult::isSuccess));
+        } finally {
+            virtual.shutdownNow();
+        }
+    }
+}
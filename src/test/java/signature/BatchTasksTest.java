@@ -0,0 +1,69 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the batch fan-out shared by the batch signer and validator.
+ */
+@DisplayName("Batch Tasks Tests")
+class BatchTasksTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = SigningExecutors.newPlatformThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should read the next item only once a pending task has finished")
+    void boundsPendingTasks() throws Exception {
+        int limit = BatchTasks.inFlightLimit(executor);
+        assertEquals(4, limit);
+        AtomicInteger finished = new AtomicInteger();
+        Iterator<Integer> source = IntStream.range(0, 100).iterator();
+        Iterator<Integer> items = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                assertTrue(read - finished.get() < limit, "Read " + read + " items with "
+                        + finished.get() + " finished");
+                read++;
+                return source.next();
+            }
+        };
+
+        List<Integer> results = BatchTasks.runAll(executor, items, BatchTasks.UNKNOWN_BATCH_SIZE,
+                (index, item) -> {
+                    finished.incrementAndGet();
+                    return index * 1000 + item;
+                });
+
+        assertEquals(100, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i * 1001, results.get(i));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.stream.XMLStreamException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for verifying directories of signed files in parallel.
+ */
+@DisplayName("Directory Verifier Tests")
+class DirectoryVerifierTest {
+
+    @TempDir
+    Path archive;
+
+    private KeyPair keyPair;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        executor = SigningExecutors.newPlatformThreadPool(4);
+
+        for (int i = 0; i < 6; i++) {
+            writeSigned(archive.resolve("order-" + i + ".xml"), TestDocuments.purchaseOrder());
+        }
+        Path nested = Files.createDirectories(archive.resolve("2025"));
+        writeSigned(nested.resolve("large.xml"), largeDocument());
+
+        String tampered = Files.readString(archive.resolve("order-3.xml")).replace("My Name", "Mallory");
+        Files.writeString(archive.resolve("order-3.xml"), tampered);
+        Files.writeString(archive.resolve("broken.xml"), "<PurchaseOrder>", StandardCharsets.UTF_8);
+        Files.writeString(archive.resolve("notes.txt"), "not a document", StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should report every matching file, sorted by path, through DOM")
+    void verifyDirectoryWithDom() throws Exception {
+        List<FileValidationReport> reports = new DirectoryVerifier(keyPair.getPublic(), executor)
+                .verifyAll(archive, "*.xml");
+
+        assertReports(reports);
+    }
+
+    @Test
+    @DisplayName("Should report the same results with the streaming verifier")
+    void verifyDirectoryStreaming() throws Exception {
+        List<FileValidationReport> reports = new DirectoryVerifier(new StreamingVerifier(keyPair.getPublic()), executor)
+                .verifyAll(archive, "*.xml");
+
+        assertReports(reports);
+        assertInstanceOf(XMLStreamException.class, reports.get(1).getReport().getFailure());
+    }
+
+    @Test
+    @DisplayName("Should parse a memory-mapped file like its stream")
+    void parseMappedDocument() throws Exception {
+        Path large = archive.resolve("2025").resolve("large.xml");
+
+        Document mapped = DocumentUtil.getMappedXmlDocument(large);
+
+        assertTrue(Files.size(large) >= DirectoryVerifier.MAP_THRESHOLD);
+        assertEquals(DocumentUtil.asString(DocumentUtil.getXmlDocument(large)), DocumentUtil.asString(mapped));
+    }
+
+    private void assertReports(List<FileValidationReport> reports) {
+        assertEquals(8, reports.size(), "Only *.xml files should be verified: " + reports);
+        assertEquals(archive.resolve("2025").resolve("large.xml"), reports.get(0).getPath());
+        assertTrue(reports.get(0).isValid(), reports.get(0).toString());
+        assertEquals(archive.resolve("broken.xml"), reports.get(1).getPath());
+        assertFalse(reports.get(1).isValid());
+        assertNotNull(reports.get(1).getReport().getFailure());
+        for (int i = 0; i < 6; i++) {
+            FileValidationReport report = reports.get(2 + i);
+            assertEquals(archive.resolve("order-" + i + ".xml"), report.getPath());
+            assertEquals(i != 3, report.isValid(), report.toString());
+        }
+    }
+
+    private void writeSigned(Path target, Document doc) throws Exception {
+        SigningProfile profile = TestDocuments.profile(keyPair).build();
+        Files.write(target, DocumentUtil.asBytes(XMLSignatureUtil.sign(doc, profile), false));
+    }
+
+    private Document largeDocument() throws Exception {
+        Document doc = TestDocuments.purchaseOrder();
+        Element item = (Element) doc.getElementsByTagName("Item").item(0);
+        for (int i = 0; i < 1000; i++) {
+            Element copy = (Element) item.cloneNode(true);
+            copy.setAttribute("number", Integer.toString(i));
+            doc.getDocumentElement().appendChild(copy);
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,116 @@
+package signature;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DocumentUtil.
+ * Tests parsing, serialization and XXE hardening of the pooled parsers.
+ */
+@DisplayName("Document Utility Tests")
+class DocumentUtilTest {
+
+    @Test
+    @DisplayName("Should reject documents with a DOCTYPE declaration")
+    void parseRejectsDoctype() {
+        String xxe = "<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE foo [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+                + "<foo>&xxe;</foo>";
+
+        assertThrows(SAXException.class, () -> parse(xxe),
+                "DOCTYPE declarations must be rejected");
+    }
+
+    @Test
+    @DisplayName("Should keep rejecting DOCTYPE after a parser has been reused")
+    void parseRejectsDoctypeAfterReuse() throws Exception {
+        assertNotNull(parse("<a/>"));
+        assertThrows(SAXException.class, () -> parse("<!DOCTYPE a [<!ENTITY e \"x\">]><a>&e;</a>"));
+        assertNotNull(parse("<b/>"), "Parser should remain usable after a failed parse");
+    }
+
+    @Test
+    @DisplayName("Should parse namespace aware documents")
+    void parseIsNamespaceAware() throws Exception {
+        Document doc = parse("<p:root xmlns:p=\"urn:test\"/>");
+        assertEquals("urn:test", doc.getDocumentElement().getNamespaceURI());
+        assertEquals("root", doc.getDocumentElement().getLocalName());
+    }
+
+    @Test
+    @DisplayName("Should serialize with identical output across repeated calls")
+    void asStringIsStableAcrossCalls() throws Exception {
+        Document doc = TestDocuments.purchaseOrder();
+        String first = DocumentUtil.asString(doc);
+        String second = DocumentUtil.asString(doc);
+
+        assertEquals(first, second);
+        assertTrue(first.contains("encoding=\"UTF-8\""), "Output should declare UTF-8 encoding");
+        assertTrue(first.contains("\n  <Item"), "Output should be indented by two spaces");
+    }
+
+    @Test
+    @DisplayName("Should write UTF-8 bytes with or without indentation")
+    void asBytesWithAndWithoutIndentation() throws Exception {
+        Document doc = TestDocuments.purchaseOrder();
+
+        byte[] indented = DocumentUtil.asBytes(doc, true);
+        byte[] compact = DocumentUtil.asBytes(doc, false);
+
+        assertEquals(DocumentUtil.asString(doc), new String(indented, StandardCharsets.UTF_8));
+        assertTrue(compact.length < indented.length, "Compact output should be smaller");
+        assertEquals(DocumentUtil.asString(doc), DocumentUtil.asString(DocumentUtil.parseXmlDocument(compact)));
+    }
+
+    @Test
+    @DisplayName("Should parse heap and direct buffers without moving their position")
+    void parseByteBuffers() throws Exception {
+        byte[] xml = "<p:root xmlns:p=\"urn:test\">\u00e9</p:root>".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(xml.length);
+        direct.put(xml).flip();
+
+        for (ByteBuffer buffer : List.of(ByteBuffer.wrap(xml), direct)) {
+            Document doc = DocumentUtil.parseXmlDocument(buffer);
+            assertEquals("urn:test", doc.getDocumentElement().getNamespaceURI());
+            assertEquals("\u00e9", doc.getDocumentElement().getTextContent());
+            assertEquals(0, buffer.position());
+        }
+        assertThrows(SAXException.class, () -> DocumentUtil.parseXmlDocument(
+                ByteBuffer.wrap("<!DOCTYPE a><a/>".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    @DisplayName("Should parse and serialize concurrently from many threads")
+    void parseConcurrently() throws Exception {
+        String expected = DocumentUtil.asString(TestDocuments.purchaseOrder());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> DocumentUtil.asString(TestDocuments.purchaseOrder())));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Document parse(String xml) throws Exception {
+        return DocumentUtil.parseXmlDocument(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,198 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for canonicalizing DOM nodes straight into a digest, checked byte for byte against
+ * the JDK canonicalizer.
+ */
+@DisplayName("DOM Canonicalizer Tests")
+class DomCanonicalizerTest {
+
+    private static final String NAMESPACED = "<?xml version=\"1.0\"?>\n"
+            + "<?before data?>\n"
+            + "<!-- comment -->\n"
+            + "<r:Root xmlns:r=\"urn:r\" xmlns=\"urn:default\" xmlns:unused=\"urn:unused\" xml:lang=\"en\">\n"
+            + "  <Child b=\"2\" a=\"1\" r:attr=\"x\" xmlns:z=\"urn:z\" z:q=\"&quot;&lt;&gt;&#9;&#10;&#13;\">"
+            + "Text &amp; &lt; &gt; &#13; é 𝄞<![CDATA[<cdata>]]></Child>\n"
+            + "  <plain xmlns=\"\">no namespace<inner xmlns=\"urn:default\"/></plain>\n"
+            + "  <r:Item Id=\"item-1\"><Deep xmlns:r=\"urn:other\" r:x=\"y\"/><!-- c --><?inside pi?></r:Item>\n"
+            + "</r:Root>\n"
+            + "<?after?>";
+
+    private KeyPair keyPair;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+    }
+
+    @AfterEach
+    void tearDown() {
+        XMLSignatureUtil.setDirectDigest(true);
+    }
+
+    @Test
+    @DisplayName("Should canonicalize documents and subtrees like the JDK canonicalizer")
+    void matchesJdkCanonicalizer() throws Exception {
+        Document doc = DocumentUtil.parseXmlDocument(NAMESPACED.getBytes(StandardCharsets.UTF_8));
+        Element item = (Element) doc.getElementsByTagNameNS("urn:r", "Item").item(0);
+        item.setIdAttributeNS(null, "Id", true);
+        assertSameCanonicalForm(doc, "");
+        assertSameCanonicalForm(doc, "#item-1");
+
+        assertSameCanonicalForm(TestDocuments.purchaseOrder(), "");
+    }
+
+    @Test
+    @DisplayName("Should render namespaces like the JDK canonicalizer when declarations are missing")
+    void matchesJdkCanonicalizerWithoutDeclarations() throws Exception {
+        // Built without xmlns attributes, which only ancestors of the apex make up for
+        Document doc = DocumentUtil.createDocument();
+        Element root = doc.createElementNS("urn:a", "a:Root");
+        doc.appendChild(root);
+        Element child = doc.createElementNS("urn:a", "a:Child");
+        child.setAttributeNS(null, "Id", "child");
+        child.setIdAttributeNS(null, "Id", true);
+        child.setAttributeNS("urn:b", "b:attr", "value");
+        root.appendChild(child);
+        Element legacy = doc.createElement("Legacy");
+        legacy.setAttribute("z", "1");
+        legacy.setAttribute("a", "2");
+        legacy.setTextContent("level 1 \r\n");
+        child.appendChild(legacy);
+
+        assertSameCanonicalForm(doc, "");
+        assertSameCanonicalForm(doc, "#child");
+    }
+
+    @Test
+    @DisplayName("Should render and sign the expansion of entity references that were not expanded")
+    void rendersEntityReferenceExpansion() throws Exception {
+        // As parsers that keep entity references build it; the JDK parser leaves them without children
+        Document doc = DocumentUtil.createDocument();
+        Element root = doc.createElement("Root");
+        doc.appendChild(root);
+        Element item = doc.createElement("Item");
+        item.setAttributeNS(null, "Id", "item");
+        root.appendChild(item);
+        EntityReference reference = doc.createEntityReference("signed");
+        doc.setStrictErrorChecking(false);
+        reference.appendChild(doc.createTextNode("covered "));
+        Element bold = doc.createElement("b");
+        bold.appendChild(doc.createTextNode("text"));
+        reference.appendChild(bold);
+        doc.setStrictErrorChecking(true);
+        item.appendChild(doc.createTextNode("before "));
+        item.appendChild(reference);
+        item.appendChild(doc.createTextNode(" after"));
+
+        ByteArrayOutputStream canonical = new ByteArrayOutputStream();
+        new DomCanonicalizer(CanonicalWriter.to(canonical)).canonicalize(item, null);
+        assertEquals("<Item Id=\"item\">before covered <b>text</b> after</Item>",
+                canonical.toString(StandardCharsets.UTF_8));
+
+        SigningProfile profile = TestDocuments.profile(keyPair)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+        XMLSignatureUtil.signInPlace(item, profile);
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+        doc.setStrictErrorChecking(false);
+        bold.getFirstChild().setNodeValue("tampered");
+        doc.setStrictErrorChecking(true);
+        assertFalse(XMLSignatureUtil.validateDetailed(doc, keyPair.getPublic()).isValid());
+    }
+
+    @Test
+    @DisplayName("Should validate alike with and without direct digests and reject duplicate IDs")
+    void validatesLikeProvider() throws Exception {
+        SigningProfile profile = TestDocuments.profile(keyPair)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+        Document doc = DocumentUtil.parseXmlDocument(NAMESPACED.getBytes(StandardCharsets.UTF_8));
+        Element item = (Element) doc.getElementsByTagNameNS("urn:r", "Item").item(0);
+        XMLSignatureUtil.signInPlace(item, profile);
+        byte[] signed = DocumentUtil.asBytes(doc, false);
+
+        XMLSignatureUtil.setDirectDigest(false);
+        Document byProvider = DocumentUtil.parseXmlDocument(signed);
+        XMLSignatureUtil.signInPlace((Element) byProvider.getElementsByTagNameNS("urn:r", "Item").item(0), profile);
+        XMLSignatureUtil.setDirectDigest(true);
+        Document byDirect = DocumentUtil.parseXmlDocument(signed);
+        XMLSignatureUtil.signInPlace((Element) byDirect.getElementsByTagNameNS("urn:r", "Item").item(0), profile);
+        assertArrayEquals(DocumentUtil.asBytes(byProvider, false), DocumentUtil.asBytes(byDirect, false));
+
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+        item.getFirstChild().appendChild(doc.createTextNode("tampered"));
+        assertFalse(XMLSignatureUtil.validateDetailed(doc, keyPair.getPublic()).isValid());
+
+        // A second element carrying the referenced ID, as in a signature wrapping attack
+        Document wrapped = DocumentUtil.parseXmlDocument(signed);
+        Element original = (Element) wrapped.getElementsByTagNameNS("urn:r", "Item").item(0);
+        original.setIdAttributeNS(null, "Id", true);
+        Element copy = (Element) original.cloneNode(true);
+        copy.setIdAttributeNS(null, "Id", true);
+        wrapped.getDocumentElement().appendChild(copy);
+        ValidationReport report = XMLSignatureUtil.validateDetailed(wrapped, keyPair.getPublic());
+        assertFalse(report.isValid());
+        String reason = report.getSignatures().get(0).getFailureReason();
+        assertTrue(reason.contains("same ID"), reason);
+    }
+
+    /**
+     * Signs a reference with the JDK provider, keeping the bytes it digested, and compares them
+     * with the canonical form of the same node with the new signature excluded.
+     */
+    private void assertSameCanonicalForm(Document doc, String uri) throws Exception {
+        XMLSignatureFactory factory = XMLSignatureUtil.signatureFactory();
+        Reference reference = factory.newReference(uri, factory.newDigestMethod(DigestMethod.SHA256, null),
+                List.of(factory.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null),
+                        factory.newTransform(CanonicalizationMethod.EXCLUSIVE, (TransformParameterSpec) null)),
+                null, null);
+        SignedInfo signedInfo = factory.newSignedInfo(
+                factory.newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE, (C14NMethodParameterSpec) null),
+                factory.newSignatureMethod(TestDocuments.RSA_SHA256, null), List.of(reference));
+        DOMSignContext signContext = new DOMSignContext(keyPair.getPrivate(), doc.getDocumentElement());
+        signContext.setProperty("javax.xml.crypto.dsig.cacheReference", Boolean.TRUE);
+        factory.newXMLSignature(signedInfo, null).sign(signContext);
+        byte[] expected;
+        try (InputStream digested = reference.getDigestInputStream()) {
+            expected = digested.readAllBytes();
+        }
+
+        Element signature = (Element) doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0);
+        Node target = uri.isEmpty() ? doc : doc.getElementById(uri.substring(1));
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new DomCanonicalizer(CanonicalWriter.to(actual)).canonicalize(target, signature);
+
+        assertEquals(new String(expected, StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+        assertArrayEquals(expected, actual.toByteArray());
+        assertArrayEquals(reference.getDigestValue(), DomCanonicalizer.digest(target, signature, DigestMethod.SHA256));
+        signature.getParentNode().removeChild(signature);
+    }
+}
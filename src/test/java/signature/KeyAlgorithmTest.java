@@ -0,0 +1,101 @@
+package signature;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for signing with RSA, ECDSA and Ed25519 keys.
+ */
+@DisplayName("Key Algorithm Tests")
+class KeyAlgorithmTest {
+
+    @TempDir
+    Path keyDir;
+
+    @ParameterizedTest
+    @EnumSource(KeyAlgorithm.class)
+    @DisplayName("Should store and load key pairs of every key type")
+    void storeAndLoadKeys(KeyAlgorithm keyAlgorithm) throws Exception {
+        KryptoUtil kryptoUtil = new KryptoUtil(keyAlgorithm);
+        KeyPair keyPair = kryptoUtil.generateKeyPairs();
+        kryptoUtil.storeKey(keyDir.resolve("private.key"), keyPair.getPrivate());
+        kryptoUtil.storeKey(keyDir.resolve("public.key"), keyPair.getPublic());
+
+        PrivateKey privateKey = kryptoUtil.getStoredPrivateKey(keyDir.resolve("private.key").toString());
+        PublicKey publicKey = kryptoUtil.getStoredPublicKey(keyDir.resolve("public.key").toString());
+
+        assertEquals(keyPair.getPrivate(), privateKey);
+        assertEquals(keyPair.getPublic(), publicKey);
+        assertEquals(keyPair.getPublic(), KryptoUtil.decodePublicKey(publicKey.getEncoded()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = KeyAlgorithm.class, names = {"RSA_2048", "EC_P256", "EC_P384"})
+    @DisplayName("Should sign and validate through XMLSignatureUtil")
+    void signAndValidateWithDom(KeyAlgorithm keyAlgorithm) throws Exception {
+        KeyPair keyPair = new KryptoUtil(keyAlgorithm).generateKeyPairs();
+
+        Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), null, keyPair, DigestMethod.SHA256,
+                keyAlgorithm.getSignatureMethod(), "", CanonicalizationMethod.EXCLUSIVE);
+
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+        assertTrue(new StreamingVerifier(keyPair.getPublic())
+                .verify(new ByteArrayInputStream(DocumentUtil.serializeFragment(doc).getBytes(StandardCharsets.UTF_8)))
+                .isValid(), "DOM and streaming verification must agree");
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyAlgorithm.class)
+    @DisplayName("Should sign and verify streams with every key type")
+    void signAndVerifyStreaming(KeyAlgorithm keyAlgorithm) throws Exception {
+        KeyPair keyPair = new KryptoUtil(keyAlgorithm).generateKeyPairs();
+        SigningProfile profile = profile(keyPair, keyAlgorithm);
+        ByteArrayOutputStream signed = new ByteArrayOutputStream();
+
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("purchase.xml")) {
+            new StreamingSigner(profile).sign(is, signed);
+        }
+        ValidationReport report = new StreamingVerifier(keyPair.getPublic())
+                .verify(new ByteArrayInputStream(signed.toByteArray()));
+
+        assertTrue(report.isValid(), "Signature should be valid: " + report);
+        assertEquals(keyAlgorithm.isSupportedByXmlDsig(), profile.isXmlDsigSupported());
+    }
+
+    @Test
+    @DisplayName("Should reject Ed25519 profiles on the DOM signing path")
+    void ed25519RequiresStreaming() throws Exception {
+        KeyPair keyPair = new KryptoUtil(KeyAlgorithm.ED25519).generateKeyPairs();
+        SigningProfile profile = profile(keyPair, KeyAlgorithm.ED25519);
+
+        Document doc = TestDocuments.purchaseOrder();
+
+        assertThrows(IllegalArgumentException.class, () -> XMLSignatureUtil.sign(doc, profile));
+    }
+
+    private SigningProfile profile(KeyPair keyPair, KeyAlgorithm keyAlgorithm) {
+        return SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(keyAlgorithm.getSignatureMethod())
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                .build();
+    }
+}
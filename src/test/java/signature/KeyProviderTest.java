@@ -0,0 +1,133 @@
+package signature;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyPair;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for loading and caching key material.
+ */
+@DisplayName("Key Provider Tests")
+class KeyProviderTest {
+
+    private static final char[] KEYSTORE_PASSWORD = "password".toCharArray();
+
+    @TempDir
+    Path keyDir;
+
+    @Test
+    @DisplayName("Should load key files once and serve the same key pair instance")
+    void loadKeyFiles() throws Exception {
+        KryptoUtil kryptoUtil = new KryptoUtil();
+        kryptoUtil.storeKeyPairs(keyDir.toString());
+
+        try (KeyProvider provider = KeyProvider.builder()
+                .keyFiles("partner", keyDir.resolve("privatekey.key"), keyDir.resolve("publickey.key"))
+                .build()) {
+
+            KeyPair keyPair = provider.getKeyPair("partner");
+            assertSame(keyPair, provider.getKeyPair("partner"));
+            assertEquals(kryptoUtil.getStoredPrivateKey(keyDir.resolve("privatekey.key").toString()),
+                    keyPair.getPrivate());
+            assertNull(provider.getCertificate("partner"));
+            assertThrows(IllegalArgumentException.class, () -> provider.getKeyPair("unknown"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should load private key and certificate entries from the PKCS12 keystore")
+    void loadKeyStore() throws Exception {
+        Path keyStore = copyResource("keystore.jks");
+
+        try (KeyProvider provider = KeyProvider.builder().keyStore(keyStore, KEYSTORE_PASSWORD).build()) {
+            assertEquals(Set.of("selfsigned"), provider.getAliases());
+            assertNotNull(provider.getCertificate("selfsigned"));
+            assertEquals(provider.getCertificate("selfsigned").getPublicKey(), provider.getPublicKey("selfsigned"));
+
+            Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), provider.profileBuilder("selfsigned")
+                    .digestMethod(DigestMethod.SHA256)
+                    .signatureMethod(TestDocuments.RSA_SHA256)
+                    .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE)
+                    .build());
+            assertTrue(XMLSignatureUtil.validate(doc, provider.getPublicKey("selfsigned")));
+        }
+    }
+
+    @Test
+    @DisplayName("Should combine key files and a certificate file under one alias")
+    void loadCertificateFile() throws Exception {
+        new KryptoUtil().storeKeyPairs(keyDir.toString());
+        Path certificate = copyResource("instapay.cert");
+
+        try (KeyProvider provider = KeyProvider.builder()
+                .keyFiles("instapay", keyDir.resolve("privatekey.key"), null)
+                .certificateFile("instapay", certificate)
+                .build()) {
+
+            assertNotNull(provider.getKeyPair("instapay"));
+            assertTrue(provider.getCertificate("instapay").getSubjectX500Principal().getName().contains("Nguyen Ngoc"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reload rotated key files and keep the previous keys on a broken file")
+    void reloadRotatedKeys() throws Exception {
+        KryptoUtil kryptoUtil = new KryptoUtil();
+        Path privateKeyFile = keyDir.resolve("privatekey.key");
+        Path publicKeyFile = keyDir.resolve("publickey.key");
+        kryptoUtil.storeKeyPairs(keyDir.toString());
+        List<Set<String>> reloads = new CopyOnWriteArrayList<>();
+
+        try (KeyProvider provider = KeyProvider.builder()
+                .keyFiles("rotating", privateKeyFile, publicKeyFile)
+                .watchForChanges(true)
+                .build()) {
+            provider.addReloadListener(reloads::add);
+            KeyPair original = provider.getKeyPair("rotating");
+
+            // Rotate by atomically replacing both files
+            KeyPair rotated = kryptoUtil.generateKeyPairs();
+            replace(privateKeyFile, rotated.getPrivate().getEncoded());
+            replace(publicKeyFile, rotated.getPublic().getEncoded());
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            // Listeners are notified after the keys have been swapped, wait for both
+            while ((!provider.getKeyPair("rotating").getPublic().equals(rotated.getPublic()) || reloads.isEmpty())
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(rotated.getPublic(), provider.getKeyPair("rotating").getPublic());
+            assertNotEquals(original.getPublic(), provider.getKeyPair("rotating").getPublic());
+            assertTrue(reloads.contains(Set.of("rotating")));
+
+            Files.write(publicKeyFile, new byte[]{1, 2, 3});
+            assertThrows(Exception.class, provider::reload);
+            assertEquals(rotated.getPublic(), provider.getPublicKey("rotating"));
+        }
+    }
+
+    private void replace(Path target, byte[] content) throws Exception {
+        Path temp = Files.createTempFile(keyDir.getParent(), "key", ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path copyResource(String name) throws Exception {
+        Path target = keyDir.resolve(name);
+        Files.copy(Path.of(name), target);
+        return target;
+    }
+}
@@ -0,0 +1,113 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for signing batches under one Merkle root and verifying single documents.
+ */
+@DisplayName("Merkle Batch Signer Tests")
+class MerkleBatchSignerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private KeyPair keyPair;
+    private MerkleBatchSigner signer;
+    private BatchProofVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        signer = new MerkleBatchSigner(TestDocuments.profile(keyPair).build());
+        verifier = new BatchProofVerifier(keyPair.getPublic());
+    }
+
+    @Test
+    @DisplayName("Should verify every document of a batch on its own proof")
+    void verifyEveryDocument() throws Exception {
+        for (int size : new int[]{1, 2, 7, 16}) {
+            List<byte[]> documents = documents(size);
+
+            SignedBatch batch = signer.sign(documents);
+
+            assertEquals(size, batch.size());
+            assertEquals(1, batch.getSignedRoot().getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").getLength());
+            for (int i = 0; i < size; i++) {
+                ByteArrayOutputStream proof = new ByteArrayOutputStream();
+                batch.writeProof(i, proof);
+                ValidationReport report = verifier.verify(documents.get(i), proof.toByteArray());
+                assertTrue(report.isValid(), "Document " + i + " of " + size + ": " + report);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject tampered documents, foreign proofs and forged indexes")
+    void rejectDocumentsOutsideTheBatch() throws Exception {
+        List<byte[]> documents = documents(7);
+        SignedBatch batch = signer.sign(documents);
+        byte[] tampered = documents.get(3).clone();
+        tampered[tampered.length - 3] ^= 1;
+
+        ValidationReport report = verifier.verify(tampered, batch.proof(3));
+        assertFalse(report.isValid());
+        assertEquals(Boolean.TRUE, report.getSignatures().get(0).getSignatureValueValid());
+        assertEquals("Document is not part of the signed batch", report.getSignatures().get(0).getFailureReason());
+
+        assertFalse(verifier.verify(documents.get(3), batch.proof(2)).isValid());
+
+        Document forgedIndex = batch.proof(3);
+        forgedIndex.getDocumentElement().setAttribute("Index", "2");
+        assertFalse(verifier.verify(documents.get(3), forgedIndex).isValid());
+
+        Document forgedRoot = batch.proof(3);
+        forgedRoot.getElementsByTagNameNS(MerkleBatchSigner.NAMESPACE, "RootDigest").item(0)
+                .setTextContent("AAAA");
+        assertFalse(verifier.verify(documents.get(3), forgedRoot).isValid());
+
+        assertFalse(new BatchProofVerifier(new KryptoUtil().generateKeyPairs().getPublic())
+                .verify(documents.get(3), batch.proof(3)).isValid());
+        assertNotNull(verifier.verify(documents.get(3), "<a/>".getBytes(StandardCharsets.UTF_8)).getFailure());
+    }
+
+    @Test
+    @DisplayName("Should sign files with the same root as their bytes")
+    void signFiles() throws Exception {
+        List<byte[]> documents = documents(5);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            files.add(Files.write(tempDir.resolve("order-" + i + ".xml"), documents.get(i)));
+        }
+
+        SignedBatch fromFiles = signer.signFiles(files);
+
+        assertArrayEquals(signer.sign(documents).getRootDigest(), fromFiles.getRootDigest());
+        assertTrue(verifier.verify(Files.readAllBytes(files.get(4)), fromFiles.proof(4)).isValid());
+        assertThrows(IndexOutOfBoundsException.class, () -> fromFiles.proof(5));
+        assertThrows(IllegalArgumentException.class, () -> signer.sign(List.of()));
+    }
+
+    private static List<byte[]> documents(int count) {
+        List<byte[]> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(("<Order Id=\"" + i + "\"><Item>Line item " + i + "</Item></Order>")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,197 @@
+package signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.security.KeyPair;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for concurrent validation of multi-signature documents and document batches.
+ */
+@DisplayName("Parallel Validation Tests")
+class ParallelValidationTest {
+
+    private static final int SIGNATURES = 12;
+
+    private KeyPair keyPair;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        executor = SigningExecutors.newPlatformThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should validate every signature of a multi-signature document")
+    void validateConcurrentlyAllValid() throws Exception {
+        Document doc = createMultiSignedDocument();
+
+        ValidationReport report = XMLSignatureUtil.validateConcurrently(doc, keyPair.getPublic(), executor, 4);
+
+        assertTrue(report.isValid(), "All signatures should be valid: " + report);
+        assertEquals(SIGNATURES, report.getSignatures().size());
+        for (int i = 0; i < SIGNATURES; i++) {
+            SignatureValidationResult result = report.getSignatures().get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(Boolean.TRUE, result.getSignatureValueValid());
+            assertEquals(1, result.getReferences().size());
+            assertEquals("#item-" + i, result.getReferences().get(0).getURI());
+            assertTrue(result.getReferences().get(0).isValid());
+        }
+    }
+
+    @Test
+    @DisplayName("Should report the tampered signature and stop early")
+    void validateConcurrentlyFailsFast() throws Exception {
+        Document doc = createMultiSignedDocument();
+        Element tampered = (Element) doc.getElementsByTagName("Item").item(5);
+        tampered.setAttribute("price", "0.01");
+
+        ValidationReport report = XMLSignatureUtil.validateConcurrently(doc, keyPair.getPublic(), executor, 4);
+
+        assertFalse(report.isValid());
+        SignatureValidationResult result = report.getSignatures().get(5);
+        assertNotEquals(SignatureValidationResult.Status.VALID, result.getStatus());
+        if (result.getStatus() == SignatureValidationResult.Status.INVALID) {
+            assertEquals(Boolean.TRUE, result.getSignatureValueValid());
+            assertFalse(result.getReferences().get(0).isValid(), "Reference digest should not match");
+        }
+        assertTrue(report.getSignatures().stream()
+                .anyMatch(r -> r.getStatus() == SignatureValidationResult.Status.INVALID));
+    }
+
+    @Test
+    @DisplayName("Should cancel workers that have not started once a signature fails")
+    void validateConcurrentlyCancelsPendingWorkers() throws Exception {
+        Document doc = createMultiSignedDocument();
+        ((Element) doc.getElementsByTagName("Item").item(0)).setAttribute("price", "0.01");
+        List<Future<?>> submitted = new CopyOnWriteArrayList<>();
+        CountDownLatch returned = new CountDownLatch(1);
+        // Queued workers are held until the call returns, it must not wait for them
+        ExecutorService singleThread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+                RunnableFuture<T> task = super.newTaskFor(runnable, value);
+                submitted.add(task);
+                return task;
+            }
+
+            @Override
+            protected void beforeExecute(Thread thread, Runnable task) {
+                if (task != submitted.get(0)) {
+                    try {
+                        returned.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+
+        try {
+            ValidationReport report = XMLSignatureUtil.validateConcurrently(doc, keyPair.getPublic(), singleThread, 4);
+            returned.countDown();
+
+            assertEquals(SignatureValidationResult.Status.INVALID, report.getSignatures().get(0).getStatus());
+            for (int i = 1; i < SIGNATURES; i++) {
+                assertEquals(SignatureValidationResult.Status.SKIPPED, report.getSignatures().get(i).getStatus());
+            }
+            assertEquals(4, submitted.size());
+            assertFalse(submitted.get(0).isCancelled());
+            for (int i = 1; i < submitted.size(); i++) {
+                assertTrue(submitted.get(i).isCancelled(), "Queued worker " + i + " should be cancelled");
+            }
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should give the same result as serial detailed validation")
+    void validateConcurrentlyMatchesSerial() throws Exception {
+        Document doc = createMultiSignedDocument();
+
+        ValidationReport serial = XMLSignatureUtil.validateDetailed(doc, keyPair.getPublic());
+        ValidationReport parallel = XMLSignatureUtil.validateConcurrently(doc, keyPair.getPublic(), executor, 3);
+
+        assertTrue(serial.isValid());
+        assertEquals(serial.isValid(), parallel.isValid());
+        assertEquals(serial.getSignatures().size(), parallel.getSignatures().size());
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+    }
+
+    @Test
+    @DisplayName("Should report an unsigned document as invalid without signatures")
+    void validateDetailedUnsignedDocument() throws Exception {
+        Document doc = DocumentUtil.createDocument();
+        doc.appendChild(doc.createElement("PurchaseOrder"));
+
+        ValidationReport report = XMLSignatureUtil.validateConcurrently(doc, keyPair.getPublic(), executor);
+
+        assertFalse(report.isValid());
+        assertTrue(report.getSignatures().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should validate a batch of documents in order")
+    void batchValidatorKeepsOrder() throws Exception {
+        Document valid = createMultiSignedDocument();
+        Document tampered = createMultiSignedDocument();
+        ((Element) tampered.getElementsByTagName("Item").item(0)).setAttribute("price", "0.01");
+        Document unsigned = DocumentUtil.createDocument();
+        unsigned.appendChild(unsigned.createElement("PurchaseOrder"));
+
+        List<ValidationReport> reports = new BatchValidator(executor)
+                .validateAll(List.of(valid, tampered, unsigned), keyPair.getPublic());
+
+        assertEquals(3, reports.size());
+        assertTrue(reports.get(0).isValid());
+        assertFalse(reports.get(1).isValid());
+        assertFalse(reports.get(1).getSignatures().get(0).isValid());
+        assertTrue(reports.get(1).getSignatures().get(1).isValid(), "Serial report covers every signature");
+        assertFalse(reports.get(2).isValid());
+    }
+
+    private Document createMultiSignedDocument() throws Exception {
+        Document doc = DocumentUtil.createDocument();
+        Element root = doc.createElement("SettlementBatch");
+        doc.appendChild(root);
+        for (int i = 0; i < SIGNATURES; i++) {
+            Element item = doc.createElement("Item");
+            item.setAttribute("ID", "item-" + i);
+            item.setIdAttribute("ID", true);
+            item.setAttribute("price", Integer.toString(10 + i));
+            item.setTextContent("Line item " + i);
+            root.appendChild(item);
+        }
+        for (int i = 0; i < SIGNATURES; i++) {
+            Element item = (Element) root.getChildNodes().item(i);
+            XMLSignatureUtil.sign(item, item.getFirstChild(), null, keyPair, DigestMethod.SHA256,
+                    TestDocuments.RSA_SHA256, "#item-" + i, CanonicalizationMethod.EXCLUSIVE);
+        }
+        return doc;
+    }
+}
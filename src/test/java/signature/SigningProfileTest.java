@@ -0,0 +1,109 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for signing with a reusable SigningProfile.
+ */
+@DisplayName("Signing Profile Tests")
+class SigningProfileTest {
+
+    private KeyPair keyPair;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+    }
+
+    @Test
+    @DisplayName("Should produce the same signed document as the parameter based sign method")
+    void profileSignatureMatchesLegacySignature() throws Exception {
+        Document legacy = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), "partner-key", keyPair,
+                DigestMethod.SHA256, TestDocuments.RSA_SHA256, "", CanonicalizationMethod.INCLUSIVE);
+        Document profiled = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(),
+                profileBuilder().keyName("partner-key").build());
+
+        assertEquals(DocumentUtil.asString(legacy), DocumentUtil.asString(profiled));
+    }
+
+    @Test
+    @DisplayName("Should reuse one profile for many documents")
+    void profileIsReusable() throws Exception {
+        SigningProfile profile = profileBuilder().build();
+
+        for (int i = 0; i < 5; i++) {
+            Document doc = TestDocuments.purchaseOrder();
+            doc.getDocumentElement().setAttribute("sequence", Integer.toString(i));
+            XMLSignatureUtil.sign(doc, profile);
+            assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()), "Signature " + i + " should be valid");
+        }
+    }
+
+    @Test
+    @DisplayName("Should sign bytes and streams into unindented, valid documents")
+    void signBytesAndStreams() throws Exception {
+        SigningProfile profile = profileBuilder().build();
+        byte[] xml = DocumentUtil.asBytes(TestDocuments.purchaseOrder(), true);
+
+        byte[] signed = XMLSignatureUtil.sign(xml, profile);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        XMLSignatureUtil.sign(new ByteArrayInputStream(xml), streamed, profile);
+
+        assertArrayEquals(signed, streamed.toByteArray());
+        assertTrue(XMLSignatureUtil.validate(DocumentUtil.parseXmlDocument(signed), keyPair.getPublic()));
+        assertEquals(DocumentUtil.asString(XMLSignatureUtil.sign(DocumentUtil.parseXmlDocument(xml), profile)),
+                DocumentUtil.asString(DocumentUtil.parseXmlDocument(signed)));
+    }
+
+    @Test
+    @DisplayName("Should omit KeyValue when KeyInfo is disabled on the profile")
+    void profileWithoutKeyInfo() throws Exception {
+        Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(),
+                profileBuilder().includeKeyInfo(false).build());
+
+        assertEquals(0, doc.getElementsByTagNameNS(XMLSignature.XMLNS, "KeyValue").getLength());
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+    }
+
+    @Test
+    @DisplayName("Should reference the signed element by its ID attribute")
+    void profileWithIdAttributeStrategy() throws Exception {
+        SigningProfile profile = profileBuilder()
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("number"))
+                .build();
+        Document doc = TestDocuments.purchaseOrder();
+        Element item = (Element) doc.getElementsByTagName("Item").item(0);
+
+        XMLSignatureUtil.sign(item, null, profile);
+
+        Element reference = (Element) doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Reference").item(0);
+        assertEquals("#130046593231", reference.getAttribute("URI"));
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+    }
+
+    @Test
+    @DisplayName("Should reject unsupported algorithms when the profile is built")
+    void profileRejectsUnknownAlgorithm() {
+        assertThrows(IllegalArgumentException.class,
+                () -> profileBuilder().signatureMethod("urn:unknown-signature").build());
+        assertThrows(NullPointerException.class,
+                () -> profileBuilder().keyPair(null).build());
+    }
+
+    private SigningProfile.Builder profileBuilder() {
+        return TestDocuments.profile(keyPair, CanonicalizationMethod.INCLUSIVE);
+    }
+}
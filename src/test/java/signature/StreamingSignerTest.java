@@ -0,0 +1,135 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for signing XML streams without a DOM.
+ */
+@DisplayName("Streaming Signer Tests")
+class StreamingSignerTest {
+
+    private static final String MIXED_CONTENT = "<?xml version=\"1.0\"?>\n"
+            + "<?xml-stylesheet href=\"order.xsl\"?>\n"
+            + "<!-- leading comment -->\n"
+            + "<po:Order xmlns:po=\"urn:example:po\" xmlns=\"urn:example:default\" xml:lang=\"en\" id=\"o-1\">\r\n"
+            + "  <Note title='a &amp; b &lt; &quot;c&quot;' tab=\"x&#9;y\">Tom &amp; Jerry &gt; 5 &lt; 6</Note>\n"
+            + "  <po:Empty/>\n"
+            + "  <Plain xmlns=\"\"><Child a=\"2\" xmlns:z=\"urn:z\" z:b=\"1\"/></Plain>\n"
+            + "  <Data><![CDATA[<raw> & data]]></Data>\n"
+            + "  <!-- inner comment --><?process me?>\n"
+            + "  <Unicode>é中😀</Unicode>\n"
+            + "</po:Order>\n"
+            + "<!-- trailing comment -->";
+
+    private KeyPair keyPair;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CanonicalizationMethod.EXCLUSIVE, CanonicalizationMethod.INCLUSIVE})
+    @DisplayName("Should stream sign a document so that the DOM validator accepts it")
+    void streamedSignatureIsValid(String canonicalizationMethod) throws Exception {
+        StreamingSigner signer = new StreamingSigner(profile(canonicalizationMethod));
+
+        Document signed = signAndParse(signer, resourceBytes("purchase.xml"));
+
+        assertEquals(1, signed.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").getLength());
+        assertTrue(XMLSignatureUtil.validate(signed, keyPair.getPublic()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CanonicalizationMethod.EXCLUSIVE, CanonicalizationMethod.INCLUSIVE})
+    @DisplayName("Should handle namespaces, escaping, CDATA, comments and processing instructions")
+    void streamedSignatureOfMixedContentIsValid(String canonicalizationMethod) throws Exception {
+        StreamingSigner signer = new StreamingSigner(profile(canonicalizationMethod));
+
+        Document signed = signAndParse(signer, MIXED_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        Element root = signed.getDocumentElement();
+        assertEquals("Signature", root.getLastChild().getLocalName());
+        assertEquals("en", root.getAttributeNS("http://www.w3.org/XML/1998/namespace", "lang"));
+        assertTrue(XMLSignatureUtil.validate(signed, keyPair.getPublic()));
+    }
+
+    @Test
+    @DisplayName("Should detect content modified after streaming")
+    void tamperedStreamedDocumentIsInvalid() throws Exception {
+        StreamingSigner signer = new StreamingSigner(profile(CanonicalizationMethod.EXCLUSIVE));
+
+        Document signed = signAndParse(signer, resourceBytes("purchase.xml"));
+        signed.getElementsByTagName("Name").item(0).setTextContent("Mallory");
+
+        assertFalse(XMLSignatureUtil.validate(signed, keyPair.getPublic()));
+    }
+
+    @Test
+    @DisplayName("Should sign a memory-mapped file like its stream")
+    void signMappedFile(@TempDir Path tempDir) throws Exception {
+        StreamingSigner signer = new StreamingSigner(profile(CanonicalizationMethod.EXCLUSIVE));
+        Path source = Files.write(tempDir.resolve("purchase.xml"), resourceBytes("purchase.xml"));
+
+        ByteArrayOutputStream fromFile = new ByteArrayOutputStream();
+        signer.sign(source, fromFile);
+        ByteArrayOutputStream fromStream = new ByteArrayOutputStream();
+        signer.sign(new ByteArrayInputStream(resourceBytes("purchase.xml")), fromStream);
+
+        assertArrayEquals(fromStream.toByteArray(), fromFile.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Should reject a DOCTYPE in the input stream")
+    void doctypeIsRejected() {
+        StreamingSigner signer = new StreamingSigner(profile(CanonicalizationMethod.EXCLUSIVE));
+        byte[] xml = "<!DOCTYPE a [<!ENTITY x \"y\">]><a>&x;</a>".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(XMLStreamException.class,
+                () -> signer.sign(new ByteArrayInputStream(xml), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    @DisplayName("Should reject canonicalization methods that cannot be streamed")
+    void unsupportedCanonicalizationIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StreamingSigner(profile(CanonicalizationMethod.INCLUSIVE_WITH_COMMENTS)));
+    }
+
+    private Document signAndParse(StreamingSigner signer, byte[] xml) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        signer.sign(new ByteArrayInputStream(xml), out);
+        return DocumentUtil.parseXmlDocument(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private SigningProfile profile(String canonicalizationMethod) {
+        return TestDocuments.profile(keyPair, canonicalizationMethod).build();
+    }
+
+    private byte[] resourceBytes(String name) throws Exception {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(is, name + " should exist in test resources");
+            return is.readAllBytes();
+        }
+    }
+}
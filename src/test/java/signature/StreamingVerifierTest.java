@@ -0,0 +1,228 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for verifying signed XML streams without a DOM.
+ */
+@DisplayName("Streaming Verifier Tests")
+class StreamingVerifierTest {
+
+    private KeyPair keyPair;
+    private StreamingVerifier verifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        verifier = new StreamingVerifier(keyPair.getPublic());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {CanonicalizationMethod.EXCLUSIVE, CanonicalizationMethod.INCLUSIVE})
+    @DisplayName("Should verify a document signed through DOM")
+    void verifyDomSignedDocument(String canonicalizationMethod) throws Exception {
+        Document doc = TestDocuments.purchaseOrder();
+        doc.getDocumentElement().setAttributeNS("http://www.w3.org/XML/1998/namespace", "xml:lang", "en");
+        doc.getDocumentElement().setAttributeNS("http://www.w3.org/2000/xmlns/", "xmlns:po", "urn:example:po");
+        XMLSignatureUtil.sign(doc, profile(canonicalizationMethod));
+
+        ValidationReport report = verifier.verify(toStream(doc));
+
+        assertTrue(report.isValid(), "Signature should be valid: " + report);
+        SignatureValidationResult result = report.getSignatures().get(0);
+        assertEquals(Boolean.TRUE, result.getSignatureValueValid());
+        assertEquals("", result.getReferences().get(0).getURI());
+        assertTrue(result.getReferences().get(0).isValid());
+    }
+
+    @Test
+    @DisplayName("Should verify the output of the streaming signer")
+    void verifyStreamSignedDocument() throws Exception {
+        StreamingSigner signer = new StreamingSigner(profile(CanonicalizationMethod.EXCLUSIVE));
+        ByteArrayOutputStream signed = new ByteArrayOutputStream();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("purchase.xml")) {
+            signer.sign(is, signed);
+        }
+
+        ValidationReport report = verifier.verify(new ByteArrayInputStream(signed.toByteArray()));
+
+        assertTrue(report.isValid(), "Signature should be valid: " + report);
+    }
+
+    @Test
+    @DisplayName("Should report the same per-signature results as DOM validation")
+    void matchesDomValidationForMultipleSignatures() throws Exception {
+        Document doc = createMultiSignedDocument(4);
+        ((Element) doc.getElementsByTagName("Item").item(2)).setAttribute("price", "0");
+
+        ValidationReport streamed = verifier.verify(toStream(doc));
+        ValidationReport dom = XMLSignatureUtil.validateDetailed(doc, keyPair.getPublic());
+
+        assertEquals(dom.getSignatures().size(), streamed.getSignatures().size());
+        for (int i = 0; i < dom.getSignatures().size(); i++) {
+            SignatureValidationResult expected = dom.getSignatures().get(i);
+            SignatureValidationResult actual = streamed.getSignatures().get(i);
+            assertEquals(expected.getStatus(), actual.getStatus(), "Status of signature " + i);
+            assertEquals(expected.getSignatureValueValid(), actual.getSignatureValueValid());
+            assertEquals(expected.getReferences().get(0).getURI(), actual.getReferences().get(0).getURI());
+            assertEquals(expected.getReferences().get(0).isValid(), actual.getReferences().get(0).isValid());
+        }
+        assertFalse(streamed.getSignatures().get(2).isValid());
+    }
+
+    @Test
+    @DisplayName("Should leave out only its own signature for an enveloped whole-document reference")
+    void verifyDocumentSignatureOverSignedItems() throws Exception {
+        Document doc = createMultiSignedDocument(3);
+        XMLSignatureUtil.sign(doc, profile(CanonicalizationMethod.EXCLUSIVE));
+
+        ValidationReport report = verifier.verify(toStream(doc));
+
+        assertTrue(report.isValid(), "All signatures should be valid: " + report);
+        assertEquals(4, report.getSignatures().size());
+        assertEquals("", report.getSignatures().get(3).getReferences().get(0).getURI());
+    }
+
+    @Test
+    @DisplayName("Should detect a modified document and a wrong key")
+    void detectTamperingAndWrongKey() throws Exception {
+        Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), profile(CanonicalizationMethod.EXCLUSIVE));
+        String signedXml = DocumentUtil.serializeFragment(doc);
+
+        ValidationReport tampered = verifier.verify(toStream(signedXml.replace("<Name>", "<Name>Not ")));
+        ValidationReport wrongKey = new StreamingVerifier(new KryptoUtil().generateKeyPairs().getPublic())
+                .verify(toStream(signedXml));
+
+        SignatureValidationResult tamperedResult = tampered.getSignatures().get(0);
+        assertFalse(tampered.isValid());
+        assertEquals(Boolean.TRUE, tamperedResult.getSignatureValueValid());
+        assertFalse(tamperedResult.getReferences().get(0).isValid());
+        assertFalse(wrongKey.isValid());
+        assertEquals(Boolean.FALSE, wrongKey.getSignatures().get(0).getSignatureValueValid());
+    }
+
+    @Test
+    @DisplayName("Should reject references to IDs that are missing or not unique")
+    void unresolvableReferencesAreInvalid() throws Exception {
+        Document doc = createMultiSignedDocument(2);
+        Element duplicate = (Element) doc.getElementsByTagName("Item").item(1);
+        duplicate.setAttribute("ID", "item-0");
+
+        ValidationReport report = verifier.verify(toStream(doc));
+
+        assertFalse(report.getSignatures().get(0).isValid());
+        assertTrue(report.getSignatures().get(0).getFailureReason().contains("not unique"));
+        assertFalse(report.getSignatures().get(1).isValid());
+        assertTrue(report.getSignatures().get(1).getFailureReason().contains("Cannot resolve"));
+    }
+
+    @Test
+    @DisplayName("Should reject digest methods that are not configured and a DOCTYPE")
+    void unsupportedInput() throws Exception {
+        Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), profile(CanonicalizationMethod.EXCLUSIVE));
+        StreamingVerifier sha512Only = new StreamingVerifier(keyPair.getPublic(), Set.of("ID"),
+                Set.of(DigestMethod.SHA512));
+
+        ValidationReport report = sha512Only.verify(toStream(doc));
+
+        assertFalse(report.isValid());
+        assertTrue(report.getSignatures().get(0).getFailureReason().contains("not configured"));
+        assertThrows(XMLStreamException.class, () -> verifier.verify(toStream("<!DOCTYPE a []><a/>")));
+    }
+
+    @Test
+    @DisplayName("Should ignore SignedInfo look-alikes outside the signed SignedInfo")
+    void ignoresSignedInfoInObject() throws Exception {
+        Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), profile(CanonicalizationMethod.EXCLUSIVE));
+        Element signature = (Element) doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0);
+        Element object = doc.createElementNS(XMLSignature.XMLNS, "ds:Object");
+        Element signedInfo = doc.createElementNS(XMLSignature.XMLNS, "ds:SignedInfo");
+        Element c14n = doc.createElementNS(XMLSignature.XMLNS, "ds:CanonicalizationMethod");
+        c14n.setAttribute("Algorithm", "urn:example:bogus");
+        Element reference = doc.createElementNS(XMLSignature.XMLNS, "ds:Reference");
+        reference.setAttribute("URI", "#injected");
+        signedInfo.appendChild(c14n);
+        signedInfo.appendChild(reference);
+        object.appendChild(signedInfo);
+        signature.appendChild(object);
+        String signedXml = DocumentUtil.serializeFragment(doc);
+
+        ValidationReport streamed = verifier.verify(toStream(signedXml));
+        ValidationReport dom = XMLSignatureUtil.validateDetailed(DocumentUtil.parseXmlDocument(toStream(signedXml)),
+                keyPair.getPublic());
+
+        assertTrue(dom.isValid(), dom.toString());
+        assertEquals(dom.isValid(), streamed.isValid(), streamed.toString());
+        assertEquals(dom.getSignatures().get(0).getReferences().size(),
+                streamed.getSignatures().get(0).getReferences().size());
+    }
+
+    @Test
+    @DisplayName("Should report a DigestValue that is not base64 as an invalid reference")
+    void malformedDigestValueIsInvalid() throws Exception {
+        Document doc = XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), profile(CanonicalizationMethod.EXCLUSIVE));
+        doc.getElementsByTagNameNS(XMLSignature.XMLNS, "DigestValue").item(0).setTextContent("A");
+        String signedXml = DocumentUtil.serializeFragment(doc);
+
+        ValidationReport streamed = verifier.verify(toStream(signedXml));
+        ValidationReport dom = XMLSignatureUtil.validateDetailed(DocumentUtil.parseXmlDocument(toStream(signedXml)),
+                keyPair.getPublic());
+
+        assertFalse(dom.isValid());
+        assertFalse(streamed.isValid());
+        SignatureValidationResult result = streamed.getSignatures().get(0);
+        // SignedInfo no longer matches SignatureValue either, the reference is what must not throw
+        assertFalse(result.getReferences().get(0).isValid());
+    }
+
+    private Document createMultiSignedDocument(int signatures) throws Exception {
+        Document doc = DocumentUtil.createDocument();
+        Element root = doc.createElement("SettlementBatch");
+        doc.appendChild(root);
+        for (int i = 0; i < signatures; i++) {
+            Element item = doc.createElement("Item");
+            item.setAttribute("ID", "item-" + i);
+            item.setIdAttribute("ID", true);
+            item.setTextContent("Line item " + i);
+            root.appendChild(item);
+        }
+        for (int i = 0; i < signatures; i++) {
+            Element item = (Element) root.getChildNodes().item(i);
+            XMLSignatureUtil.sign(item, item.getFirstChild(), null, keyPair, DigestMethod.SHA256,
+                    TestDocuments.RSA_SHA256, "#item-" + i, CanonicalizationMethod.EXCLUSIVE);
+        }
+        return doc;
+    }
+
+    private SigningProfile profile(String canonicalizationMethod) {
+        return TestDocuments.profile(keyPair, canonicalizationMethod).build();
+    }
+
+    private InputStream toStream(Document doc) throws Exception {
+        // Indenting would change the signed content
+        return toStream(DocumentUtil.serializeFragment(doc));
+    }
+
+    private InputStream toStream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
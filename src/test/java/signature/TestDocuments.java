@@ -0,0 +1,51 @@
+package signature;
+
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.io.InputStream;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Fixtures shared by the signature tests: the purchase order test document and RSA-SHA256
+ * signing profiles. Public for the tests of other packages that sign documents.
+ */
+public final class TestDocuments {
+
+    public static final String RSA_SHA256 = "http://www.w3.org/2001/04/xmldsig-more#rsa-sha256";
+
+    private TestDocuments() {
+        // Utility class - prevent instantiation
+    }
+
+    /**
+     * @return a newly parsed copy of {@code purchase.xml} from the test resources
+     */
+    public static Document purchaseOrder() throws Exception {
+        try (InputStream is = TestDocuments.class.getClassLoader().getResourceAsStream("purchase.xml")) {
+            assertNotNull(is, "purchase.xml should exist in test resources");
+            return DocumentUtil.parseXmlDocument(is);
+        }
+    }
+
+    /**
+     * @return a SHA-256 and RSA-SHA256 profile with exclusive canonicalization, to be completed
+     */
+    public static SigningProfile.Builder profile(KeyPair keyPair) {
+        return profile(keyPair, CanonicalizationMethod.EXCLUSIVE);
+    }
+
+    /**
+     * @return a SHA-256 and RSA-SHA256 profile with the given canonicalization, to be completed
+     */
+    public static SigningProfile.Builder profile(KeyPair keyPair, String canonicalizationMethod) {
+        return SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(RSA_SHA256)
+                .canonicalizationMethod(canonicalizationMethod);
+    }
+}
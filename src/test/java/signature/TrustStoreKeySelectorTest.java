@@ -0,0 +1,130 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for resolving validation keys from KeyInfo against trusted keys.
+ */
+@DisplayName("Trust Store Key Selector Tests")
+class TrustStoreKeySelectorTest {
+
+    private static final char[] KEYSTORE_PASSWORD = "password".toCharArray();
+
+    private KeyStore keyStore;
+    private X509Certificate certificate;
+    private KeyPair certifiedKeyPair;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyStore = new KryptoUtil().loadKeyStore(Path.of("keystore.jks"), KEYSTORE_PASSWORD);
+        certificate = (X509Certificate) keyStore.getCertificate("selfsigned");
+        certifiedKeyPair = new KeyPair(certificate.getPublicKey(),
+                (PrivateKey) keyStore.getKey("selfsigned", KEYSTORE_PASSWORD));
+    }
+
+    @Test
+    @DisplayName("Should validate a batch of several partners with one selector")
+    void validateMixedPartnerBatch() throws Exception {
+        KeyPair ecPartner = new KryptoUtil(KeyAlgorithm.EC_P256).generateKeyPairs();
+        KeyPair rsaPartner = new KryptoUtil().generateKeyPairs();
+        KeyPair stranger = new KryptoUtil().generateKeyPairs();
+        TrustStoreKeySelector selector = TrustStoreKeySelector.builder()
+                .trust(keyStore)
+                .trust("ec-partner", ecPartner.getPublic())
+                .trust(null, rsaPartner.getPublic())
+                .checkValidity(false)
+                .build();
+
+        // X509Data, KeyName only, KeyValue only, and an untrusted KeyValue
+        Document byCertificate = sign(profile(certifiedKeyPair, KeyAlgorithm.RSA_2048).x509Certificate(certificate));
+        Document byKeyName = sign(profile(ecPartner, KeyAlgorithm.EC_P256).keyName("ec-partner").includeKeyInfo(false));
+        Document byKeyValue = sign(profile(rsaPartner, KeyAlgorithm.RSA_2048));
+        Document untrusted = sign(profile(stranger, KeyAlgorithm.RSA_2048));
+
+        ExecutorService executor = SigningExecutors.newPlatformThreadPool(4);
+        try {
+            List<ValidationReport> reports = new BatchValidator(executor)
+                    .validateAll(List.of(byCertificate, byKeyName, byKeyValue, untrusted), selector);
+
+            assertTrue(reports.get(0).isValid(), reports.get(0).toString());
+            assertTrue(reports.get(1).isValid(), reports.get(1).toString());
+            assertTrue(reports.get(2).isValid(), reports.get(2).toString());
+            assertFalse(reports.get(3).isValid());
+            assertNull(reports.get(3).getSignatures().get(0).getSignatureValueValid(), "No key should be selected");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve a claimed KeyName to the trusted key, not the signer's")
+    void rejectsForgedKeyName() throws Exception {
+        KeyPair partner = new KryptoUtil().generateKeyPairs();
+        KeyPair forger = new KryptoUtil().generateKeyPairs();
+        TrustStoreKeySelector selector = TrustStoreKeySelector.builder().trust("partner", partner.getPublic()).build();
+
+        Document forged = sign(profile(forger, KeyAlgorithm.RSA_2048).keyName("partner"));
+
+        ValidationReport report = XMLSignatureUtil.validateDetailed(forged, selector);
+        assertFalse(report.isValid());
+        assertEquals(Boolean.FALSE, report.getSignatures().get(0).getSignatureValueValid());
+    }
+
+    @Test
+    @DisplayName("Should reject expired certificates and keys unsuited to the signature method")
+    void rejectsExpiredCertificateAndWrongKeyType() throws Exception {
+        Document signed = sign(profile(certifiedKeyPair, KeyAlgorithm.RSA_2048).x509Certificate(certificate));
+        KeyPair ecPartner = new KryptoUtil(KeyAlgorithm.EC_P256).generateKeyPairs();
+        Document ecSigned = sign(profile(ecPartner, KeyAlgorithm.EC_P256).keyName("partner").includeKeyInfo(false));
+
+        // The test certificate expired in 2022
+        assertFalse(XMLSignatureUtil.validateDetailed(signed,
+                TrustStoreKeySelector.builder().trust(certificate).build()).isValid());
+        assertFalse(XMLSignatureUtil.validateDetailed(ecSigned, TrustStoreKeySelector.builder()
+                .trust("partner", new KryptoUtil().generateKeyPairs().getPublic()).build()).isValid());
+        assertThrows(IllegalStateException.class, () -> TrustStoreKeySelector.builder().build());
+    }
+
+    @Test
+    @DisplayName("Should parse a KeyInfo certificate string once")
+    void cachesParsedCertificates() throws Exception {
+        String encoded = Base64.getMimeEncoder().encodeToString(certificate.getEncoded());
+
+        X509Certificate first = XMLSignatureUtil.getX509CertificateFromKeyInfoString(encoded);
+        X509Certificate second = XMLSignatureUtil.getX509CertificateFromKeyInfoString(encoded.replace("\r\n", ""));
+
+        assertEquals(certificate, first);
+        assertSame(first, second);
+        assertThrows(CertificateException.class,
+                () -> XMLSignatureUtil.getX509CertificateFromKeyInfoString("not a certificate!"));
+    }
+
+    private static SigningProfile.Builder profile(KeyPair keyPair, KeyAlgorithm algorithm) {
+        return SigningProfile.builder()
+                .keyPair(keyPair)
+                .digestMethod(DigestMethod.SHA256)
+                .signatureMethod(algorithm.getSignatureMethod())
+                .canonicalizationMethod(CanonicalizationMethod.EXCLUSIVE);
+    }
+
+    private Document sign(SigningProfile.Builder profile) throws Exception {
+        return XMLSignatureUtil.sign(TestDocuments.purchaseOrder(), profile.build());
+    }
+}
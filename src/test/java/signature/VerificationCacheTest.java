@@ -0,0 +1,143 @@
+package signature;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for caching verification outcomes of signed documents.
+ */
+@DisplayName("Verification Cache Tests")
+class VerificationCacheTest {
+
+    private KeyPair keyPair;
+    private byte[] signed;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = new KryptoUtil().generateKeyPairs();
+        signed = sign(resourceBytes("purchase.xml"));
+    }
+
+    @Test
+    @DisplayName("Should answer a repeated document from the cache")
+    void repeatedDocumentIsHit() {
+        VerificationCache cache = VerificationCache.builder().build();
+
+        ValidationReport first = cache.validate(signed, keyPair.getPublic());
+        ValidationReport second = cache.validate(ByteBuffer.wrap(signed.clone()), keyPair.getPublic());
+
+        assertTrue(first.isValid(), first.toString());
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    @DisplayName("Should key entries by document bytes and public key")
+    void differentBytesOrKeyIsMiss() throws Exception {
+        VerificationCache cache = VerificationCache.builder().build();
+        byte[] tampered = new String(signed, StandardCharsets.UTF_8).replace("My Name", "Mallory")
+                .getBytes(StandardCharsets.UTF_8);
+        KeyPair otherKey = new KryptoUtil().generateKeyPairs();
+
+        assertTrue(cache.validate(signed, keyPair.getPublic()).isValid());
+        assertFalse(cache.validate(tampered, keyPair.getPublic()).isValid());
+        assertFalse(cache.validate(signed, otherKey.getPublic()).isValid());
+        assertFalse(cache.validate(tampered, keyPair.getPublic()).isValid(), "Invalid outcomes are cached too");
+
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should not cache documents that cannot be parsed")
+    void malformedDocumentIsNotCached() {
+        VerificationCache cache = VerificationCache.builder().build();
+        byte[] malformed = "<PurchaseOrder>".getBytes(StandardCharsets.UTF_8);
+
+        assertNotNull(cache.validate(malformed, keyPair.getPublic()).getFailure());
+        assertNotNull(cache.validate(malformed, keyPair.getPublic()).getFailure());
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should expire entries after their time to live")
+    void entriesExpire() {
+        AtomicLong now = new AtomicLong();
+        VerificationCache cache = VerificationCache.builder()
+                .timeToLive(Duration.ofSeconds(30))
+                .ticker(now::get)
+                .build();
+
+        cache.validate(signed, keyPair.getPublic());
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        cache.validate(signed, keyPair.getPublic());
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        cache.validate(signed, keyPair.getPublic());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    @DisplayName("Should stay within its maximum size")
+    void evictsLeastRecentlyUsed() throws Exception {
+        VerificationCache cache = VerificationCache.builder().maximumSize(16).build();
+
+        for (int i = 0; i < 40; i++) {
+            String order = new String(resourceBytes("purchase.xml"), StandardCharsets.UTF_8)
+                    .replace("My Name", "Buyer " + i);
+            cache.validate(sign(order.getBytes(StandardCharsets.UTF_8)), keyPair.getPublic());
+        }
+
+        assertTrue(cache.size() <= 16, cache.toString());
+        assertEquals(40 - cache.size(), cache.getEvictionCount());
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 17})
+    @DisplayName("Should never hold more entries than its maximum size")
+    void honorsSmallAndUnevenMaximumSizes(int maximumSize) throws Exception {
+        VerificationCache cache = VerificationCache.builder().maximumSize(maximumSize).build();
+
+        for (int i = 0; i < maximumSize + 8; i++) {
+            String order = new String(resourceBytes("purchase.xml"), StandardCharsets.UTF_8)
+                    .replace("My Name", "Buyer " + i);
+            cache.validate(sign(order.getBytes(StandardCharsets.UTF_8)), keyPair.getPublic());
+            assertTrue(cache.size() <= maximumSize, cache.toString());
+        }
+
+        assertEquals(maximumSize + 8 - cache.size(), cache.getEvictionCount());
+    }
+
+    private byte[] sign(byte[] xml) throws Exception {
+        SigningProfile profile = TestDocuments.profile(keyPair).build();
+        return XMLSignatureUtil.sign(xml, profile);
+    }
+
+    private byte[] resourceBytes(String name) throws Exception {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(is, name + " should exist in test resources");
+            return is.readAllBytes();
+        }
+    }
+}
@@ -9,9 +9,11 @@ import org.w3c.dom.Element;
 
 import javax.xml.crypto.dsig.CanonicalizationMethod;
 import javax.xml.crypto.dsig.DigestMethod;
-import java.io.InputStream;
+import javax.xml.crypto.dsig.XMLSignature;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.security.KeyPair;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,8 +24,6 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("XML Signature Utility Tests")
 class XMLSignatureUtilTest {
 
-    private static final String RSA_SHA256 = "http://www.w3.org/2001/04/xmldsig-more#rsa-sha256";
-
     private KeyPair keyPair;
     private KryptoUtil kryptoUtil;
 
@@ -40,10 +40,10 @@ class XMLSignatureUtilTest {
     @DisplayName("Should sign document without X509 certificate")
     void signRootNodeWithoutX509Certificate() throws Exception {
         // Arrange
-        Document doc = loadTestDocument();
+        Document doc = TestDocuments.purchaseOrder();
         assertNotNull(doc, "Test document should be loaded");
 
-        String signatureMethod = RSA_SHA256;
+        String signatureMethod = TestDocuments.RSA_SHA256;
         String digestMethod = DigestMethod.SHA256;
         String referenceURI = "";
         String canonicalizationMethodType = CanonicalizationMethod.INCLUSIVE;
@@ -64,10 +64,10 @@ class XMLSignatureUtilTest {
     @DisplayName("Should sign document with X509 certificate and validate successfully")
     void signRootNodeWithKeyPairAndValidate() throws Exception {
         // Arrange
-        Document doc = loadTestDocument();
+        Document doc = TestDocuments.purchaseOrder();
         assertNotNull(doc, "Test document should be loaded");
 
-        String signatureMethod = RSA_SHA256;
+        String signatureMethod = TestDocuments.RSA_SHA256;
         String digestMethod = DigestMethod.SHA256;
         String referenceURI = "";
         String canonicalizationMethodType = CanonicalizationMethod.INCLUSIVE;
@@ -89,8 +89,8 @@ class XMLSignatureUtilTest {
     @DisplayName("Should fail validation after document tampering")
     void signatureInvalidAfterTampering() throws Exception {
         // Arrange
-        Document doc = loadTestDocument();
-        String signatureMethod = RSA_SHA256;
+        Document doc = TestDocuments.purchaseOrder();
+        String signatureMethod = TestDocuments.RSA_SHA256;
         String digestMethod = DigestMethod.SHA256;
         String referenceURI = "";
         String canonicalizationMethodType = CanonicalizationMethod.INCLUSIVE;
@@ -119,10 +119,10 @@ class XMLSignatureUtilTest {
     @DisplayName("Should fail validation with wrong key")
     void signatureInvalidWithWrongKey() throws Exception {
         // Arrange
-        Document doc = loadTestDocument();
+        Document doc = TestDocuments.purchaseOrder();
         KeyPair differentKeyPair = kryptoUtil.generateKeyPairs();
 
-        String signatureMethod = RSA_SHA256;
+        String signatureMethod = TestDocuments.RSA_SHA256;
         String digestMethod = DigestMethod.SHA256;
         String referenceURI = "";
         String canonicalizationMethodType = CanonicalizationMethod.INCLUSIVE;
@@ -148,8 +148,8 @@ class XMLSignatureUtilTest {
     @Test
     @DisplayName("Should throw exception for null public key in validate")
     void validateThrowsExceptionForNullKey() throws Exception {
-        Document doc = loadTestDocument();
-        String signatureMethod = RSA_SHA256;
+        Document doc = TestDocuments.purchaseOrder();
+        String signatureMethod = TestDocuments.RSA_SHA256;
         String digestMethod = DigestMethod.SHA256;
 
         Document signedDoc = XMLSignatureUtil.sign(
@@ -164,15 +164,175 @@ class XMLSignatureUtilTest {
     @Test
     @DisplayName("Should return false when no signature element exists")
     void validateReturnsFalseForUnsignedDocument() throws Exception {
-        Document doc = loadTestDocument();
+        Document doc = TestDocuments.purchaseOrder();
         boolean isValid = XMLSignatureUtil.validate(doc, keyPair.getPublic());
         assertFalse(isValid, "Unsigned document should not validate");
     }
 
-    private Document loadTestDocument() throws Exception {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("purchase.xml")) {
-            assertNotNull(is, "purchase.xml should exist in test resources");
-            return DocumentUtil.parseXmlDocument(is);
+    @Test
+    @DisplayName("Should sign a subtree in place with the same output as the copying sign method")
+    void signInPlaceMatchesCopyingSign() throws Exception {
+        for (String canonicalizationMethodType : new String[]{
+                CanonicalizationMethod.INCLUSIVE, CanonicalizationMethod.EXCLUSIVE}) {
+            // Arrange
+            Document copied = TestDocuments.purchaseOrder();
+            Element copiedItem = (Element) copied.getElementsByTagName("Item").item(0);
+            copiedItem.setIdAttribute("number", true);
+
+            Document inPlace = TestDocuments.purchaseOrder();
+            Element inPlaceItem = (Element) inPlace.getElementsByTagName("Item").item(0);
+            SigningProfile profile = TestDocuments.profile(keyPair, canonicalizationMethodType)
+                    .referenceUriStrategy(ReferenceUriStrategy.idAttribute("number"))
+                    .build();
+
+            // Act
+            XMLSignatureUtil.sign(copied, copiedItem, null, keyPair, DigestMethod.SHA256, TestDocuments.RSA_SHA256,
+                    "#130046593231", null, canonicalizationMethodType);
+            Element signedItem = XMLSignatureUtil.signInPlace(inPlaceItem, profile);
+
+            // Assert
+            assertSame(inPlaceItem, signedItem, "Element should be signed in place");
+            assertEquals(DocumentUtil.asString(copied), DocumentUtil.asString(inPlace),
+                    "In-place signature should be byte-identical for " + canonicalizationMethodType);
+            assertTrue(XMLSignatureUtil.validate(inPlace, keyPair.getPublic()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject in-place signing without an ID reference")
+    void signInPlaceRequiresIdReference() throws Exception {
+        Document doc = TestDocuments.purchaseOrder();
+        SigningProfile profile = TestDocuments.profile(keyPair).build();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> XMLSignatureUtil.signInPlace(doc.getDocumentElement(), profile));
+    }
+
+    @Test
+    @DisplayName("Should sign many elements with few signatures and report the tampered reference")
+    void signElementsWithFewSignatures() throws Exception {
+        Document doc = createOrder(50);
+        SigningProfile profile = TestDocuments.profile(keyPair)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+
+        XMLSignatureUtil.signElements(doc, "/Order/Item", profile);
+
+        // The default JDK policy allows 30 references per signature
+        assertEquals(30, XMLSignatureUtil.maxReferencesPerSignature());
+        assertEquals(2, doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").getLength());
+        assertEquals(50, doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Reference").getLength());
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+        assertTrue(new StreamingVerifier(keyPair.getPublic())
+                .verify(ByteBuffer.wrap(DocumentUtil.asBytes(doc, false))).isValid());
+
+        doc.getElementsByTagName("Item").item(17).setTextContent("tampered");
+        ValidationReport report = XMLSignatureUtil.validateDetailed(doc, keyPair.getPublic());
+        assertTrue(report.getSignatures().get(1).isValid());
+        SignatureValidationResult result = report.getSignatures().get(0);
+        assertFalse(result.isValid());
+        assertTrue(result.getSignatureValueValid(), "SignedInfo itself is untouched");
+        for (SignatureValidationResult.ReferenceStatus reference : result.getReferences()) {
+            assertEquals(!"#item-17".equals(reference.getURI()), reference.isValid(), reference.getURI());
+        }
+        assertTrue(result.getFailureReason().contains("#item-17"), result.getFailureReason());
+    }
+
+    @Test
+    @DisplayName("Should reject signing several elements without distinct ID references")
+    void signElementsRequiresDistinctIdReferences() throws Exception {
+        Document doc = createOrder(2);
+        List<Element> items = List.of((Element) doc.getElementsByTagName("Item").item(0),
+                (Element) doc.getElementsByTagName("Item").item(1));
+        SigningProfile.Builder profile = TestDocuments.profile(keyPair);
+
+        assertThrows(IllegalArgumentException.class, () -> XMLSignatureUtil.signElements(doc, items, profile.build()));
+        SigningProfile byId = profile.referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id")).build();
+        assertThrows(IllegalArgumentException.class,
+                () -> XMLSignatureUtil.signElements(doc, List.of(items.get(0), items.get(0)), byId));
+        assertThrows(IllegalArgumentException.class, () -> XMLSignatureUtil.signElements(doc, "/Order/Missing", byId));
+    }
+
+    @Test
+    @DisplayName("Should re-sign only the signature covering an amended element")
+    void resignAmendedElement() throws Exception {
+        SigningProfile profile = TestDocuments.profile(keyPair)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+        Document doc = createOrder(50);
+        XMLSignatureUtil.signElements(doc, "/Order/Item", profile);
+        // Parsed documents have no registered ID attributes
+        Document parsed = DocumentUtil.parseXmlDocument(DocumentUtil.asBytes(doc, false));
+        String firstSignatureValue = parsed.getElementsByTagNameNS(XMLSignature.XMLNS, "SignatureValue")
+                .item(0).getTextContent();
+
+        assertEquals(List.of(), XMLSignatureUtil.resign(parsed, profile));
+
+        parsed.getElementsByTagName("Item").item(40).setTextContent("Amended line item");
+        assertFalse(XMLSignatureUtil.validate(parsed, keyPair.getPublic()));
+        assertEquals(List.of("#item-40"), XMLSignatureUtil.resign(parsed, profile));
+
+        assertTrue(XMLSignatureUtil.validate(parsed, keyPair.getPublic()));
+        assertEquals(2, parsed.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").getLength());
+        assertEquals(firstSignatureValue, parsed.getElementsByTagNameNS(XMLSignature.XMLNS, "SignatureValue")
+                .item(0).getTextContent());
+        // RSA PKCS#1 v1.5 is deterministic: the same bytes as signing the amended order afresh
+        Document fresh = createOrder(50);
+        fresh.getElementsByTagName("Item").item(40).setTextContent("Amended line item");
+        XMLSignatureUtil.signElements(fresh, "/Order/Item", profile);
+        assertArrayEquals(DocumentUtil.asBytes(fresh, false), DocumentUtil.asBytes(parsed, false));
+    }
+
+    @Test
+    @DisplayName("Should digest only the references affected by the changed nodes")
+    void resignWithChangedNodes() throws Exception {
+        SigningProfile profile = TestDocuments.profile(keyPair)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+        Document doc = createOrder(10);
+        XMLSignatureUtil.signElements(doc, "/Order/Item", profile);
+        Element item3 = (Element) doc.getElementsByTagName("Item").item(3);
+        Element item7 = (Element) doc.getElementsByTagName("Item").item(7);
+
+        item3.setTextContent("Amended line item");
+        item7.setTextContent("Amended line item");
+        // Item 7 was not reported as changed, its stale digest is kept
+        assertEquals(List.of("#item-3"), XMLSignatureUtil.resign(doc, profile, List.of(item3.getFirstChild())));
+        ValidationReport report = XMLSignatureUtil.validateDetailed(doc, keyPair.getPublic());
+        assertFalse(report.isValid());
+        assertTrue(report.getSignatures().get(0).getFailureReason().contains("#item-7"));
+
+        assertEquals(List.of("#item-7"), XMLSignatureUtil.resign(doc, profile, List.of(doc.getDocumentElement())));
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+    }
+
+    @Test
+    @DisplayName("Should treat a changed attribute as a change of its element")
+    void resignWithChangedAttribute() throws Exception {
+        SigningProfile profile = TestDocuments.profile(keyPair)
+                .referenceUriStrategy(ReferenceUriStrategy.idAttribute("Id"))
+                .build();
+        Document doc = createOrder(4);
+        XMLSignatureUtil.signElements(doc, "/Order/Item", profile);
+        Element item2 = (Element) doc.getElementsByTagName("Item").item(2);
+
+        item2.setAttribute("price", "0.01");
+
+        assertEquals(List.of("#item-2"),
+                XMLSignatureUtil.resign(doc, profile, List.of(item2.getAttributeNode("price"))));
+        assertTrue(XMLSignatureUtil.validate(doc, keyPair.getPublic()));
+    }
+
+    private static Document createOrder(int items) throws Exception {
+        Document doc = DocumentUtil.createDocument();
+        Element order = doc.createElement("Order");
+        doc.appendChild(order);
+        for (int i = 0; i < items; i++) {
+            Element item = doc.createElement("Item");
+            item.setAttribute("Id", "item-" + i);
+            item.setTextContent("Line item " + i);
+            order.appendChild(item);
         }
+        return doc;
     }
 }